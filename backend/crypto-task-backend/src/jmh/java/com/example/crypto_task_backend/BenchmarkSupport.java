@@ -0,0 +1,66 @@
+package com.example.crypto_task_backend;
+
+import com.example.crypto_task_backend.config.KrakenWebSocketConfig;
+import com.example.crypto_task_backend.service.websocket.FrameRingBuffer;
+
+import java.lang.reflect.Field;
+
+/**
+ * Builds components outside a Spring context for benchmarks
+ */
+public final class BenchmarkSupport {
+
+    /** Pairs used by the benchmarks, the same list the pair service subscribes to */
+    public static final String[] PAIRS = {
+        "XBT/USD", "ETH/USD", "XRP/USD", "LTC/USD", "BCH/USD",
+        "ADA/USD", "SOL/USD", "DOT/USD", "DOGE/USD", "AVAX/USD",
+        "MATIC/USD", "LINK/USD", "UNI/USD", "ATOM/USD", "XLM/USD",
+        "ALGO/USD", "FIL/USD", "ETC/USD", "XTZ/USD", "AAVE/USD"
+    };
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Kraken config with the defaults its @Value fields would get from Spring
+     * @param parserMode "streaming" or "tree"
+     */
+    public static KrakenWebSocketConfig krakenConfig(String parserMode) {
+        KrakenWebSocketConfig config = new KrakenWebSocketConfig();
+        set(config, "krakenWebSocketUrl", "ws://localhost:8765");
+        set(config, "reconnectDelay", 250);
+        set(config, "reconnectMaxDelay", 30000);
+        set(config, "staleConnectionTimeout", 10000L);
+        set(config, "stalePairTimeout", 120000L);
+        set(config, "webSocketConnections", 1);
+        set(config, "bookDepth", 10);
+        set(config, "parserMode", parserMode);
+        set(config, "ingestRingSize", 1024);
+        set(config, "ingestConsumers", 1);
+        set(config, "ingestOverflowPolicy", FrameRingBuffer.OverflowPolicy.DROP_OLDEST);
+        set(config, "recorderFile", "");
+        return config;
+    }
+
+    /**
+     * Kraken ticker frame as received from the v1 API
+     */
+    public static String tickerFrame(int channelId, String pair, double price) {
+        return String.format(java.util.Locale.ROOT,
+                "[%d,{\"a\":[\"%.5f\",1,\"1.000\"],\"b\":[\"%.5f\",2,\"2.000\"],\"c\":[\"%.5f\",\"0.00450000\"],"
+                        + "\"v\":[\"1234.56789012\",\"5678.90123456\"],\"p\":[\"%.5f\",\"%.5f\"],\"t\":[1234,5678],"
+                        + "\"l\":[\"%.5f\",\"%.5f\"],\"h\":[\"%.5f\",\"%.5f\"],\"o\":[\"%.5f\",\"%.5f\"]},\"ticker\",\"%s\"]",
+                channelId, price * 1.0001, price * 0.9999, price, price, price,
+                price * 0.98, price * 0.97, price * 1.02, price * 1.03, price * 0.99, price * 0.995, pair);
+    }
+
+    private static void set(Object target, String field, Object value) {
+        try {
+            Field f = target.getClass().getDeclaredField(field);
+            f.setAccessible(true);
+            f.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Cannot set " + field + ": " + e.getMessage(), e);
+        }
+    }
+}
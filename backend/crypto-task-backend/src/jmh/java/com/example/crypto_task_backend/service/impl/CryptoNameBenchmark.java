@@ -0,0 +1,38 @@
+package com.example.crypto_task_backend.service.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CryptoPairServiceImpl.getCryptoName for a mapped pair and for a pair that falls
+ * through to the name derived from the symbol
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CryptoNameBenchmark {
+
+    private CryptoPairServiceImpl cryptoPairService;
+
+    @Setup
+    public void setUp() {
+        cryptoPairService = new CryptoPairServiceImpl();
+    }
+
+    @Benchmark
+    public String knownPair() {
+        return cryptoPairService.getCryptoName("XBT/USD");
+    }
+
+    @Benchmark
+    public String unknownPair() {
+        return cryptoPairService.getCryptoName("XXLMZUSD");
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.crypto_task_backend.service.impl;
+
+import com.example.crypto_task_backend.BenchmarkSupport;
+import com.example.crypto_task_backend.model.CryptoPrice;
+import com.example.crypto_task_backend.service.PriceScaleRegistry;
+import com.example.crypto_task_backend.util.EpochNanos;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the List&lt;CryptoPrice&gt; broadcast payload, fresh on every
+ * call versus the pre-serialized bytes served while the price table is unchanged
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PriceSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private CryptoPriceServiceImpl cryptoPriceService;
+    private List<CryptoPrice> prices;
+
+    @Setup
+    public void setUp() {
+        // Configured like the application's mapper: Java time support, ISO dates, indented
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .enable(SerializationFeature.INDENT_OUTPUT);
+        cryptoPriceService = new CryptoPriceServiceImpl(new CryptoPairServiceImpl(),
+                new PriceScaleRegistry("", ""), objectMapper);
+        for (int i = 0; i < BenchmarkSupport.PAIRS.length; i++) {
+            long price = 10_000_000_000L * (i + 1) + 12_345;
+            cryptoPriceService.updatePrice(BenchmarkSupport.PAIRS[i], 8, price, price + 1_000, price - 1_000,
+                    8, 987_654_321_000L, EpochNanos.now());
+        }
+        prices = cryptoPriceService.getAllPrices();
+    }
+
+    @Benchmark
+    public byte[] serializePriceList() throws Exception {
+        return objectMapper.writeValueAsBytes(prices);
+    }
+
+    @Benchmark
+    public byte[] cachedPriceListJson() {
+        return cryptoPriceService.getAllPricesJson();
+    }
+}
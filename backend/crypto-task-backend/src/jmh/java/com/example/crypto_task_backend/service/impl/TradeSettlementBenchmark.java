@@ -0,0 +1,105 @@
+package com.example.crypto_task_backend.service.impl;
+
+import com.example.crypto_task_backend.CryptoTaskBackendApplication;
+import com.example.crypto_task_backend.model.User;
+import com.example.crypto_task_backend.repository.UserRepository;
+import com.example.crypto_task_backend.service.TradeSettlement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A buy and the matching sell through each TradeSettlement, on 1 and 4 threads with one
+ * user per thread. Needs the MySQL of application.properties (override with
+ * -Dspring.datasource.url=...); the Kraken feed is pointed at a closed port.
+ * Measures settlement only: pricing and current-user resolution are outside the loop.
+ * ./gradlew jmh -Pjmh.includes=TradeSettlement
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TradeSettlementBenchmark {
+
+    private static final String SYMBOL = "XBT/USD";
+    private static final BigDecimal QUANTITY = new BigDecimal("0.01");
+    private static final BigDecimal PRICE = new BigDecimal("100.00");
+    private static final BigDecimal NOTIONAL = QUANTITY.multiply(PRICE);
+
+    @State(Scope.Benchmark)
+    public static class Application {
+        @Param({"jpa", "sql", "ledger"})
+        public String settlement;
+
+        ConfigurableApplicationContext context;
+        TradeSettlement tradeSettlement;
+        UserRepository userRepository;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            String journal = Files.createTempDirectory("ledger-bench").resolve("ledger.journal").toString();
+            context = new SpringApplicationBuilder(CryptoTaskBackendApplication.class)
+                    .properties("server.port=0",
+                            "kraken.websocket.url=ws://localhost:9",
+                            "crypto.journal.enabled=false",
+                            "crypto.trade.settlement=" + settlement,
+                            "crypto.ledger.journal.file=" + journal,
+                            "spring.jpa.show-sql=false",
+                            "logging.level.org.hibernate.SQL=WARN",
+                            "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                            "logging.level.com.zaxxer.hikari=WARN",
+                            "logging.level.com.example=WARN")
+                    .run();
+            tradeSettlement = context.getBean(TradeSettlement.class);
+            userRepository = context.getBean(UserRepository.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Trader {
+        User user;
+
+        @Setup(Level.Trial)
+        public void setUp(Application application) {
+            User trader = new User("bench-" + UUID.randomUUID().toString().substring(0, 8));
+            trader.setBalance(new BigDecimal("1000000.00"));
+            user = application.userRepository.save(trader);
+        }
+    }
+
+    private static Object buyAndSell(Application application, Trader trader) {
+        application.tradeSettlement.buy(trader.user, SYMBOL, QUANTITY, PRICE, NOTIONAL);
+        return application.tradeSettlement.sell(trader.user, SYMBOL, QUANTITY, PRICE, NOTIONAL);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object buyAndSell1Thread(Application application, Trader trader) {
+        return buyAndSell(application, trader);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object buyAndSell4Threads(Application application, Trader trader) {
+        return buyAndSell(application, trader);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.crypto_task_backend.service.impl;
+
+import com.example.crypto_task_backend.BenchmarkSupport;
+import com.example.crypto_task_backend.service.PriceScaleRegistry;
+import com.example.crypto_task_backend.util.EpochNanos;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CryptoPriceServiceImpl.updatePrice with 1, 4 and 16 concurrent writers on a shared
+ * price table, through the scaled-long path used by the ingest consumers and the
+ * BigDecimal path used by the tree parser
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UpdatePriceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Service {
+        CryptoPriceServiceImpl cryptoPriceService;
+
+        @Setup
+        public void setUp() {
+            cryptoPriceService = new CryptoPriceServiceImpl(new CryptoPairServiceImpl(),
+                    new PriceScaleRegistry("", ""), new ObjectMapper());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        int next;
+        long price = 6_500_000_000_000L;
+    }
+
+    private static void update(Service service, Writer writer) {
+        String pair = BenchmarkSupport.PAIRS[writer.next++ % BenchmarkSupport.PAIRS.length];
+        long price = writer.price++;
+        service.cryptoPriceService.updatePrice(pair, 8, price, price + 100, price - 100,
+                8, 123_456_789_012L, EpochNanos.now());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void updatePrice1Writer(Service service, Writer writer) {
+        update(service, writer);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void updatePrice4Writers(Service service, Writer writer) {
+        update(service, writer);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void updatePrice16Writers(Service service, Writer writer) {
+        update(service, writer);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void updatePriceBigDecimal(Service service, Writer writer) {
+        String pair = BenchmarkSupport.PAIRS[writer.next++ % BenchmarkSupport.PAIRS.length];
+        BigDecimal price = BigDecimal.valueOf(writer.price++, 8);
+        service.cryptoPriceService.updatePrice(pair, price, price, price, BigDecimal.ONE, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.crypto_task_backend.service.websocket;
+
+import com.example.crypto_task_backend.BenchmarkSupport;
+import com.example.crypto_task_backend.config.KrakenWebSocketConfig;
+import com.example.crypto_task_backend.service.PriceScaleRegistry;
+import com.example.crypto_task_backend.service.impl.CryptoPairServiceImpl;
+import com.example.crypto_task_backend.service.impl.CryptoPriceServiceImpl;
+import com.example.crypto_task_backend.service.latency.TickLatencyRecorder;
+import com.example.crypto_task_backend.service.orderbook.OrderBookService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse and apply one ticker frame through KrakenWebSocketClient.processMessage,
+ * including the price cache update, with either parser
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProcessMessageBenchmark {
+
+    @Param({"streaming", "tree"})
+    public String parser;
+
+    private KrakenWebSocketClient client;
+    private String[] frames;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        KrakenWebSocketConfig config = BenchmarkSupport.krakenConfig(parser);
+        PriceScaleRegistry priceScaleRegistry = new PriceScaleRegistry("", "");
+        CryptoPairServiceImpl cryptoPairService = new CryptoPairServiceImpl();
+        CryptoPriceServiceImpl cryptoPriceService =
+                new CryptoPriceServiceImpl(cryptoPairService, priceScaleRegistry, objectMapper);
+        client = new KrakenWebSocketClient(objectMapper, config, cryptoPriceService, cryptoPairService,
+                new KrakenIngestPipeline(config), priceScaleRegistry, new FrameRecorder(config),
+                new TickLatencyRecorder(new SimpleMeterRegistry(), true, 50),
+                new OrderBookService(null, config, 10));
+
+        frames = new String[BenchmarkSupport.PAIRS.length * 8];
+        for (int i = 0; i < frames.length; i++) {
+            String pair = BenchmarkSupport.PAIRS[i % BenchmarkSupport.PAIRS.length];
+            frames[i] = BenchmarkSupport.tickerFrame(100 + i % BenchmarkSupport.PAIRS.length, pair, 100 + i * 37.5);
+        }
+    }
+
+    @Benchmark
+    public void processTickerFrame() {
+        client.processMessage(frames[next]);
+        next = (next + 1) % frames.length;
+    }
+
+    @Benchmark
+    public void processHeartbeat() {
+        client.processMessage("{\"event\":\"heartbeat\"}");
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.crypto_task_backend.config;
 
+import com.example.crypto_task_backend.service.websocket.FrameRingBuffer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 
@@ -9,9 +10,18 @@ public class KrakenWebSocketConfig {
     @Value("${kraken.websocket.url:wss://ws.kraken.com}")
     private String krakenWebSocketUrl;
     
-    @Value("${kraken.websocket.reconnect.delay:5000}")
+    @Value("${kraken.websocket.reconnect.delay:250}")
     private int reconnectDelay;
     
+    @Value("${kraken.websocket.reconnect.max.delay:30000}")
+    private int reconnectMaxDelay;
+    
+    @Value("${kraken.websocket.stale.connection.timeout:10000}")
+    private long staleConnectionTimeout;
+    
+    @Value("${kraken.websocket.stale.pair.timeout:120000}")
+    private long stalePairTimeout;
+    
     @Value("${kraken.rest.api.url:https://api.kraken.com/0}")
     private String krakenRestApiUrl;
     
@@ -20,15 +30,83 @@ public class KrakenWebSocketConfig {
     
     @Value("${kraken.top.pairs.refresh.interval:1800000}")
     private long topPairsRefreshInterval;
+    
+    @Value("${kraken.websocket.connections:4}")
+    private int webSocketConnections;
+    
+    @Value("${kraken.websocket.book.enabled:false}")
+    private boolean bookEnabled;
+    
+    @Value("${kraken.websocket.book.depth:10}")
+    private int bookDepth;
+    
+    @Value("${kraken.websocket.parser:streaming}")
+    private String parserMode;
+    
+    @Value("${kraken.ingest.ring.size:8192}")
+    private int ingestRingSize;
+    
+    @Value("${kraken.ingest.consumers:1}")
+    private int ingestConsumers;
+    
+    @Value("${kraken.ingest.overflow.policy:DROP_OLDEST}")
+    private FrameRingBuffer.OverflowPolicy ingestOverflowPolicy;
+    
+    @Value("${kraken.recorder.file:}")
+    private String recorderFile;
+    
+    @Value("${kraken.simulator.enabled:false}")
+    private boolean simulatorEnabled;
+    
+    @Value("${kraken.simulator.port:8765}")
+    private int simulatorPort;
+    
+    @Value("${kraken.simulator.source:random}")
+    private String simulatorSource;
+    
+    @Value("${kraken.simulator.speed:1x}")
+    private String simulatorSpeed;
+    
+    @Value("${kraken.simulator.rate:10}")
+    private double simulatorRate;
+    
+    @Value("${kraken.simulator.loop:true}")
+    private boolean simulatorLoop;
 
     public String getKrakenWebSocketUrl() {
         return krakenWebSocketUrl;
     }
 
+    /**
+     * First reconnect delay in milliseconds; it doubles with every failed attempt
+     */
     public int getReconnectDelay() {
         return reconnectDelay;
     }
     
+    /**
+     * Upper bound of the reconnect backoff in milliseconds
+     */
+    public int getReconnectMaxDelay() {
+        return Math.max(reconnectDelay, reconnectMaxDelay);
+    }
+    
+    /**
+     * A socket that receives no frame at all, not even a heartbeat, for this many
+     * milliseconds is closed and reconnected
+     */
+    public long getStaleConnectionTimeout() {
+        return staleConnectionTimeout;
+    }
+    
+    /**
+     * A subscribed pair without a ticker update for this many milliseconds is
+     * resubscribed; 0 disables the check
+     */
+    public long getStalePairTimeout() {
+        return stalePairTimeout;
+    }
+    
     public String getKrakenRestApiUrl() {
         return krakenRestApiUrl;
     }
@@ -40,4 +118,107 @@ public class KrakenWebSocketConfig {
     public long getTopPairsRefreshInterval() {
         return topPairsRefreshInterval;
     }
+    
+    /**
+     * Parser used for incoming frames: "streaming" (single-pass JsonParser) or "tree" (JsonNode)
+     */
+    public String getParserMode() {
+        return parserMode;
+    }
+    
+    public boolean isStreamingParser() {
+        return !"tree".equalsIgnoreCase(parserMode);
+    }
+    
+    /**
+     * Number of WebSocket connections the subscribed pairs are sharded across
+     */
+    public int getWebSocketConnections() {
+        return Math.max(1, webSocketConnections);
+    }
+    
+    /**
+     * Whether the L2 book channel is subscribed alongside the ticker
+     */
+    public boolean isBookEnabled() {
+        return bookEnabled;
+    }
+    
+    /**
+     * Book depth per side, rounded up to a depth Kraken accepts (10, 25, 100, 500 or 1000)
+     */
+    public int getBookDepth() {
+        for (int depth : new int[] {10, 25, 100, 500, 1000}) {
+            if (bookDepth <= depth) {
+                return depth;
+            }
+        }
+        return 1000;
+    }
+    
+    /**
+     * Capacity of each consumer's ingest ring
+     */
+    public int getIngestRingSize() {
+        return ingestRingSize;
+    }
+    
+    /**
+     * Number of consumer threads, each draining its own ingest ring. Frames are routed by
+     * pair, so the frames of one pair are always applied in order.
+     */
+    public int getIngestConsumers() {
+        return ingestConsumers;
+    }
+    
+    public FrameRingBuffer.OverflowPolicy getIngestOverflowPolicy() {
+        return ingestOverflowPolicy;
+    }
+    
+    /**
+     * File raw frames are recorded to; empty disables recording
+     */
+    public String getRecorderFile() {
+        return recorderFile;
+    }
+    
+    public boolean isRecorderEnabled() {
+        return recorderFile != null && !recorderFile.isBlank();
+    }
+    
+    /**
+     * Whether to run the local Kraken simulator inside the application
+     */
+    public boolean isSimulatorEnabled() {
+        return simulatorEnabled;
+    }
+    
+    public int getSimulatorPort() {
+        return simulatorPort;
+    }
+    
+    /**
+     * "random" for a random-walk feed, otherwise the path of a frame recording
+     */
+    public String getSimulatorSource() {
+        return simulatorSource;
+    }
+    
+    /**
+     * Playback speed: "1x", "Nx" or "max"
+     */
+    public String getSimulatorSpeed() {
+        return simulatorSpeed;
+    }
+    
+    /**
+     * Random-walk ticks per second per pair, in feed time
+     */
+    public double getSimulatorRate() {
+        return simulatorRate;
+    }
+    
+    public boolean isSimulatorLoop() {
+        return simulatorLoop;
+    }
 }
@@ -0,0 +1,39 @@
+package com.example.crypto_task_backend.config;
+
+import com.example.crypto_task_backend.service.user.UserContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+
+/**
+ * Binds the X-User-Id header of an API request to {@link UserContext} for the request
+ * thread; a malformed id is rejected with 400
+ */
+public class UserContextInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                             @NonNull Object handler) throws IOException {
+        String header = request.getHeader(UserContext.USER_ID_HEADER);
+        if (header == null || header.isBlank()) {
+            UserContext.clear();
+            return true;
+        }
+        try {
+            UserContext.setUserId(Long.parseLong(header.trim()));
+            return true;
+        } catch (NumberFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid " + UserContext.USER_ID_HEADER);
+            return false;
+        }
+    }
+
+    @Override
+    public void afterCompletion(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                @NonNull Object handler, Exception ex) {
+        UserContext.clear();
+    }
+}
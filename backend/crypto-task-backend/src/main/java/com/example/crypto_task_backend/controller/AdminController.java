@@ -0,0 +1,144 @@
+package com.example.crypto_task_backend.controller;
+
+import com.example.crypto_task_backend.service.latency.TickLatencyRecorder;
+import com.example.crypto_task_backend.service.ledger.AccountLedger;
+import com.example.crypto_task_backend.service.lots.LotTracker;
+import com.example.crypto_task_backend.service.orderbook.OrderBookService;
+import com.example.crypto_task_backend.service.portfolio.PortfolioValuationService;
+import com.example.crypto_task_backend.service.user.UserCache;
+import com.example.crypto_task_backend.service.websocket.KrakenIngestPipeline;
+import com.example.crypto_task_backend.service.websocket.KrakenWebSocketClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private final KrakenIngestPipeline ingestPipeline;
+    private final TickLatencyRecorder latencyRecorder;
+    private final KrakenWebSocketClient krakenWebSocketClient;
+    private final OrderBookService orderBookService;
+    private final ObjectProvider<AccountLedger> accountLedger;
+    private final UserCache userCache;
+    private final PortfolioValuationService portfolioValuation;
+    private final LotTracker lotTracker;
+
+    @Autowired
+    public AdminController(KrakenIngestPipeline ingestPipeline, TickLatencyRecorder latencyRecorder,
+                           KrakenWebSocketClient krakenWebSocketClient, OrderBookService orderBookService,
+                           ObjectProvider<AccountLedger> accountLedger, UserCache userCache,
+                           PortfolioValuationService portfolioValuation, LotTracker lotTracker) {
+        this.ingestPipeline = ingestPipeline;
+        this.latencyRecorder = latencyRecorder;
+        this.krakenWebSocketClient = krakenWebSocketClient;
+        this.orderBookService = orderBookService;
+        this.accountLedger = accountLedger;
+        this.userCache = userCache;
+        this.portfolioValuation = portfolioValuation;
+        this.lotTracker = lotTracker;
+    }
+
+    /**
+     * Get ingest ring occupancy and throughput counters
+     * @return Map of counter names to values
+     */
+    @GetMapping("/ingest")
+    public ResponseEntity<Map<String, Object>> getIngestStats() {
+        return ResponseEntity.ok(ingestPipeline.getStats());
+    }
+
+    /**
+     * Get the Kraken WebSocket shards with their assigned pairs and frame counters
+     * @return One entry per connection
+     */
+    @GetMapping("/shards")
+    public ResponseEntity<List<Map<String, Object>>> getShardStats() {
+        return ResponseEntity.ok(krakenWebSocketClient.getShardStats());
+    }
+
+    /**
+     * Get order book counts and checksum failures
+     * @return Map of counter names to values
+     */
+    @GetMapping("/books")
+    public ResponseEntity<Map<String, Object>> getOrderBookStats() {
+        return ResponseEntity.ok(orderBookService.getStats());
+    }
+
+    /**
+     * Get account ledger write-behind counters; 404 unless crypto.trade.settlement=ledger
+     * @return Map of counter names to values
+     */
+    @GetMapping("/ledger")
+    public ResponseEntity<Map<String, Object>> getLedgerStats() {
+        AccountLedger ledger = accountLedger.getIfAvailable();
+        return ledger != null ? ResponseEntity.ok(ledger.getStats()) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Get current-user cache size, hits, misses and invalidations
+     * @return Map of counter names to values
+     */
+    @GetMapping("/users/cache")
+    public ResponseEntity<Map<String, Object>> getUserCacheStats() {
+        return ResponseEntity.ok(userCache.getStats());
+    }
+
+    /**
+     * Get tracked portfolio and indexed symbol counts, repricings and published updates
+     * @return Map of counter names to values
+     */
+    @GetMapping("/portfolios")
+    public ResponseEntity<Map<String, Object>> getPortfolioStats() {
+        return ResponseEntity.ok(portfolioValuation.getStats());
+    }
+
+    /**
+     * Get the cost basis method, accounts with lots and backfill counters
+     * @return Map of counter names to values
+     */
+    @GetMapping("/lots")
+    public ResponseEntity<Map<String, Object>> getLotStats() {
+        return ResponseEntity.ok(lotTracker.getStats());
+    }
+
+    /**
+     * Build the lots of every account not yet tracked from its transaction history
+     * @return The number of accounts built, or 409 if a backfill is already running
+     */
+    @PostMapping("/lots/backfill")
+    public ResponseEntity<Map<String, Object>> backfillLots() {
+        try {
+            return ResponseEntity.ok(Map.of("accounts", lotTracker.backfill()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Get tick latency percentiles per stage, overall and per symbol
+     * @return Map of stage summaries with p50/p99/p999/max in microseconds
+     */
+    @GetMapping("/latency")
+    public ResponseEntity<Map<String, Object>> getLatencyStats() {
+        return ResponseEntity.ok(latencyRecorder.getStats());
+    }
+
+    /**
+     * Clear the latency histograms, e.g. before a load test
+     */
+    @PostMapping("/latency/reset")
+    public ResponseEntity<Void> resetLatencyStats() {
+        latencyRecorder.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,16 +1,23 @@
 package com.example.crypto_task_backend.controller;
 
+import com.example.crypto_task_backend.dto.Candle;
+import com.example.crypto_task_backend.dto.OrderBookResponse;
+import com.example.crypto_task_backend.dto.PriceHistoryResponse;
 import com.example.crypto_task_backend.model.CryptoPrice;
 import com.example.crypto_task_backend.service.CryptoPriceService;
+import com.example.crypto_task_backend.service.candles.CandleAggregator;
+import com.example.crypto_task_backend.service.candles.CandleResolution;
+import com.example.crypto_task_backend.service.history.TickHistoryStore;
+import com.example.crypto_task_backend.service.orderbook.OrderBookService;
+import com.example.crypto_task_backend.util.FixedPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 
 @RestController
@@ -18,31 +25,41 @@ import java.util.stream.Collectors;
 public class CryptoPriceController {
 
     private static final Logger logger = LoggerFactory.getLogger(CryptoPriceController.class);
+    private static final long DEFAULT_HISTORY_WINDOW_MILLIS = 60 * 60 * 1000L;
+
     private final CryptoPriceService cryptoPriceService;
+    private final TickHistoryStore tickHistoryStore;
+    private final CandleAggregator candleAggregator;
+    private final OrderBookService orderBookService;
 
     @Autowired
-    public CryptoPriceController(CryptoPriceService cryptoPriceService) {
+    public CryptoPriceController(CryptoPriceService cryptoPriceService, TickHistoryStore tickHistoryStore,
+                                 CandleAggregator candleAggregator, OrderBookService orderBookService) {
         this.cryptoPriceService = cryptoPriceService;
+        this.tickHistoryStore = tickHistoryStore;
+        this.candleAggregator = candleAggregator;
+        this.orderBookService = orderBookService;
     }
 
+    /**
+     * Get all cryptocurrency prices as pre-serialized JSON
+     * @return JSON array of prices, shared by all requests until the next price update
+     */
     @GetMapping
-    public ResponseEntity<List<CryptoPrice>> getAllPrices() {
-        logger.info("API request: Get all cryptocurrency prices");
-        List<CryptoPrice> prices = cryptoPriceService.getAllPrices();
-        logger.info("Returning {} cryptocurrency prices", prices.size());
-        return ResponseEntity.ok(prices);
+    public ResponseEntity<byte[]> getAllPrices() {
+        logger.debug("API request: Get all cryptocurrency prices");
+        return json(cryptoPriceService.getAllPricesJson());
     }
 
     @GetMapping("/{symbol}")
-    public ResponseEntity<CryptoPrice> getPriceBySymbol(@PathVariable String symbol) {
-        logger.info("API request: Get price for symbol: {}", symbol);
-        CryptoPrice price = cryptoPriceService.getPriceBySymbol(symbol);
+    public ResponseEntity<byte[]> getPriceBySymbol(@PathVariable String symbol) {
+        logger.debug("API request: Get price for symbol: {}", symbol);
+        byte[] price = cryptoPriceService.getPriceJson(symbol);
         if (price == null) {
             logger.warn("Price not found for symbol: {}", symbol);
             return ResponseEntity.notFound().build();
         }
-        logger.info("Found price for {}: {}", symbol, price.getPrice());
-        return ResponseEntity.ok(price);
+        return json(price);
     }
 
     @GetMapping("/value/{symbol}")
@@ -53,19 +70,111 @@ public class CryptoPriceController {
             logger.warn("Price not found for {}", symbol);
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(price.getPrice().doubleValue());
+        return ResponseEntity.ok(FixedPoint.toDouble(price.priceUnits(), price.priceScale()));
     }
 
     @GetMapping("/latest")
-    public ResponseEntity<Map<String, Double>> getLatestPrices() {
-        logger.info("API request: Get latest prices");
-        List<CryptoPrice> prices = cryptoPriceService.getAllPrices();
-        Map<String, Double> priceMap = prices.stream()
-                .collect(Collectors.toMap(
-                        CryptoPrice::getSymbol,
-                        price -> price.getPrice().doubleValue()
-                ));
-        logger.info("Returning latest prices map with {} entries", priceMap.size());
-        return ResponseEntity.ok(priceMap);
+    public ResponseEntity<byte[]> getLatestPrices() {
+        logger.debug("API request: Get latest prices");
+        return json(cryptoPriceService.getLatestPricesJson());
+    }
+
+    /**
+     * Get recorded ticks for a symbol such as XBT/USD
+     * @param symbol The cryptocurrency symbol
+     * @param from Start of the range in epoch milliseconds; defaults to one hour before to
+     * @param to End of the range in epoch milliseconds; defaults to now
+     * @return Ticks within the range, oldest first
+     */
+    @GetMapping("/history")
+    public ResponseEntity<PriceHistoryResponse> getPriceHistory(@RequestParam String symbol,
+                                                                @RequestParam(required = false) Long from,
+                                                                @RequestParam(required = false) Long to) {
+        long end = to != null ? to : System.currentTimeMillis();
+        long start = from != null ? from : end - DEFAULT_HISTORY_WINDOW_MILLIS;
+        logger.debug("API request: Get price history for {} from {} to {}", symbol, start, end);
+        if (start > end) {
+            return ResponseEntity.badRequest().build();
+        }
+        PriceHistoryResponse history = tickHistoryStore.getHistory(symbol, start, end);
+        if (history == null) {
+            logger.warn("No price history for {}", symbol);
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(history);
+    }
+
+    /**
+     * Path form of the history endpoint for pair symbols, e.g. /XBT/USD/history
+     */
+    @GetMapping("/{base}/{quote}/history")
+    public ResponseEntity<PriceHistoryResponse> getPairPriceHistory(@PathVariable String base,
+                                                                    @PathVariable String quote,
+                                                                    @RequestParam(required = false) Long from,
+                                                                    @RequestParam(required = false) Long to) {
+        return getPriceHistory(base + "/" + quote, from, to);
+    }
+
+    /**
+     * Get OHLCV candles for a symbol such as XBT/USD
+     * @param symbol The cryptocurrency symbol
+     * @param resolution One of 1s, 1m, 5m, 1h, 1d
+     * @param limit Maximum number of candles, newest last
+     * @return Closed candles followed by the in-progress one
+     */
+    @GetMapping("/candles")
+    public ResponseEntity<List<Candle>> getCandles(@RequestParam String symbol,
+                                                   @RequestParam(defaultValue = "1m") String resolution,
+                                                   @RequestParam(defaultValue = "100") int limit) {
+        logger.debug("API request: Get {} candles for {}", resolution, symbol);
+        CandleResolution res = CandleResolution.fromCode(resolution);
+        if (res == null || limit <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(candleAggregator.getCandles(symbol, res, limit));
+    }
+
+    /**
+     * Path form of the candles endpoint for pair symbols, e.g. /XBT/USD/candles/5m
+     */
+    @GetMapping("/{base}/{quote}/candles/{resolution}")
+    public ResponseEntity<List<Candle>> getPairCandles(@PathVariable String base,
+                                                       @PathVariable String quote,
+                                                       @PathVariable String resolution,
+                                                       @RequestParam(defaultValue = "100") int limit) {
+        return getCandles(base + "/" + quote, resolution, limit);
+    }
+
+    /**
+     * Get the top levels of a symbol's L2 order book; requires kraken.websocket.book.enabled
+     * @param symbol The cryptocurrency symbol
+     * @param depth Maximum levels per side
+     * @return Asks and bids, best first, or 404 if no book has been received
+     */
+    @GetMapping("/book")
+    public ResponseEntity<OrderBookResponse> getOrderBook(@RequestParam String symbol,
+                                                          @RequestParam(defaultValue = "10") int depth) {
+        logger.debug("API request: Get order book for {}", symbol);
+        if (depth <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        OrderBookResponse book = orderBookService.getDepth(symbol, depth);
+        return book != null ? ResponseEntity.ok(book) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Path form of the order book endpoint for pair symbols, e.g. /XBT/USD/book
+     */
+    @GetMapping("/{base}/{quote}/book")
+    public ResponseEntity<OrderBookResponse> getPairOrderBook(@PathVariable String base,
+                                                              @PathVariable String quote,
+                                                              @RequestParam(defaultValue = "10") int depth) {
+        return getOrderBook(base + "/" + quote, depth);
+    }
+
+    private static ResponseEntity<byte[]> json(byte[] body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
     }
 }
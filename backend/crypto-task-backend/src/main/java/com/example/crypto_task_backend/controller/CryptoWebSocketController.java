@@ -1,15 +1,16 @@
 package com.example.crypto_task_backend.controller;
 
+import com.example.crypto_task_backend.dto.PriceSnapshotResponse;
 import com.example.crypto_task_backend.model.CryptoPrice;
 import com.example.crypto_task_backend.service.CryptoPriceService;
+import com.example.crypto_task_backend.service.broadcast.ConflatingPricePublisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.SendTo;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.stereotype.Controller;
 
 import java.util.List;
@@ -17,17 +18,17 @@ import java.util.List;
 @Controller
 public class CryptoWebSocketController {
     private static final Logger logger = LoggerFactory.getLogger(CryptoWebSocketController.class);
-    
+
     private final CryptoPriceService cryptoPriceService;
-    private final SimpMessagingTemplate messagingTemplate;
-    
+    private final ConflatingPricePublisher pricePublisher;
+
     @Autowired
-    public CryptoWebSocketController(CryptoPriceService cryptoPriceService, 
-                                    SimpMessagingTemplate messagingTemplate) {
+    public CryptoWebSocketController(CryptoPriceService cryptoPriceService,
+                                    ConflatingPricePublisher pricePublisher) {
         this.cryptoPriceService = cryptoPriceService;
-        this.messagingTemplate = messagingTemplate;
+        this.pricePublisher = pricePublisher;
     }
-    
+
 
     @MessageMapping("/subscribe-all")
     @SendTo("/topic/prices")
@@ -36,39 +37,25 @@ public class CryptoWebSocketController {
         logger.info("Client subscribed to all prices, sending {} prices", prices.size());
         return prices;
     }
-    
+
     @MessageMapping("/subscribe/{symbol}")
     @SendTo("/topic/prices/{symbol}")
     public CryptoPrice subscribeToCryptocurrency(@DestinationVariable String symbol) {
         logger.info("Client subscribed to cryptocurrency: {}", symbol);
         return cryptoPriceService.getPriceBySymbol(symbol);
     }
-    
+
     /**
-     * Scheduled task to periodically send price updates to all clients
-     * This ensures clients receive updates even if no price changes occur
+     * Full price state plus the delta sequence it corresponds to.
+     * Clients subscribe to /topic/prices/delta, request this snapshot on start or after
+     * a sequence gap, and then apply only deltas with a higher sequence.
      */
-    @Scheduled(fixedRate = 5000)
-    public void sendPeriodicUpdates() {
-        List<CryptoPrice> prices = cryptoPriceService.getAllPrices();
-        
-        if (prices.isEmpty()) {
-            logger.warn("No prices available to send in periodic update");
-            
-            // Create a dummy price for testing if no prices are available
-            // This helps debug WebSocket connectivity issues
-            if (prices.isEmpty()) {
-                logger.info("Creating dummy test price for debugging");
-                CryptoPrice dummyPrice = CryptoPrice.builder()
-                    .symbol("TEST/USD")
-                    .name("Test Currency")
-                    .price(java.math.BigDecimal.valueOf(1000.0))
-                    .build();
-                messagingTemplate.convertAndSend("/topic/prices", List.of(dummyPrice));
-            }
-        } else {
-            logger.info("Sending periodic update with {} prices", prices.size());
-            messagingTemplate.convertAndSend("/topic/prices", prices);
-        }
+    @MessageMapping("/snapshot")
+    @SendToUser(destinations = "/queue/snapshot", broadcast = false)
+    public PriceSnapshotResponse snapshot() {
+        PriceSnapshotResponse snapshot = pricePublisher.snapshot();
+        logger.info("Client requested price snapshot, sending {} prices at sequence {}",
+                snapshot.getPrices().size(), snapshot.getSequence());
+        return snapshot;
     }
 }
@@ -1,16 +1,21 @@
 package com.example.crypto_task_backend.controller;
 
+import com.example.crypto_task_backend.dto.PortfolioValuation;
+import com.example.crypto_task_backend.dto.TransactionPage;
 import com.example.crypto_task_backend.dto.TransactionRequest;
 import com.example.crypto_task_backend.dto.TransactionResponse;
 import com.example.crypto_task_backend.dto.UserHoldingResponse;
 import com.example.crypto_task_backend.service.TransactionService;
 import com.example.crypto_task_backend.service.UserService;
+import com.example.crypto_task_backend.service.export.TransactionExporter;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -23,11 +28,14 @@ public class TransactionController {
     private static final Logger logger = LoggerFactory.getLogger(TransactionController.class);
     private final TransactionService transactionService;
     private final UserService userService;
+    private final TransactionExporter transactionExporter;
 
     @Autowired
-    public TransactionController(TransactionService transactionService, UserService userService) {
+    public TransactionController(TransactionService transactionService, UserService userService,
+                                 TransactionExporter transactionExporter) {
         this.transactionService = transactionService;
         this.userService = userService;
+        this.transactionExporter = transactionExporter;
     }
 
     @PostMapping("/buy")
@@ -52,6 +60,48 @@ public class TransactionController {
         return ResponseEntity.ok(transactions);
     }
     
+    /**
+     * Get a page of transactions, newest first
+     * @param cursor nextCursor of the previous page; omit for the first page
+     * @param limit Maximum transactions per page, at most 500
+     * @return The page and the cursor of the next one, or 400 for a malformed cursor
+     */
+    @GetMapping("/page")
+    public ResponseEntity<TransactionPage> getTransactionPage(@RequestParam(required = false) String cursor,
+                                                              @RequestParam(defaultValue = "50") int limit) {
+        logger.debug("Fetching transaction page, cursor={}, limit={}", cursor, limit);
+        if (limit <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(transactionService.getTransactionPage(cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Download the full transaction history, streamed from the database
+     * @param format ndjson (one JSON transaction per line) or csv
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam(defaultValue = "ndjson") String format) {
+        TransactionExporter.Format exportFormat = TransactionExporter.Format.fromCode(format);
+        if (exportFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        // Resolved here: the body is written on another thread, outside the request's user context
+        Long userId = userService.getCurrentUser().getId();
+        logger.info("Exporting transactions of user ID {} as {}", userId, exportFormat);
+        StreamingResponseBody body = out -> transactionExporter.export(userId, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header("Content-Disposition",
+                        "attachment; filename=\"transactions." + exportFormat.getExtension() + "\"")
+                .body(body);
+    }
+    
     @GetMapping("/holdings")
     public ResponseEntity<List<UserHoldingResponse>> getUserHoldings() {
         logger.info("Fetching user crypto holdings");
@@ -60,6 +110,15 @@ public class TransactionController {
         return ResponseEntity.ok(holdings);
     }
     
+    /**
+     * Get the live valuation of the current user's portfolio. Clients that keep it
+     * current subscribe to /topic/portfolio/{userId} instead of polling.
+     */
+    @GetMapping("/portfolio")
+    public ResponseEntity<PortfolioValuation> getPortfolioValuation() {
+        return ResponseEntity.ok(transactionService.getPortfolioValuation());
+    }
+    
     @GetMapping("/balance")
     public ResponseEntity<?> getUserBalance() {
         try {
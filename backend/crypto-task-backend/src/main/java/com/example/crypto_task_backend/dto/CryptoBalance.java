@@ -0,0 +1,56 @@
+package com.example.crypto_task_backend.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A user's balance of one cryptocurrency, selected without loading the entity or its user
+ */
+public class CryptoBalance {
+    private Long id;
+    private String cryptoSymbol;
+    private BigDecimal balance;
+    private LocalDateTime updatedAt;
+
+    public CryptoBalance() {
+    }
+
+    public CryptoBalance(Long id, String cryptoSymbol, BigDecimal balance, LocalDateTime updatedAt) {
+        this.id = id;
+        this.cryptoSymbol = cryptoSymbol;
+        this.balance = balance;
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getCryptoSymbol() {
+        return cryptoSymbol;
+    }
+
+    public void setCryptoSymbol(String cryptoSymbol) {
+        this.cryptoSymbol = cryptoSymbol;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.crypto_task_backend.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * One price level of an order book
+ */
+public class OrderBookLevel {
+    private BigDecimal price;
+    private BigDecimal volume;
+
+    public OrderBookLevel() {
+    }
+
+    public OrderBookLevel(BigDecimal price, BigDecimal volume) {
+        this.price = price;
+        this.volume = volume;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public BigDecimal getVolume() {
+        return volume;
+    }
+
+    public void setVolume(BigDecimal volume) {
+        this.volume = volume;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.crypto_task_backend.dto;
+
+import java.util.List;
+
+/**
+ * Top levels of one symbol's order book, best first; time is the epoch milliseconds of
+ * the last applied update. synced is false while the book waits for a fresh snapshot.
+ */
+public class OrderBookResponse {
+    private String symbol;
+    private long time;
+    private boolean synced;
+    private List<OrderBookLevel> asks;
+    private List<OrderBookLevel> bids;
+
+    public OrderBookResponse() {
+    }
+
+    public OrderBookResponse(String symbol, long time, boolean synced, List<OrderBookLevel> asks,
+                             List<OrderBookLevel> bids) {
+        this.symbol = symbol;
+        this.time = time;
+        this.synced = synced;
+        this.asks = asks;
+        this.bids = bids;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public void setTime(long time) {
+        this.time = time;
+    }
+
+    public boolean isSynced() {
+        return synced;
+    }
+
+    public void setSynced(boolean synced) {
+        this.synced = synced;
+    }
+
+    public List<OrderBookLevel> getAsks() {
+        return asks;
+    }
+
+    public void setAsks(List<OrderBookLevel> asks) {
+        this.asks = asks;
+    }
+
+    public List<OrderBookLevel> getBids() {
+        return bids;
+    }
+
+    public void setBids(List<OrderBookLevel> bids) {
+        this.bids = bids;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.crypto_task_backend.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Live valuation of a user's portfolio as pushed to /topic/portfolio/{userId}
+ */
+public class PortfolioValuation {
+    private Long userId;
+    private BigDecimal cashBalance;
+    private BigDecimal marketValue;
+    private BigDecimal costBasis;
+    private BigDecimal unrealisedPnl;
+    private BigDecimal realisedPnl;
+    private BigDecimal totalValue;
+    private List<PositionValuation> positions;
+    private LocalDateTime valuedAt;
+
+    public PortfolioValuation() {
+    }
+
+    public PortfolioValuation(Long userId, BigDecimal cashBalance, BigDecimal marketValue, BigDecimal costBasis,
+                              BigDecimal realisedPnl, List<PositionValuation> positions) {
+        this.userId = userId;
+        this.cashBalance = cashBalance;
+        this.marketValue = marketValue;
+        this.costBasis = costBasis;
+        this.unrealisedPnl = marketValue.subtract(costBasis);
+        this.realisedPnl = realisedPnl;
+        this.totalValue = cashBalance.add(marketValue);
+        this.positions = positions;
+        this.valuedAt = LocalDateTime.now();
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public BigDecimal getCashBalance() {
+        return cashBalance;
+    }
+
+    public void setCashBalance(BigDecimal cashBalance) {
+        this.cashBalance = cashBalance;
+    }
+
+    public BigDecimal getMarketValue() {
+        return marketValue;
+    }
+
+    public void setMarketValue(BigDecimal marketValue) {
+        this.marketValue = marketValue;
+    }
+
+    public BigDecimal getCostBasis() {
+        return costBasis;
+    }
+
+    public void setCostBasis(BigDecimal costBasis) {
+        this.costBasis = costBasis;
+    }
+
+    public BigDecimal getUnrealisedPnl() {
+        return unrealisedPnl;
+    }
+
+    public void setUnrealisedPnl(BigDecimal unrealisedPnl) {
+        this.unrealisedPnl = unrealisedPnl;
+    }
+
+    public BigDecimal getRealisedPnl() {
+        return realisedPnl;
+    }
+
+    public void setRealisedPnl(BigDecimal realisedPnl) {
+        this.realisedPnl = realisedPnl;
+    }
+
+    public BigDecimal getTotalValue() {
+        return totalValue;
+    }
+
+    public void setTotalValue(BigDecimal totalValue) {
+        this.totalValue = totalValue;
+    }
+
+    public List<PositionValuation> getPositions() {
+        return positions;
+    }
+
+    public void setPositions(List<PositionValuation> positions) {
+        this.positions = positions;
+    }
+
+    public LocalDateTime getValuedAt() {
+        return valuedAt;
+    }
+
+    public void setValuedAt(LocalDateTime valuedAt) {
+        this.valuedAt = valuedAt;
+    }
+}
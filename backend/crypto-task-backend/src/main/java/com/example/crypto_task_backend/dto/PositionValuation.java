@@ -0,0 +1,76 @@
+package com.example.crypto_task_backend.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * One position of a live portfolio valuation
+ */
+public class PositionValuation {
+    private String symbol;
+    private BigDecimal quantity;
+    private BigDecimal price;
+    private BigDecimal marketValue;
+    private BigDecimal costBasis;
+    private BigDecimal unrealisedPnl;
+
+    public PositionValuation() {
+    }
+
+    public PositionValuation(String symbol, BigDecimal quantity, BigDecimal price, BigDecimal marketValue,
+                             BigDecimal costBasis) {
+        this.symbol = symbol;
+        this.quantity = quantity;
+        this.price = price;
+        this.marketValue = marketValue;
+        this.costBasis = costBasis;
+        this.unrealisedPnl = marketValue.subtract(costBasis);
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public BigDecimal getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(BigDecimal quantity) {
+        this.quantity = quantity;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public BigDecimal getMarketValue() {
+        return marketValue;
+    }
+
+    public void setMarketValue(BigDecimal marketValue) {
+        this.marketValue = marketValue;
+    }
+
+    public BigDecimal getCostBasis() {
+        return costBasis;
+    }
+
+    public void setCostBasis(BigDecimal costBasis) {
+        this.costBasis = costBasis;
+    }
+
+    public BigDecimal getUnrealisedPnl() {
+        return unrealisedPnl;
+    }
+
+    public void setUnrealisedPnl(BigDecimal unrealisedPnl) {
+        this.unrealisedPnl = unrealisedPnl;
+    }
+}
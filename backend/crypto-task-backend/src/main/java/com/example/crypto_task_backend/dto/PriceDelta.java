@@ -0,0 +1,106 @@
+package com.example.crypto_task_backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Changed fields of a single cryptocurrency price; unchanged fields are left null and omitted.
+ * A field that changed to no value, such as an empty side of the book, is named in cleared.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PriceDelta {
+    private String symbol;
+    private String name;
+    private BigDecimal price;
+    private BigDecimal askPrice;
+    private BigDecimal bidPrice;
+    private BigDecimal volume24h;
+    private LocalDateTime lastUpdated;
+    private List<String> cleared;
+
+    public PriceDelta() {
+    }
+
+    public PriceDelta(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public BigDecimal getAskPrice() {
+        return askPrice;
+    }
+
+    public void setAskPrice(BigDecimal askPrice) {
+        this.askPrice = askPrice;
+    }
+
+    public BigDecimal getBidPrice() {
+        return bidPrice;
+    }
+
+    public void setBidPrice(BigDecimal bidPrice) {
+        this.bidPrice = bidPrice;
+    }
+
+    public BigDecimal getVolume24h() {
+        return volume24h;
+    }
+
+    public void setVolume24h(BigDecimal volume24h) {
+        this.volume24h = volume24h;
+    }
+
+    public LocalDateTime getLastUpdated() {
+        return lastUpdated;
+    }
+
+    public void setLastUpdated(LocalDateTime lastUpdated) {
+        this.lastUpdated = lastUpdated;
+    }
+
+    public List<String> getCleared() {
+        return cleared;
+    }
+
+    public void setCleared(List<String> cleared) {
+        this.cleared = cleared;
+    }
+
+    /**
+     * Mark a field as changed to no value
+     * @param field The JSON name of the field
+     */
+    public void clear(String field) {
+        if (cleared == null) {
+            cleared = new ArrayList<>(2);
+        }
+        cleared.add(field);
+    }
+}
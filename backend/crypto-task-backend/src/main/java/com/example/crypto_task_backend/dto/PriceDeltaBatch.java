@@ -0,0 +1,36 @@
+package com.example.crypto_task_backend.dto;
+
+import java.util.List;
+
+/**
+ * One flush worth of price deltas, tagged with a monotonically increasing sequence number.
+ * A client that sees a gap in the sequence should request a fresh snapshot.
+ */
+public class PriceDeltaBatch {
+    private long sequence;
+    private List<PriceDelta> deltas;
+
+    public PriceDeltaBatch() {
+    }
+
+    public PriceDeltaBatch(long sequence, List<PriceDelta> deltas) {
+        this.sequence = sequence;
+        this.deltas = deltas;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public List<PriceDelta> getDeltas() {
+        return deltas;
+    }
+
+    public void setDeltas(List<PriceDelta> deltas) {
+        this.deltas = deltas;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.crypto_task_backend.dto;
+
+import java.util.List;
+
+/**
+ * Recorded ticks of one symbol within a time range; times are in epoch milliseconds
+ */
+public class PriceHistoryResponse {
+    private String symbol;
+    private long from;
+    private long to;
+    private List<PricePoint> ticks;
+
+    public PriceHistoryResponse() {
+    }
+
+    public PriceHistoryResponse(String symbol, long from, long to, List<PricePoint> ticks) {
+        this.symbol = symbol;
+        this.from = from;
+        this.to = to;
+        this.ticks = ticks;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public long getFrom() {
+        return from;
+    }
+
+    public void setFrom(long from) {
+        this.from = from;
+    }
+
+    public long getTo() {
+        return to;
+    }
+
+    public void setTo(long to) {
+        this.to = to;
+    }
+
+    public List<PricePoint> getTicks() {
+        return ticks;
+    }
+
+    public void setTicks(List<PricePoint> ticks) {
+        this.ticks = ticks;
+    }
+}
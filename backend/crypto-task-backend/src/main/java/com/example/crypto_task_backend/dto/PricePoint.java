@@ -0,0 +1,65 @@
+package com.example.crypto_task_backend.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * One recorded tick of a price history; time is in epoch milliseconds
+ */
+public class PricePoint {
+    private long time;
+    private BigDecimal price;
+    private BigDecimal bidPrice;
+    private BigDecimal askPrice;
+    private BigDecimal volume24h;
+
+    public PricePoint() {
+    }
+
+    public PricePoint(long time, BigDecimal price, BigDecimal bidPrice, BigDecimal askPrice, BigDecimal volume24h) {
+        this.time = time;
+        this.price = price;
+        this.bidPrice = bidPrice;
+        this.askPrice = askPrice;
+        this.volume24h = volume24h;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public void setTime(long time) {
+        this.time = time;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public BigDecimal getBidPrice() {
+        return bidPrice;
+    }
+
+    public void setBidPrice(BigDecimal bidPrice) {
+        this.bidPrice = bidPrice;
+    }
+
+    public BigDecimal getAskPrice() {
+        return askPrice;
+    }
+
+    public void setAskPrice(BigDecimal askPrice) {
+        this.askPrice = askPrice;
+    }
+
+    public BigDecimal getVolume24h() {
+        return volume24h;
+    }
+
+    public void setVolume24h(BigDecimal volume24h) {
+        this.volume24h = volume24h;
+    }
+}
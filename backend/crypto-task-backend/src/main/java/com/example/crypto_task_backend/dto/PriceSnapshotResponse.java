@@ -0,0 +1,38 @@
+package com.example.crypto_task_backend.dto;
+
+import com.example.crypto_task_backend.model.CryptoPrice;
+
+import java.util.List;
+
+/**
+ * Full published price state as of a delta sequence number.
+ * Deltas with a higher sequence apply on top of it.
+ */
+public class PriceSnapshotResponse {
+    private long sequence;
+    private List<CryptoPrice> prices;
+
+    public PriceSnapshotResponse() {
+    }
+
+    public PriceSnapshotResponse(long sequence, List<CryptoPrice> prices) {
+        this.sequence = sequence;
+        this.prices = prices;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public List<CryptoPrice> getPrices() {
+        return prices;
+    }
+
+    public void setPrices(List<CryptoPrice> prices) {
+        this.prices = prices;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.crypto_task_backend.dto;
+
+import java.util.List;
+
+/**
+ * One page of a user's transactions, newest first
+ */
+public class TransactionPage {
+    private List<TransactionResponse> transactions;
+    // Pass back as ?cursor= for the next page; null on the last page
+    private String nextCursor;
+
+    public TransactionPage() {
+    }
+
+    public TransactionPage(List<TransactionResponse> transactions, String nextCursor) {
+        this.transactions = transactions;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<TransactionResponse> getTransactions() {
+        return transactions;
+    }
+
+    public void setTransactions(List<TransactionResponse> transactions) {
+        this.transactions = transactions;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
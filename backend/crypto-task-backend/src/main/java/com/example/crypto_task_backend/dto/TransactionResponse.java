@@ -12,10 +12,27 @@ public class TransactionResponse {
     private BigDecimal price;
     private BigDecimal totalValue;
     private LocalDateTime transactionDate;
+    // Only set for trades priced against the order book
+    private BigDecimal slippageBps;
 
     public TransactionResponse() {
     }
 
+    /**
+     * Row constructor for JPQL projections, which skip loading the user
+     */
+    public TransactionResponse(Long id, String cryptoSymbol, Transaction.TransactionType transactionType,
+                               BigDecimal amount, BigDecimal price, BigDecimal totalValue,
+                               LocalDateTime transactionDate) {
+        this.id = id;
+        this.cryptoSymbol = cryptoSymbol;
+        this.transactionType = transactionType.name();
+        this.amount = amount;
+        this.price = price;
+        this.totalValue = totalValue;
+        this.transactionDate = transactionDate;
+    }
+
     public TransactionResponse(Transaction transaction) {
         this.id = transaction.getId();
         this.cryptoSymbol = transaction.getCryptoSymbol();
@@ -81,4 +98,12 @@ public class TransactionResponse {
     public void setTransactionDate(LocalDateTime transactionDate) {
         this.transactionDate = transactionDate;
     }
+
+    public BigDecimal getSlippageBps() {
+        return slippageBps;
+    }
+
+    public void setSlippageBps(BigDecimal slippageBps) {
+        this.slippageBps = slippageBps;
+    }
 }
@@ -1,8 +1,7 @@
 package com.example.crypto_task_backend.dto;
 
-import com.example.crypto_task_backend.model.UserBalance;
-
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 
 public class UserHoldingResponse {
@@ -12,19 +11,35 @@ public class UserHoldingResponse {
     private BigDecimal balance;
     private BigDecimal currentPrice;
     private BigDecimal currentValue;
+    private BigDecimal costBasis;
+    private BigDecimal averageCost;
+    private BigDecimal unrealisedPnl;
+    private BigDecimal realisedPnl;
     private LocalDateTime lastUpdated;
 
     public UserHoldingResponse() {
     }
 
-    public UserHoldingResponse(UserBalance userBalance, String cryptoName, BigDecimal currentPrice) {
-        this.id = userBalance.getId();
-        this.symbol = userBalance.getCryptoSymbol();
+    public UserHoldingResponse(CryptoBalance cryptoBalance, String cryptoName, BigDecimal currentPrice) {
+        this.id = cryptoBalance.getId();
+        this.symbol = cryptoBalance.getCryptoSymbol();
         this.name = cryptoName;
-        this.balance = userBalance.getBalance();
+        this.balance = cryptoBalance.getBalance();
         this.currentPrice = currentPrice;
         this.currentValue = balance.multiply(currentPrice);
-        this.lastUpdated = userBalance.getUpdatedAt();
+        this.lastUpdated = cryptoBalance.getUpdatedAt();
+    }
+
+    /**
+     * Fill in the P&L fields from the holding's lots
+     * @param costBasis Cost of the open quantity
+     * @param realisedPnl P&L realised by past sells of the symbol
+     */
+    public void applyCostBasis(BigDecimal costBasis, BigDecimal realisedPnl) {
+        this.costBasis = costBasis;
+        this.averageCost = balance.signum() > 0 ? costBasis.divide(balance, 8, RoundingMode.HALF_UP) : null;
+        this.unrealisedPnl = currentValue.subtract(costBasis);
+        this.realisedPnl = realisedPnl;
     }
 
     public Long getId() {
@@ -75,6 +90,38 @@ public class UserHoldingResponse {
         this.currentValue = currentValue;
     }
 
+    public BigDecimal getCostBasis() {
+        return costBasis;
+    }
+
+    public void setCostBasis(BigDecimal costBasis) {
+        this.costBasis = costBasis;
+    }
+
+    public BigDecimal getAverageCost() {
+        return averageCost;
+    }
+
+    public void setAverageCost(BigDecimal averageCost) {
+        this.averageCost = averageCost;
+    }
+
+    public BigDecimal getUnrealisedPnl() {
+        return unrealisedPnl;
+    }
+
+    public void setUnrealisedPnl(BigDecimal unrealisedPnl) {
+        this.unrealisedPnl = unrealisedPnl;
+    }
+
+    public BigDecimal getRealisedPnl() {
+        return realisedPnl;
+    }
+
+    public void setRealisedPnl(BigDecimal realisedPnl) {
+        this.realisedPnl = realisedPnl;
+    }
+
     public LocalDateTime getLastUpdated() {
         return lastUpdated;
     }
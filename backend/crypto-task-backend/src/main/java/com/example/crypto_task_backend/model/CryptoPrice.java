@@ -1,23 +1,101 @@
 package com.example.crypto_task_backend.model;
 
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import com.example.crypto_task_backend.util.EpochNanos;
+import com.example.crypto_task_backend.util.FixedPoint;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
-@Data
-@Builder
-@NoArgsConstructor
-@AllArgsConstructor
-public class CryptoPrice {
-    private String symbol;
-    private String name;
-    private BigDecimal price;
-    private BigDecimal askPrice;
-    private BigDecimal bidPrice;
-    private BigDecimal volume24h;
-    private LocalDateTime lastUpdated;
+/**
+ * Immutable point-in-time price of a cryptocurrency.
+ * Prices are held as longs scaled by the pair's registered price scale, the volume at
+ * the pair's volume scale and the time as epoch nanos. The BigDecimal and
+ * LocalDateTime getters convert at the REST/JSON boundary; hot-path code uses the
+ * unit accessors instead.
+ */
+public final class CryptoPrice {
+    private final String symbol;
+    private final String name;
+    private final int priceScale;
+    private final long priceUnits;
+    private final long askUnits;
+    private final long bidUnits;
+    private final int volumeScale;
+    private final long volumeUnits;
+    private final long epochNanos;
+
+    public CryptoPrice(String symbol, String name, int priceScale, long priceUnits, long askUnits,
+                       long bidUnits, int volumeScale, long volumeUnits, long epochNanos) {
+        this.symbol = symbol;
+        this.name = name;
+        this.priceScale = priceScale;
+        this.priceUnits = priceUnits;
+        this.askUnits = askUnits;
+        this.bidUnits = bidUnits;
+        this.volumeScale = volumeScale;
+        this.volumeUnits = volumeUnits;
+        this.epochNanos = epochNanos;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public BigDecimal getPrice() {
+        return FixedPoint.toBigDecimal(priceUnits, priceScale);
+    }
+
+    public BigDecimal getAskPrice() {
+        return FixedPoint.toBigDecimal(askUnits, priceScale);
+    }
+
+    public BigDecimal getBidPrice() {
+        return FixedPoint.toBigDecimal(bidUnits, priceScale);
+    }
+
+    public BigDecimal getVolume24h() {
+        return FixedPoint.toBigDecimal(volumeUnits, volumeScale);
+    }
+
+    public LocalDateTime getLastUpdated() {
+        return epochNanos == 0 ? null : EpochNanos.toLocalDateTime(epochNanos);
+    }
+
+    public int priceScale() {
+        return priceScale;
+    }
+
+    public long priceUnits() {
+        return priceUnits;
+    }
+
+    public long askUnits() {
+        return askUnits;
+    }
+
+    public long bidUnits() {
+        return bidUnits;
+    }
+
+    public int volumeScale() {
+        return volumeScale;
+    }
+
+    public long volumeUnits() {
+        return volumeUnits;
+    }
+
+    public long epochNanos() {
+        return epochNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "CryptoPrice(symbol=" + symbol + ", price=" + getPrice() + ", askPrice=" + getAskPrice()
+                + ", bidPrice=" + getBidPrice() + ", volume24h=" + getVolume24h() + ")";
+    }
 }
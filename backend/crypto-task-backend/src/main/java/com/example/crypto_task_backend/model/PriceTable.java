@@ -0,0 +1,67 @@
+package com.example.crypto_task_backend.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, versioned view of all current prices.
+ * The price service swaps in a new table on every update, so a reader holding a table
+ * sees a consistent point-in-time state without locking or defensive copies.
+ */
+public final class PriceTable {
+
+    public static final PriceTable EMPTY = new PriceTable(0, Collections.emptyMap());
+
+    private final long version;
+    private final Map<String, CryptoPrice> prices;
+    private volatile List<CryptoPrice> priceList;
+
+    private PriceTable(long version, Map<String, CryptoPrice> prices) {
+        this.version = version;
+        this.prices = prices;
+    }
+
+    /**
+     * Copy this table with one price added or replaced and the version bumped
+     * @param price The new price
+     * @return The next table
+     */
+    public PriceTable with(CryptoPrice price) {
+        Map<String, CryptoPrice> next = new LinkedHashMap<>(prices);
+        next.put(price.getSymbol(), price);
+        return new PriceTable(version + 1, Collections.unmodifiableMap(next));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public CryptoPrice get(String symbol) {
+        return prices.get(symbol);
+    }
+
+    public int size() {
+        return prices.size();
+    }
+
+    public Collection<String> symbols() {
+        return prices.keySet();
+    }
+
+    /**
+     * All prices in insertion order; built once per table and shared by all readers
+     * @return Unmodifiable list of prices
+     */
+    public List<CryptoPrice> getPrices() {
+        List<CryptoPrice> list = priceList;
+        if (list == null) {
+            list = Collections.unmodifiableList(new ArrayList<>(prices.values()));
+            priceList = list;
+        }
+        return list;
+    }
+}
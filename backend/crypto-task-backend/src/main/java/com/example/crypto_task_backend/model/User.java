@@ -6,6 +6,7 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 import jakarta.persistence.Column;
+import jakarta.persistence.Version;
 import java.math.BigDecimal;
 
 @Entity
@@ -21,6 +22,10 @@ public class User {
     @Column(nullable = false)
     private BigDecimal balance = new BigDecimal("10000.00");
 
+    // Bumped on every update; a write based on a stale read fails instead of losing an update
+    @Version
+    private Long version;
+
     public User() {
     }
 
@@ -51,4 +56,12 @@ public class User {
     public void setBalance(BigDecimal balance) {
         this.balance = balance;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -1,14 +1,50 @@
 package com.example.crypto_task_backend.repository;
 
+import com.example.crypto_task_backend.dto.TransactionResponse;
 import com.example.crypto_task_backend.model.Transaction;
 import com.example.crypto_task_backend.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
     List<Transaction> findByUser(User user);
     List<Transaction> findByUserOrderByTransactionDateDesc(User user);
+
+    /**
+     * All transactions of a user, newest first, selected straight into DTOs
+     */
+    @Query("SELECT new com.example.crypto_task_backend.dto.TransactionResponse(t.id, t.cryptoSymbol, "
+            + "t.transactionType, t.amount, t.price, t.totalValue, t.transactionDate) FROM Transaction t "
+            + "WHERE t.user.id = :userId ORDER BY t.transactionDate DESC, t.id DESC")
+    List<TransactionResponse> findResponsesByUserId(@Param("userId") Long userId);
+
+    /**
+     * First page of a user's transactions, newest first, read through idx_transactions_user_date
+     */
+    @Query("SELECT new com.example.crypto_task_backend.dto.TransactionResponse(t.id, t.cryptoSymbol, "
+            + "t.transactionType, t.amount, t.price, t.totalValue, t.transactionDate) FROM Transaction t "
+            + "WHERE t.user.id = :userId ORDER BY t.transactionDate DESC, t.id DESC")
+    List<TransactionResponse> findPage(@Param("userId") Long userId, Limit limit);
+
+    /**
+     * The page after a (transaction_date, id) keyset position; costs the same at any depth
+     */
+    @Query("SELECT new com.example.crypto_task_backend.dto.TransactionResponse(t.id, t.cryptoSymbol, "
+            + "t.transactionType, t.amount, t.price, t.totalValue, t.transactionDate) FROM Transaction t "
+            + "WHERE t.user.id = :userId AND (t.transactionDate < :date OR (t.transactionDate = :date AND t.id < :id)) "
+            + "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<TransactionResponse> findPageAfter(@Param("userId") Long userId, @Param("date") LocalDateTime date,
+                                            @Param("id") Long id, Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM Transaction t WHERE t.user.id = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
 }
@@ -1,10 +1,15 @@
 package com.example.crypto_task_backend.repository;
 
+import com.example.crypto_task_backend.dto.CryptoBalance;
 import com.example.crypto_task_backend.model.User;
 import com.example.crypto_task_backend.model.UserBalance;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,4 +17,38 @@ import java.util.Optional;
 public interface UserBalanceRepository extends JpaRepository<UserBalance, Long> {
     List<UserBalance> findByUserId(Long userId);
     Optional<UserBalance> findByUserAndCryptoSymbol(User user, String cryptoSymbol);
+
+    /**
+     * Non-zero balances of a user by symbol, selected straight into DTOs
+     */
+    @Query("SELECT new com.example.crypto_task_backend.dto.CryptoBalance(b.id, b.cryptoSymbol, b.balance, b.updatedAt) "
+            + "FROM UserBalance b WHERE b.user.id = :userId AND b.balance > 0 ORDER BY b.cryptoSymbol")
+    List<CryptoBalance> findHeldBalances(@Param("userId") Long userId);
+
+    /**
+     * Add to a crypto balance, creating the row on first purchase (unique_user_crypto)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO user_balances (user_id, crypto_symbol, balance, updated_at, version) "
+            + "VALUES (:userId, :symbol, :amount, CURRENT_TIMESTAMP, 0) "
+            + "ON DUPLICATE KEY UPDATE balance = balance + VALUES(balance), updated_at = CURRENT_TIMESTAMP, "
+            + "version = version + 1", nativeQuery = true)
+    int creditBalance(@Param("userId") Long userId, @Param("symbol") String symbol,
+                      @Param("amount") BigDecimal amount);
+
+    /**
+     * Subtract from a crypto balance if it covers the amount
+     * @return 1 if debited, 0 if the balance is insufficient or absent
+     */
+    @Modifying
+    @Query(value = "UPDATE user_balances SET balance = balance - :amount, updated_at = CURRENT_TIMESTAMP, "
+            + "version = version + 1 WHERE user_id = :userId AND crypto_symbol = :symbol AND balance >= :amount",
+            nativeQuery = true)
+    int debitBalance(@Param("userId") Long userId, @Param("symbol") String symbol,
+                     @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query(value = "UPDATE user_balances SET balance = 0, updated_at = CURRENT_TIMESTAMP, version = version + 1 "
+            + "WHERE user_id = :userId", nativeQuery = true)
+    int clearBalances(@Param("userId") Long userId);
 }
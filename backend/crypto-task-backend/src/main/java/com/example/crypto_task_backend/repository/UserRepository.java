@@ -2,11 +2,38 @@ package com.example.crypto_task_backend.repository;
 
 import com.example.crypto_task_backend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
+    Optional<User> findFirstByOrderByIdAsc();
+
+    @Query("SELECT u.id FROM User u ORDER BY u.id")
+    List<Long> findAllIds();
+
+    /**
+     * Subtract from the cash balance if it covers the amount
+     * @return 1 if debited, 0 if the balance is insufficient or the user does not exist
+     */
+    @Modifying
+    @Query(value = "UPDATE users SET balance = balance - :amount, version = version + 1 "
+            + "WHERE id = :id AND balance >= :amount", nativeQuery = true)
+    int debitBalance(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query(value = "UPDATE users SET balance = balance + :amount, version = version + 1 WHERE id = :id",
+            nativeQuery = true)
+    int creditBalance(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query(value = "UPDATE users SET balance = :balance, version = version + 1 WHERE id = :id", nativeQuery = true)
+    int setBalance(@Param("id") Long id, @Param("balance") BigDecimal balance);
 }
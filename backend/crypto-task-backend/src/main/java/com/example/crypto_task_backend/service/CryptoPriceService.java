@@ -1,6 +1,7 @@
 package com.example.crypto_task_backend.service;
 
 import com.example.crypto_task_backend.model.CryptoPrice;
+import com.example.crypto_task_backend.model.PriceTable;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -16,6 +17,31 @@ public interface CryptoPriceService {
     
     CryptoPrice getPriceBySymbol(String symbol);
     
+    /**
+     * Current immutable view of all prices
+     * @return Consistent point-in-time table, with its version
+     */
+    PriceTable getPriceTable();
+    
+    /**
+     * Serialized JSON array of all prices, regenerated at most once per price update
+     * @return JSON bytes
+     */
+    byte[] getAllPricesJson();
+    
+    /**
+     * Serialized JSON of a single price, regenerated at most once per update of that symbol
+     * @param symbol The cryptocurrency symbol
+     * @return JSON bytes, or null if the symbol has no price
+     */
+    byte[] getPriceJson(String symbol);
+    
+    /**
+     * Serialized JSON map of symbol to last price value
+     * @return JSON bytes
+     */
+    byte[] getLatestPricesJson();
+    
     /**
      * Update price for a cryptocurrency
      * @param symbol The cryptocurrency symbol
@@ -28,4 +54,34 @@ public interface CryptoPriceService {
      */
     CryptoPrice updatePrice(String symbol, BigDecimal price, BigDecimal askPrice, 
                            BigDecimal bidPrice, BigDecimal volume24h, LocalDateTime lastUpdated);
+    
+    /**
+     * Update price for a cryptocurrency from fixed-point values, without BigDecimal allocation
+     * @param symbol The cryptocurrency symbol
+     * @param priceScale Scale of the price, ask and bid units
+     * @param price The current price in units of 10^-priceScale
+     * @param askPrice The current ask price, or FixedPoint.NONE
+     * @param bidPrice The current bid price, or FixedPoint.NONE
+     * @param volumeScale Scale of the volume units
+     * @param volume24h The 24-hour trading volume in units of 10^-volumeScale, or FixedPoint.NONE
+     * @param epochNanos The timestamp of the update in nanoseconds since the epoch
+     * @return The updated cryptocurrency price data
+     */
+    CryptoPrice updatePrice(String symbol, int priceScale, long price, long askPrice,
+                           long bidPrice, int volumeScale, long volume24h, long epochNanos);
+
+    /**
+     * Like the fixed-point updatePrice, but only applied if no price at least as recent as
+     * epochNanos is cached. The check and the update are one atomic step, so a price that
+     * arrives concurrently is never overwritten by an older one.
+     * @return The updated cryptocurrency price data, or null if a newer price was kept
+     */
+    CryptoPrice updatePriceIfNewer(String symbol, int priceScale, long price, long askPrice,
+                                   long bidPrice, int volumeScale, long volume24h, long epochNanos);
+    
+    /**
+     * Register a listener that is notified after every price update
+     * @param listener The listener to register
+     */
+    void addPriceUpdateListener(PriceUpdateListener listener);
 }
@@ -0,0 +1,104 @@
+package com.example.crypto_task_backend.service;
+
+import com.example.crypto_task_backend.util.FixedPoint;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Price and volume scale (number of decimal places) per cryptocurrency pair.
+ * Ticks are stored as longs at these scales. Pairs without a registered price scale use a
+ * default wide enough for every Kraken USD pair. A pair without a registered volume scale
+ * gets one fitted to its first volume, since the 24h volume of low-priced pairs would
+ * overflow a long at the default scale.
+ */
+@Component
+public class PriceScaleRegistry {
+
+    public static final int DEFAULT_PRICE_SCALE = 8;
+
+    // Digits kept free above the first volume seen, so a fitted scale survives 1000-fold growth
+    private static final int VOLUME_HEADROOM_DIGITS = 3;
+
+    private final Map<String, Integer> priceScales = new ConcurrentHashMap<>();
+    private final Map<String, Integer> volumeScales = new ConcurrentHashMap<>();
+
+    /**
+     * @param configuredScales Comma-separated pair:scale entries, e.g. "XBT/USD:1,ETH/USD:2"
+     * @param configuredVolumeScales Comma-separated pair:scale entries, e.g. "SHIB/USD:2"
+     */
+    public PriceScaleRegistry(@Value("${crypto.price.scales:}") String configuredScales,
+                              @Value("${crypto.volume.scales:}") String configuredVolumeScales) {
+        for (String entry : configuredScales.split(",")) {
+            int separator = entry.lastIndexOf(':');
+            if (separator > 0) {
+                register(entry.substring(0, separator).trim(), Integer.parseInt(entry.substring(separator + 1).trim()));
+            }
+        }
+        for (String entry : configuredVolumeScales.split(",")) {
+            int separator = entry.lastIndexOf(':');
+            if (separator > 0) {
+                registerVolumeScale(entry.substring(0, separator).trim(),
+                        Integer.parseInt(entry.substring(separator + 1).trim()));
+            }
+        }
+    }
+
+    /**
+     * Register the price scale for a pair. Should be done before the first tick of the pair
+     * @param pair The cryptocurrency pair (e.g., "XBT/USD")
+     * @param scale Decimal places of the pair's prices
+     */
+    public void register(String pair, int scale) {
+        checkScale(pair, scale);
+        priceScales.put(pair, scale);
+    }
+
+    /**
+     * Register the volume scale for a pair. Should be done before the first tick of the pair
+     * @param pair The cryptocurrency pair (e.g., "SHIB/USD")
+     * @param scale Decimal places of the pair's volumes
+     */
+    public void registerVolumeScale(String pair, int scale) {
+        checkScale(pair, scale);
+        volumeScales.put(pair, scale);
+    }
+
+    private static void checkScale(String pair, int scale) {
+        if (scale < 0 || scale > FixedPoint.MAX_SCALE) {
+            throw new IllegalArgumentException("Unsupported scale " + scale + " for " + pair);
+        }
+    }
+
+    public int priceScale(String pair) {
+        Integer scale = priceScales.get(pair);
+        return scale != null ? scale : DEFAULT_PRICE_SCALE;
+    }
+
+    /**
+     * @return The pair's volume scale, or -1 if it has none yet
+     */
+    public int volumeScale(String pair) {
+        Integer scale = volumeScales.get(pair);
+        return scale != null ? scale : -1;
+    }
+
+    /**
+     * Fix the volume scale of a pair from its first volume: the default scale, lowered
+     * until the volume could grow 1000-fold without overflowing a long
+     * @param integerDigits Digits before the decimal point of the volume
+     * @return The pair's volume scale, which an earlier registration or fit takes precedence over
+     */
+    public int fitVolumeScale(String pair, int integerDigits) {
+        Integer scale = volumeScales.get(pair);
+        if (scale != null) {
+            return scale;
+        }
+        int fitted = Math.max(0, Math.min(FixedPoint.VOLUME_SCALE,
+                FixedPoint.MAX_DIGITS - integerDigits - VOLUME_HEADROOM_DIGITS));
+        Integer previous = volumeScales.putIfAbsent(pair, fitted);
+        return previous != null ? previous : fitted;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.crypto_task_backend.service;
+
+import com.example.crypto_task_backend.model.CryptoPrice;
+
+/**
+ * Callback for components that react to price updates (broadcast, analytics, persistence).
+ * Invoked synchronously on the ingest thread, so implementations must not block.
+ */
+@FunctionalInterface
+public interface PriceUpdateListener {
+
+    /**
+     * Called after the price cache has been updated
+     * @param price The updated cryptocurrency price data
+     */
+    void onPriceUpdate(CryptoPrice price);
+}
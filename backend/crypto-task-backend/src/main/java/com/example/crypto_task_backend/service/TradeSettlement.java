@@ -0,0 +1,46 @@
+package com.example.crypto_task_backend.service;
+
+import com.example.crypto_task_backend.dto.CryptoBalance;
+import com.example.crypto_task_backend.model.Transaction;
+import com.example.crypto_task_backend.model.User;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Moves cash and crypto for priced trades and owns the account balances they change.
+ * The implementation is chosen with crypto.trade.settlement.
+ */
+public interface TradeSettlement {
+
+    /**
+     * Debit the cost, credit the quantity and record the trade
+     * @throws RuntimeException If the cash balance does not cover the cost
+     */
+    Transaction buy(User user, String symbol, BigDecimal quantity, BigDecimal price, BigDecimal totalCost);
+
+    /**
+     * Debit the quantity, credit the proceeds and record the trade
+     * @throws RuntimeException If the crypto balance does not cover the quantity
+     */
+    Transaction sell(User user, String symbol, BigDecimal quantity, BigDecimal price, BigDecimal totalValue);
+
+    BigDecimal getCashBalance(User user);
+
+    /**
+     * The user's non-zero crypto balances
+     */
+    List<CryptoBalance> getCryptoBalances(User user);
+
+    /**
+     * Restore the initial cash balance and clear all crypto balances and transactions
+     */
+    void reset(User user);
+
+    /**
+     * Whether trades and resets write the users row, so a cached User is stale afterwards
+     */
+    default boolean writesUserRow() {
+        return true;
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.crypto_task_backend.service;
 
+import com.example.crypto_task_backend.dto.PortfolioValuation;
+import com.example.crypto_task_backend.dto.TransactionPage;
 import com.example.crypto_task_backend.dto.TransactionRequest;
 import com.example.crypto_task_backend.dto.TransactionResponse;
 import com.example.crypto_task_backend.dto.UserHoldingResponse;
@@ -10,6 +12,22 @@ public interface TransactionService {
     TransactionResponse buyCrypto(TransactionRequest request);
     TransactionResponse sellCrypto(TransactionRequest request);
     List<TransactionResponse> getUserTransactions();
+
+    /**
+     * A page of the current user's transactions, newest first, by (transaction_date, id) keyset
+     * @param cursor The previous page's nextCursor, or null for the first page
+     * @param limit Maximum transactions on the page
+     * @throws IllegalArgumentException If the cursor is malformed
+     */
+    TransactionPage getTransactionPage(String cursor, int limit);
+
     List<UserHoldingResponse> getUserHoldings();
+
+    /**
+     * Live valuation of the current user's portfolio, the same payload that is pushed to
+     * /topic/portfolio/{userId}
+     */
+    PortfolioValuation getPortfolioValuation();
+
     void resetUserAccount();
 }
@@ -5,6 +5,18 @@ import java.math.BigDecimal;
 
 public interface UserService {
     User getCurrentUser();
+
+    /**
+     * A user by id, served from the user cache
+     * @throws RuntimeException If the user does not exist
+     */
+    User getUser(Long userId);
+
     User updateUserBalance(Long userId, BigDecimal newBalance);
     BigDecimal getUserBalance();
+
+    /**
+     * Drop a cached user after a committed change to its row
+     */
+    void invalidateUser(Long userId);
 }
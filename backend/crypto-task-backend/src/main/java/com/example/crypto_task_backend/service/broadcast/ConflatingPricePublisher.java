@@ -0,0 +1,173 @@
+package com.example.crypto_task_backend.service.broadcast;
+
+import com.example.crypto_task_backend.dto.PriceDelta;
+import com.example.crypto_task_backend.dto.PriceDeltaBatch;
+import com.example.crypto_task_backend.dto.PriceSnapshotResponse;
+import com.example.crypto_task_backend.model.CryptoPrice;
+import com.example.crypto_task_backend.service.CryptoPriceService;
+import com.example.crypto_task_backend.service.latency.TickLatencyRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Conflates price updates before they are sent to STOMP clients.
+ * Only the latest pending update per symbol is kept; every flush sends one message
+ * per changed symbol topic, a single full list to /topic/prices and one sequenced
+ * batch of changed fields to /topic/prices/delta. Price payloads reuse the
+ * pre-serialized JSON held by the price service.
+ */
+@Component
+public class ConflatingPricePublisher {
+    private static final Logger logger = LoggerFactory.getLogger(ConflatingPricePublisher.class);
+
+    public static final String DELTA_TOPIC = "/topic/prices/delta";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final CryptoPriceService cryptoPriceService;
+    private final TickLatencyRecorder latencyRecorder;
+
+    // Latest update per symbol that has not been flushed yet
+    private final Map<String, CryptoPrice> pending = new ConcurrentHashMap<>();
+
+    // Last flushed value per symbol; guarded by this, together with sequence
+    private final Map<String, CryptoPrice> published = new HashMap<>();
+    private long sequence;
+
+    @Autowired
+    public ConflatingPricePublisher(SimpMessagingTemplate messagingTemplate,
+                                    CryptoPriceService cryptoPriceService,
+                                    TickLatencyRecorder latencyRecorder) {
+        this.messagingTemplate = messagingTemplate;
+        this.cryptoPriceService = cryptoPriceService;
+        this.latencyRecorder = latencyRecorder;
+        cryptoPriceService.addPriceUpdateListener(this::onPriceUpdate);
+    }
+
+    /**
+     * Record the latest update for a symbol, replacing any pending one
+     * @param price The updated price
+     */
+    public void onPriceUpdate(CryptoPrice price) {
+        pending.put(price.getSymbol(), price);
+    }
+
+    /**
+     * Send all pending updates, at most one message per topic
+     */
+    @Scheduled(fixedDelayString = "${crypto.broadcast.flush.interval:100}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<PriceDelta> deltas = new ArrayList<>();
+        for (String symbol : pending.keySet()) {
+            CryptoPrice update = pending.remove(symbol);
+            if (update == null) {
+                continue;
+            }
+            PriceDelta delta = diff(published.put(symbol, update), update);
+            if (delta != null) {
+                deltas.add(delta);
+                sendJson("/topic/prices/" + symbol, cryptoPriceService.getPriceJson(symbol));
+                latencyRecorder.recordPublished(update);
+            }
+        }
+
+        if (!deltas.isEmpty()) {
+            sequence++;
+            messagingTemplate.convertAndSend(DELTA_TOPIC, new PriceDeltaBatch(sequence, deltas));
+            sendJson("/topic/prices", cryptoPriceService.getAllPricesJson());
+            logger.debug("Flushed {} conflated price updates at sequence {}", deltas.size(), sequence);
+        }
+    }
+
+    /**
+     * Send bytes that are already serialized JSON, bypassing the broker's message converter
+     */
+    private void sendJson(String destination, byte[] json) {
+        if (json == null) {
+            return;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+        messagingTemplate.send(destination, MessageBuilder.createMessage(json, accessor.getMessageHeaders()));
+    }
+
+    /**
+     * Full published state and the delta sequence it corresponds to
+     * @return Snapshot of all published prices
+     */
+    public synchronized PriceSnapshotResponse snapshot() {
+        return new PriceSnapshotResponse(sequence, new ArrayList<>(published.values()));
+    }
+
+    /**
+     * Build a delta carrying only the fields that changed since the previous value
+     * @return The delta, or null if nothing changed
+     */
+    private static PriceDelta diff(CryptoPrice previous, CryptoPrice current) {
+        if (previous == current) {
+            return null;
+        }
+        PriceDelta delta = new PriceDelta(current.getSymbol());
+        boolean changed = false;
+        if (previous == null || !Objects.equals(previous.getName(), current.getName())) {
+            delta.setName(current.getName());
+            changed = true;
+        }
+        // Compare fixed-point units; BigDecimal values are only materialized for changed fields
+        boolean rescaled = previous != null && previous.priceScale() != current.priceScale();
+        if (previous == null || rescaled || previous.priceUnits() != current.priceUnits()) {
+            setOrClear(delta, "price", current.getPrice(), delta::setPrice);
+            changed = true;
+        }
+        if (previous == null || rescaled || previous.askUnits() != current.askUnits()) {
+            setOrClear(delta, "askPrice", current.getAskPrice(), delta::setAskPrice);
+            changed = true;
+        }
+        if (previous == null || rescaled || previous.bidUnits() != current.bidUnits()) {
+            setOrClear(delta, "bidPrice", current.getBidPrice(), delta::setBidPrice);
+            changed = true;
+        }
+        if (previous == null || previous.volumeUnits() != current.volumeUnits()
+                || previous.volumeScale() != current.volumeScale()) {
+            setOrClear(delta, "volume24h", current.getVolume24h(), delta::setVolume24h);
+            changed = true;
+        }
+        if (changed) {
+            delta.setLastUpdated(current.getLastUpdated());
+            return delta;
+        }
+        return null;
+    }
+
+    /**
+     * Set a changed field, or name it in cleared when it changed to no value, since a
+     * null field is omitted from the delta and would read as unchanged
+     */
+    private static void setOrClear(PriceDelta delta, String field, BigDecimal value, Consumer<BigDecimal> setter) {
+        if (value != null) {
+            setter.accept(value);
+        } else {
+            delta.clear(field);
+        }
+    }
+}
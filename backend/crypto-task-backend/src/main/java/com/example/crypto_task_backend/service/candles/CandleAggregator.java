@@ -0,0 +1,91 @@
+package com.example.crypto_task_backend.service.candles;
+
+import com.example.crypto_task_backend.dto.Candle;
+import com.example.crypto_task_backend.model.CryptoPrice;
+import com.example.crypto_task_backend.service.CryptoPriceService;
+import com.example.crypto_task_backend.util.EpochNanos;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds OHLCV candles at every {@link CandleResolution} from the live tick stream.
+ * Each tick does constant work per resolution. On every flush, candles that closed are
+ * sent once to /topic/candles/{symbol}/{res} with closed=true, followed by at most one
+ * conflated update of each in-progress candle that changed.
+ */
+@Component
+public class CandleAggregator {
+    private static final Logger logger = LoggerFactory.getLogger(CandleAggregator.class);
+
+    public static final String TOPIC_PREFIX = "/topic/candles/";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final int retained;
+    private final Map<String, CandleSeries> series = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CandleAggregator(SimpMessagingTemplate messagingTemplate,
+                            CryptoPriceService cryptoPriceService,
+                            @Value("${crypto.candles.retained:500}") int retained) {
+        this.messagingTemplate = messagingTemplate;
+        this.retained = retained;
+        cryptoPriceService.addPriceUpdateListener(this::onPriceUpdate);
+    }
+
+    public void onPriceUpdate(CryptoPrice price) {
+        series.computeIfAbsent(price.getSymbol(), symbol -> new CandleSeries(symbol, retained))
+                .onTick(System.currentTimeMillis(), EpochNanos.toEpochMillis(price.epochNanos()), price.priceScale(),
+                        price.priceUnits(), price.volumeScale(), price.volumeUnits());
+    }
+
+    /**
+     * Close candles expired on their tick clock and publish closed and changed
+     * in-progress candles
+     */
+    @Scheduled(fixedDelayString = "${crypto.candles.flush.interval:250}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        for (CandleSeries candles : series.values()) {
+            candles.closeExpired(now);
+            candles.drain(this::send, this::send);
+        }
+    }
+
+    private void send(Candle candle) {
+        messagingTemplate.convertAndSend(TOPIC_PREFIX + candle.getSymbol() + "/" + candle.getResolution(), candle);
+        if (candle.isClosed() && logger.isDebugEnabled()) {
+            logger.debug("Published closed {} candle for {} at {}", candle.getResolution(),
+                    candle.getSymbol(), candle.getOpenTime());
+        }
+    }
+
+    /**
+     * Most recent candles of a symbol, oldest first; the last one may still be in progress
+     * @param symbol The cryptocurrency symbol
+     * @param resolution The candle resolution
+     * @param limit Maximum number of candles
+     * @return The candles, or an empty list if the symbol has no ticks
+     */
+    public List<Candle> getCandles(String symbol, CandleResolution resolution, int limit) {
+        CandleSeries candles = series.get(symbol);
+        if (candles == null) {
+            return Collections.emptyList();
+        }
+        candles.closeExpired(System.currentTimeMillis());
+        return candles.recent(resolution, limit);
+    }
+
+    public int getRetained() {
+        return retained;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.crypto_task_backend.service.candles;
+
+/**
+ * Supported candle intervals; buckets are aligned to the epoch (UTC)
+ */
+public enum CandleResolution {
+    S1("1s", 1_000L),
+    M1("1m", 60_000L),
+    M5("5m", 300_000L),
+    H1("1h", 3_600_000L),
+    D1("1d", 86_400_000L);
+
+    private final String code;
+    private final long millis;
+
+    CandleResolution(String code, long millis) {
+        this.code = code;
+        this.millis = millis;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * Start of the bucket containing a time
+     */
+    public long bucketStart(long epochMillis) {
+        return epochMillis - Math.floorMod(epochMillis, millis);
+    }
+
+    /**
+     * Look up a resolution by its code, e.g. "5m"
+     * @return The resolution, or null if the code is unknown
+     */
+    public static CandleResolution fromCode(String code) {
+        for (CandleResolution resolution : values()) {
+            if (resolution.code.equals(code)) {
+                return resolution;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.crypto_task_backend.service.candles;
+
+import com.example.crypto_task_backend.dto.Candle;
+import com.example.crypto_task_backend.util.FixedPoint;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Candles of one symbol at every resolution, updated in place by each tick.
+ * In-progress candles are primitive fields; a Candle object is only created when a
+ * candle closes or is read. Closed candles are queued once for publishing and kept in
+ * a bounded history per resolution.
+ * <p>
+ * Candles close on tick time, not wall-clock time: a candle closes when a tick of a later
+ * bucket arrives, or when the tick clock passes its end. The tick clock is the newest tick
+ * time plus the wall-clock time since that tick arrived, so it follows the wall clock on a
+ * live feed and stands still while the tick journal replays history in a burst.
+ */
+final class CandleSeries {
+
+    private static final CandleResolution[] RESOLUTIONS = CandleResolution.values();
+
+    private final String symbol;
+    private final int retained;
+    private int priceScale = -1;
+    private int volumeScale = -1;
+    private long lastVolume24h = FixedPoint.NONE;
+
+    // In-progress candle per resolution ordinal; openTime NONE means no candle yet
+    private final long[] openTime = new long[RESOLUTIONS.length];
+    private final long[] open = new long[RESOLUTIONS.length];
+    private final long[] high = new long[RESOLUTIONS.length];
+    private final long[] low = new long[RESOLUTIONS.length];
+    private final long[] close = new long[RESOLUTIONS.length];
+    private final long[] volume = new long[RESOLUTIONS.length];
+    private final int[] ticks = new int[RESOLUTIONS.length];
+    private final boolean[] dirty = new boolean[RESOLUTIONS.length];
+    // End of the last closed candle; a late tick never reopens a closed interval
+    private final long[] closedUntil = new long[RESOLUTIONS.length];
+    // Newest tick time and the wall-clock time it arrived at, which drive the tick clock
+    private long newestTick = FixedPoint.NONE;
+    private long newestTickReceived;
+
+    private final List<ArrayDeque<Candle>> history = new ArrayList<>();
+    private final List<Candle> unpublished = new ArrayList<>();
+
+    CandleSeries(String symbol, int retained) {
+        this.symbol = symbol;
+        this.retained = retained;
+        Arrays.fill(openTime, FixedPoint.NONE);
+        for (int i = 0; i < RESOLUTIONS.length; i++) {
+            history.add(new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Fold a tick into every resolution
+     * @param receivedMillis Wall-clock time the tick arrived at
+     * @param epochMillis Tick time
+     * @param scale Scale of the price
+     * @param price Last trade price in units
+     * @param volumeScale Scale of the volume
+     * @param volume24h Rolling 24-hour volume in units, or FixedPoint.NONE
+     */
+    synchronized void onTick(long receivedMillis, long epochMillis, int scale, long price, int volumeScale,
+                             long volume24h) {
+        if (price == FixedPoint.NONE) {
+            return;
+        }
+        if (epochMillis > newestTick) {
+            newestTick = epochMillis;
+            newestTickReceived = receivedMillis;
+        }
+        if (priceScale < 0) {
+            priceScale = scale;
+        } else if (scale != priceScale) {
+            price = FixedPoint.rescale(price, scale, priceScale);
+        }
+        if (volume24h != FixedPoint.NONE) {
+            if (this.volumeScale < 0) {
+                this.volumeScale = volumeScale;
+            } else if (volumeScale != this.volumeScale) {
+                volume24h = FixedPoint.tryRescale(volume24h, volumeScale, this.volumeScale);
+            }
+        }
+
+        // Kraken only reports a rolling 24h volume, so candle volume is the sum of its increases
+        long traded = 0;
+        if (volume24h != FixedPoint.NONE) {
+            if (lastVolume24h != FixedPoint.NONE && volume24h > lastVolume24h) {
+                traded = volume24h - lastVolume24h;
+            }
+            lastVolume24h = volume24h;
+        }
+
+        for (int r = 0; r < RESOLUTIONS.length; r++) {
+            long bucket = Math.max(RESOLUTIONS[r].bucketStart(epochMillis), closedUntil[r]);
+            if (openTime[r] != FixedPoint.NONE && bucket > openTime[r]) {
+                closeCandle(r);
+            }
+            if (openTime[r] == FixedPoint.NONE) {
+                openTime[r] = bucket;
+                open[r] = price;
+                high[r] = price;
+                low[r] = price;
+                volume[r] = 0;
+                ticks[r] = 0;
+            } else {
+                // A late tick from an already closed bucket is folded into the current one
+                high[r] = Math.max(high[r], price);
+                low[r] = Math.min(low[r], price);
+            }
+            close[r] = price;
+            volume[r] += traded;
+            ticks[r]++;
+            dirty[r] = true;
+        }
+    }
+
+    /**
+     * Close candles whose interval has ended on the tick clock without a newer tick
+     * @param nowMillis Current wall-clock time
+     */
+    synchronized void closeExpired(long nowMillis) {
+        if (newestTick == FixedPoint.NONE) {
+            return;
+        }
+        long tickClock = newestTick + Math.max(0, nowMillis - newestTickReceived);
+        for (int r = 0; r < RESOLUTIONS.length; r++) {
+            if (openTime[r] != FixedPoint.NONE && tickClock >= openTime[r] + RESOLUTIONS[r].getMillis()) {
+                closeCandle(r);
+            }
+        }
+    }
+
+    private void closeCandle(int r) {
+        Candle candle = toCandle(r, true);
+        ArrayDeque<Candle> closed = history.get(r);
+        if (closed.size() == retained) {
+            closed.removeFirst();
+        }
+        closed.addLast(candle);
+        unpublished.add(candle);
+        closedUntil[r] = openTime[r] + RESOLUTIONS[r].getMillis();
+        openTime[r] = FixedPoint.NONE;
+        dirty[r] = false;
+    }
+
+    /**
+     * Hand over candles closed since the last call, each exactly once, then the
+     * in-progress candles that changed since the last call
+     */
+    synchronized void drain(Consumer<Candle> closedSink, Consumer<Candle> inProgressSink) {
+        for (Candle candle : unpublished) {
+            closedSink.accept(candle);
+        }
+        unpublished.clear();
+        for (int r = 0; r < RESOLUTIONS.length; r++) {
+            if (dirty[r]) {
+                dirty[r] = false;
+                inProgressSink.accept(toCandle(r, false));
+            }
+        }
+    }
+
+    /**
+     * Most recent candles at a resolution, oldest first, ending with the in-progress one
+     */
+    synchronized List<Candle> recent(CandleResolution resolution, int limit) {
+        int r = resolution.ordinal();
+        ArrayDeque<Candle> closed = history.get(r);
+        boolean hasCurrent = openTime[r] != FixedPoint.NONE;
+        int fromClosed = Math.max(0, Math.min(closed.size(), limit - (hasCurrent ? 1 : 0)));
+        List<Candle> result = new ArrayList<>(fromClosed + 1);
+        int skip = closed.size() - fromClosed;
+        Iterator<Candle> it = closed.iterator();
+        for (int i = 0; it.hasNext(); i++) {
+            Candle candle = it.next();
+            if (i >= skip) {
+                result.add(candle);
+            }
+        }
+        if (hasCurrent && limit > 0) {
+            result.add(toCandle(r, false));
+        }
+        return result;
+    }
+
+    private Candle toCandle(int r, boolean closed) {
+        return new Candle(symbol, RESOLUTIONS[r].getCode(), openTime[r],
+                FixedPoint.toBigDecimal(open[r], priceScale),
+                FixedPoint.toBigDecimal(high[r], priceScale),
+                FixedPoint.toBigDecimal(low[r], priceScale),
+                FixedPoint.toBigDecimal(close[r], priceScale),
+                FixedPoint.toBigDecimal(volume[r], Math.max(volumeScale, 0)),
+                ticks[r], closed);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.crypto_task_backend.service.concurrency;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped locks serializing the trades of one user. A user always maps to the same
+ * stripe, so a balance check and the write that follows it cannot interleave with
+ * another trade of that user, while users on different stripes trade in parallel.
+ * The stripe count bounds memory regardless of the number of users; two users sharing
+ * a stripe only wait on each other, they are never incorrect.
+ */
+@Component
+public class UserLocks {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    @Autowired
+    public UserLocks(@Value("${crypto.trade.lock.stripes:64}") int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Run an action holding the user's stripe; the action's database transaction must
+     * begin and commit inside it
+     */
+    public <T> T withLock(Long userId, Supplier<T> action) {
+        ReentrantLock lock = stripeFor(userId);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void withLock(Long userId, Runnable action) {
+        withLock(userId, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    ReentrantLock stripeFor(Long userId) {
+        long h = userId * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (h ^ (h >>> 32)) & mask];
+    }
+
+    public int getStripes() {
+        return stripes.length;
+    }
+}
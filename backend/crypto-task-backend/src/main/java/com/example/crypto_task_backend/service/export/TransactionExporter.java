@@ -0,0 +1,187 @@
+package com.example.crypto_task_backend.service.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Streams a user's full transaction history as NDJSON or CSV, newest first.
+ * Rows come from a forward-only, read-only JDBC result set and are written as they are
+ * read, so memory stays constant however long the history is. With the default fetch
+ * size of Integer.MIN_VALUE, Connector/J streams rows one at a time; a positive size
+ * needs useCursorFetch=true on the JDBC URL to take effect. The export holds one pool
+ * connection until it finishes.
+ */
+@Component
+public class TransactionExporter {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionExporter.class);
+
+    static final String EXPORT_SQL = "SELECT id, crypto_symbol, transaction_type, amount, price, total_value, "
+            + "transaction_date FROM transactions WHERE user_id = ? ORDER BY transaction_date DESC, id DESC";
+    private static final String CSV_HEADER = "id,cryptoSymbol,transactionType,amount,price,totalValue,transactionDate\n";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * @return The format, or null if the code is not ndjson or csv
+         */
+        public static Format fromCode(String code) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(code)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    @Autowired
+    public TransactionExporter(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                               @Value("${crypto.transactions.export.fetch.size:" + Integer.MIN_VALUE + "}")
+                               int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Write every transaction of a user to a stream
+     * @return The number of transactions written
+     */
+    public long export(Long userId, Format format, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        long[] rows = new long[1];
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        JsonGenerator json = format == Format.NDJSON ? objectMapper.getFactory().createGenerator(writer) : null;
+        if (json != null) {
+            // One object per line, with no separator of Jackson's between them
+            json.setRootValueSeparator(null);
+        } else {
+            writer.write(CSV_HEADER);
+        }
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(EXPORT_SQL,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                statement.setLong(1, userId);
+                return statement;
+            }, resultSet -> {
+                try {
+                    if (json != null) {
+                        writeJson(json, resultSet);
+                    } else {
+                        writeCsv(writer, resultSet);
+                    }
+                    rows[0]++;
+                } catch (IOException e) {
+                    // The client went away; abandon the result set
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (json != null) {
+            json.flush();
+        }
+        writer.flush();
+        logger.info("Exported {} transactions of user ID {} as {} in {} ms", rows[0], userId, format,
+                (System.nanoTime() - started) / 1_000_000);
+        return rows[0];
+    }
+
+    // Same fields and representations as TransactionResponse
+    private static void writeJson(JsonGenerator json, ResultSet row) throws SQLException, IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", row.getLong(1));
+        json.writeStringField("cryptoSymbol", row.getString(2));
+        json.writeStringField("transactionType", row.getString(3));
+        json.writeNumberField("amount", row.getBigDecimal(4));
+        json.writeNumberField("price", row.getBigDecimal(5));
+        json.writeNumberField("totalValue", row.getBigDecimal(6));
+        Timestamp date = row.getTimestamp(7);
+        if (date != null) {
+            json.writeStringField("transactionDate", date.toLocalDateTime().toString());
+        }
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private static void writeCsv(Writer writer, ResultSet row) throws SQLException, IOException {
+        writer.write(Long.toString(row.getLong(1)));
+        writer.write(',');
+        writeCsvField(writer, row.getString(2));
+        writer.write(',');
+        writer.write(row.getString(3));
+        writer.write(',');
+        writeDecimal(writer, row.getBigDecimal(4));
+        writer.write(',');
+        writeDecimal(writer, row.getBigDecimal(5));
+        writer.write(',');
+        writeDecimal(writer, row.getBigDecimal(6));
+        writer.write(',');
+        Timestamp date = row.getTimestamp(7);
+        if (date != null) {
+            writer.write(date.toLocalDateTime().toString());
+        }
+        writer.write('\n');
+    }
+
+    private static void writeDecimal(Writer writer, BigDecimal value) throws IOException {
+        if (value != null) {
+            writer.write(value.toPlainString());
+        }
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
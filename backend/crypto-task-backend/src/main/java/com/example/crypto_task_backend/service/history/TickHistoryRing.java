@@ -0,0 +1,147 @@
+package com.example.crypto_task_backend.service.history;
+
+import com.example.crypto_task_backend.util.FixedPoint;
+
+/**
+ * Fixed-capacity tick history for one symbol, held in parallel primitive arrays.
+ * Once full, each new tick overwrites the oldest one. Timestamps are kept non-decreasing
+ * so a time range is located by binary search and only the matching ticks are visited.
+ */
+public final class TickHistoryRing {
+
+    /**
+     * Receives ticks in time order; prices are at the ring's price scale
+     */
+    @FunctionalInterface
+    public interface TickVisitor {
+        void onTick(long epochNanos, long price, long bid, long ask, long volume);
+    }
+
+    private final long[] times;
+    private final long[] prices;
+    private final long[] bids;
+    private final long[] asks;
+    private final long[] volumes;
+    private final int capacity;
+
+    // Total ticks ever appended; the oldest retained tick is at logical index max(0, count - capacity)
+    private long count;
+    private int priceScale = -1;
+    private int volumeScale = -1;
+
+    public TickHistoryRing(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("History capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.times = new long[capacity];
+        this.prices = new long[capacity];
+        this.bids = new long[capacity];
+        this.asks = new long[capacity];
+        this.volumes = new long[capacity];
+    }
+
+    /**
+     * Append a tick, overwriting the oldest one when full.
+     * The price scale is fixed by the first tick and the volume scale by the first volume;
+     * later ticks at another scale are rescaled, and a volume that then no longer fits
+     * is dropped. A timestamp older than the newest retained tick is clamped to it.
+     */
+    public synchronized void append(long epochNanos, int scale, long price, long bid, long ask,
+                                    int volumeScale, long volume) {
+        if (priceScale < 0) {
+            priceScale = scale;
+        } else if (scale != priceScale) {
+            price = FixedPoint.rescale(price, scale, priceScale);
+            bid = FixedPoint.rescale(bid, scale, priceScale);
+            ask = FixedPoint.rescale(ask, scale, priceScale);
+        }
+        if (volume != FixedPoint.NONE) {
+            if (this.volumeScale < 0) {
+                this.volumeScale = volumeScale;
+            } else if (volumeScale != this.volumeScale) {
+                volume = FixedPoint.tryRescale(volume, volumeScale, this.volumeScale);
+            }
+        }
+        if (count > 0) {
+            epochNanos = Math.max(epochNanos, times[slot(count - 1)]);
+        }
+        int slot = slot(count);
+        times[slot] = epochNanos;
+        prices[slot] = price;
+        bids[slot] = bid;
+        asks[slot] = ask;
+        volumes[slot] = volume;
+        count++;
+    }
+
+    /**
+     * Visit every retained tick with fromNanos <= time <= toNanos, oldest first
+     * @return Number of ticks visited
+     */
+    public synchronized int range(long fromNanos, long toNanos, TickVisitor visitor) {
+        if (count == 0 || fromNanos > toNanos) {
+            return 0;
+        }
+        long first = Math.max(0, count - capacity);
+        long start = lowerBound(first, count, fromNanos);
+        int visited = 0;
+        for (long i = start; i < count; i++) {
+            int slot = slot(i);
+            if (times[slot] > toNanos) {
+                break;
+            }
+            visitor.onTick(times[slot], prices[slot], bids[slot], asks[slot], volumes[slot]);
+            visited++;
+        }
+        return visited;
+    }
+
+    /**
+     * First logical index in [low, high) whose time is >= target
+     */
+    private long lowerBound(long low, long high, long target) {
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (times[slot(mid)] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int slot(long index) {
+        return (int) (index % capacity);
+    }
+
+    public synchronized int size() {
+        return (int) Math.min(count, capacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Scale of the stored prices, or -1 before the first tick
+     */
+    public synchronized int priceScale() {
+        return priceScale;
+    }
+
+    /**
+     * Scale of the stored volumes, or -1 before the first volume
+     */
+    public synchronized int volumeScale() {
+        return volumeScale;
+    }
+
+    /**
+     * Time of the oldest retained tick, or FixedPoint.NONE when empty
+     */
+    public synchronized long oldestTime() {
+        return count == 0 ? FixedPoint.NONE : times[slot(Math.max(0, count - capacity))];
+    }
+}
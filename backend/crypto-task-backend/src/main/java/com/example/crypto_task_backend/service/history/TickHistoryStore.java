@@ -0,0 +1,89 @@
+package com.example.crypto_task_backend.service.history;
+
+import com.example.crypto_task_backend.dto.PriceHistoryResponse;
+import com.example.crypto_task_backend.dto.PricePoint;
+import com.example.crypto_task_backend.model.CryptoPrice;
+import com.example.crypto_task_backend.service.CryptoPriceService;
+import com.example.crypto_task_backend.util.EpochNanos;
+import com.example.crypto_task_backend.util.FixedPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records every price update into a per-symbol {@link TickHistoryRing}.
+ * Each ring holds crypto.history.capacity ticks (40 bytes per tick), so memory per
+ * symbol is fixed regardless of tick rate.
+ */
+@Component
+public class TickHistoryStore {
+    private static final Logger logger = LoggerFactory.getLogger(TickHistoryStore.class);
+
+    private final int capacity;
+    private final Map<String, TickHistoryRing> rings = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TickHistoryStore(CryptoPriceService cryptoPriceService,
+                            @Value("${crypto.history.capacity:16384}") int capacity) {
+        this.capacity = capacity;
+        cryptoPriceService.addPriceUpdateListener(this::onPriceUpdate);
+        logger.info("Tick history enabled: {} ticks per symbol", capacity);
+    }
+
+    public void onPriceUpdate(CryptoPrice price) {
+        ring(price.getSymbol()).append(price.epochNanos(), price.priceScale(), price.priceUnits(),
+                price.bidUnits(), price.askUnits(), price.volumeScale(), price.volumeUnits());
+    }
+
+    /**
+     * Ring for a symbol, created on first use
+     */
+    public TickHistoryRing ring(String symbol) {
+        return rings.computeIfAbsent(symbol, s -> new TickHistoryRing(capacity));
+    }
+
+    /**
+     * Visit the recorded ticks of a symbol within a time range
+     * @return Number of ticks visited, 0 if the symbol has no history
+     */
+    public int range(String symbol, long fromNanos, long toNanos, TickHistoryRing.TickVisitor visitor) {
+        TickHistoryRing ring = rings.get(symbol);
+        return ring != null ? ring.range(fromNanos, toNanos, visitor) : 0;
+    }
+
+    /**
+     * Get the recorded ticks of a symbol within a time range
+     * @param symbol The cryptocurrency symbol
+     * @param fromMillis Start of the range in epoch milliseconds, inclusive
+     * @param toMillis End of the range in epoch milliseconds, inclusive
+     * @return The ticks in time order, or null if the symbol has no history
+     */
+    public PriceHistoryResponse getHistory(String symbol, long fromMillis, long toMillis) {
+        TickHistoryRing ring = rings.get(symbol);
+        if (ring == null) {
+            return null;
+        }
+        int scale = ring.priceScale();
+        int volumeScale = Math.max(ring.volumeScale(), 0);
+        List<PricePoint> ticks = new ArrayList<>();
+        ring.range(EpochNanos.fromEpochMillis(fromMillis), EpochNanos.fromEpochMillis(toMillis) + 999_999L,
+                (time, price, bid, ask, volume) -> ticks.add(new PricePoint(
+                        EpochNanos.toEpochMillis(time),
+                        FixedPoint.toBigDecimal(price, scale),
+                        FixedPoint.toBigDecimal(bid, scale),
+                        FixedPoint.toBigDecimal(ask, scale),
+                        FixedPoint.toBigDecimal(volume, volumeScale))));
+        return new PriceHistoryResponse(symbol, fromMillis, toMillis, ticks);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
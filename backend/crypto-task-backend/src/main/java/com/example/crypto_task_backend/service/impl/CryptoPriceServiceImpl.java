@@ -1,20 +1,26 @@
 package com.example.crypto_task_backend.service.impl;
 
 import com.example.crypto_task_backend.model.CryptoPrice;
+import com.example.crypto_task_backend.model.PriceTable;
 import com.example.crypto_task_backend.service.CryptoPairService;
 import com.example.crypto_task_backend.service.CryptoPriceService;
+import com.example.crypto_task_backend.service.PriceScaleRegistry;
+import com.example.crypto_task_backend.service.PriceUpdateListener;
+import com.example.crypto_task_backend.util.EpochNanos;
+import com.example.crypto_task_backend.util.FixedPoint;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Implementation of the CryptoPriceService
@@ -25,39 +31,37 @@ import java.util.concurrent.ConcurrentHashMap;
 public class CryptoPriceServiceImpl implements CryptoPriceService {
     private static final Logger logger = LoggerFactory.getLogger(CryptoPriceServiceImpl.class);
     
-    // In-memory cache for quick access to latest prices
-    private final Map<String, CryptoPrice> priceCache = new ConcurrentHashMap<>();
+    // In-memory cache for quick access to latest prices.
+    // Each update swaps in a new immutable table, giving readers lock-free point-in-time views.
+    private final AtomicReference<PriceTable> priceCache = new AtomicReference<>(PriceTable.EMPTY);
+    
+    // Serialized views, regenerated once per table or price instance
+    private final PriceSnapshotCache snapshotCache;
+    
+    // Broadcast, analytics and persistence hooks, notified after each cache update
+    private final List<PriceUpdateListener> listeners = new CopyOnWriteArrayList<>();
     
-    private final SimpMessagingTemplate messagingTemplate;
     private final CryptoPairService cryptoPairService;
+    private final PriceScaleRegistry priceScaleRegistry;
 
     @Autowired
-    public CryptoPriceServiceImpl(SimpMessagingTemplate messagingTemplate,
-                                 CryptoPairService cryptoPairService) {
-        this.messagingTemplate = messagingTemplate;
+    public CryptoPriceServiceImpl(CryptoPairService cryptoPairService, PriceScaleRegistry priceScaleRegistry,
+                                  ObjectMapper objectMapper) {
         this.cryptoPairService = cryptoPairService;
+        this.priceScaleRegistry = priceScaleRegistry;
+        this.snapshotCache = new PriceSnapshotCache(objectMapper);
     }
 
     @Override
     public List<CryptoPrice> getAllPrices() {
-        List<CryptoPrice> prices = new ArrayList<>(priceCache.values());
-        logger.info("Getting all prices from cache, found {} prices", prices.size());
-        
-        // Log the first few prices for debugging
-        if (!prices.isEmpty()) {
-            int limit = Math.min(3, prices.size());
-            for (int i = 0; i < limit; i++) {
-                CryptoPrice price = prices.get(i);
-                logger.info("Sample price {}: {} = {}", i+1, price.getSymbol(), price.getPrice());
-            }
-        }
-        
+        List<CryptoPrice> prices = priceCache.get().getPrices();
+        logger.debug("Getting all prices from cache, found {} prices", prices.size());
         return prices;
     }
 
     @Override
     public CryptoPrice getPriceBySymbol(String symbol) {
-        CryptoPrice price = priceCache.get(symbol);
+        CryptoPrice price = priceCache.get().get(symbol);
         if (price != null) {
             logger.debug("Found price for {} in cache: {}", symbol, price.getPrice());
         } else {
@@ -66,37 +70,94 @@ public class CryptoPriceServiceImpl implements CryptoPriceService {
         return price;
     }
 
+    @Override
+    public PriceTable getPriceTable() {
+        return priceCache.get();
+    }
+
+    @Override
+    public byte[] getAllPricesJson() {
+        return snapshotCache.get("all", priceCache.get(), PriceTable::getPrices);
+    }
+
+    @Override
+    public byte[] getPriceJson(String symbol) {
+        CryptoPrice price = priceCache.get().get(symbol);
+        if (price == null) {
+            return null;
+        }
+        return snapshotCache.get(symbol, price, current -> current);
+    }
+
+    @Override
+    public byte[] getLatestPricesJson() {
+        return snapshotCache.get("latest", priceCache.get(), table -> {
+            Map<String, Double> latest = new LinkedHashMap<>();
+            for (CryptoPrice price : table.getPrices()) {
+                latest.put(price.getSymbol(), FixedPoint.toDouble(price.priceUnits(), price.priceScale()));
+            }
+            return latest;
+        });
+    }
+
     @Override
     public CryptoPrice updatePrice(String symbol, BigDecimal price, BigDecimal askPrice, 
                                   BigDecimal bidPrice, BigDecimal volume24h, LocalDateTime lastUpdated) {
+        int scale = priceScaleRegistry.priceScale(symbol);
+        int volumeScale = volume24h != null
+                ? priceScaleRegistry.fitVolumeScale(symbol, volume24h.precision() - volume24h.scale())
+                : FixedPoint.VOLUME_SCALE;
+        // Only the price is required; an ask, bid or volume out of range is dropped on its own
+        return updatePrice(symbol, scale,
+                FixedPoint.fromBigDecimal(price, scale),
+                FixedPoint.tryFromBigDecimal(askPrice, scale),
+                FixedPoint.tryFromBigDecimal(bidPrice, scale),
+                volumeScale,
+                FixedPoint.tryFromBigDecimal(volume24h, volumeScale),
+                lastUpdated != null ? EpochNanos.fromLocalDateTime(lastUpdated) : EpochNanos.now());
+    }
+
+    @Override
+    public CryptoPrice updatePrice(String symbol, int priceScale, long price, long askPrice,
+                                  long bidPrice, int volumeScale, long volume24h, long epochNanos) {
+        return update(symbol, priceScale, price, askPrice, bidPrice, volumeScale, volume24h, epochNanos, false);
+    }
+
+    @Override
+    public CryptoPrice updatePriceIfNewer(String symbol, int priceScale, long price, long askPrice,
+                                          long bidPrice, int volumeScale, long volume24h, long epochNanos) {
+        return update(symbol, priceScale, price, askPrice, bidPrice, volumeScale, volume24h, epochNanos, true);
+    }
+
+    /**
+     * @param onlyIfNewer Leave the cache untouched if the cached price is at least as recent
+     * @return The new price, or null if it was not applied
+     */
+    private CryptoPrice update(String symbol, int priceScale, long price, long askPrice, long bidPrice,
+                               int volumeScale, long volume24h, long epochNanos, boolean onlyIfNewer) {
         try {
-            // Create or update price data
-            CryptoPrice cryptoPrice = priceCache.getOrDefault(symbol, 
-                CryptoPrice.builder()
-                    .symbol(symbol)
-                    .name(cryptoPairService.getCryptoName(symbol))
-                    .build());
-            
-            // Update price data
-            cryptoPrice.setPrice(price);
-            cryptoPrice.setAskPrice(askPrice);
-            cryptoPrice.setBidPrice(bidPrice);
-            cryptoPrice.setVolume24h(volume24h);
-            cryptoPrice.setLastUpdated(lastUpdated);
-            
-            // Update cache
-            priceCache.put(symbol, cryptoPrice);
-            logger.info("Updated price in cache for {}: {}", symbol, price);
-            
-            // Send update to WebSocket clients for this specific symbol
-            messagingTemplate.convertAndSend("/topic/prices/" + symbol, cryptoPrice);
-            logger.debug("Sent price update for {} to WebSocket clients", symbol);
+            CryptoPrice cryptoPrice;
+            PriceTable current;
+            PriceTable next;
+            do {
+                current = priceCache.get();
+                CryptoPrice previous = current.get(symbol);
+                if (onlyIfNewer && previous != null && previous.epochNanos() >= epochNanos) {
+                    return null;
+                }
+                // Build a new immutable value; entries already published are never modified
+                String name = previous != null ? previous.getName() : cryptoPairService.getCryptoName(symbol);
+                cryptoPrice = new CryptoPrice(symbol, name, priceScale, price, askPrice, bidPrice, volumeScale,
+                        volume24h, epochNanos);
+                next = current.with(cryptoPrice);
+            } while (!priceCache.compareAndSet(current, next));
+            if (logger.isDebugEnabled()) {
+                logger.debug("Updated price in cache for {}: {} (version {})", symbol, cryptoPrice.getPrice(), next.getVersion());
+            }
             
-            // Periodically send full price list to all clients
-            if (priceCache.size() % 5 == 0 || priceCache.size() <= 5) { // Send more frequently when we have few prices
-                List<CryptoPrice> allPrices = new ArrayList<>(priceCache.values());
-                messagingTemplate.convertAndSend("/topic/prices", allPrices);
-                logger.info("Sent full price list ({} items) to WebSocket clients", allPrices.size());
+            // Notify broadcast and other listeners
+            for (PriceUpdateListener listener : listeners) {
+                listener.onPriceUpdate(cryptoPrice);
             }
             
             return cryptoPrice;
@@ -105,4 +166,9 @@ public class CryptoPriceServiceImpl implements CryptoPriceService {
             throw e;
         }
     }
+
+    @Override
+    public void addPriceUpdateListener(PriceUpdateListener listener) {
+        listeners.add(listener);
+    }
 }
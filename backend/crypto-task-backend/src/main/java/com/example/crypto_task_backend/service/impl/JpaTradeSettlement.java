@@ -0,0 +1,141 @@
+package com.example.crypto_task_backend.service.impl;
+
+import com.example.crypto_task_backend.dto.CryptoBalance;
+import com.example.crypto_task_backend.model.Transaction;
+import com.example.crypto_task_backend.model.User;
+import com.example.crypto_task_backend.model.UserBalance;
+import com.example.crypto_task_backend.repository.TransactionRepository;
+import com.example.crypto_task_backend.repository.UserBalanceRepository;
+import com.example.crypto_task_backend.repository.UserRepository;
+import com.example.crypto_task_backend.service.TradeSettlement;
+import com.example.crypto_task_backend.service.UserBalanceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Default settlement: loads and saves the user, balance and transaction entities in one
+ * JPA transaction per trade
+ */
+@Service
+@ConditionalOnProperty(name = "crypto.trade.settlement", havingValue = "jpa", matchIfMissing = true)
+public class JpaTradeSettlement implements TradeSettlement {
+    private static final Logger logger = LoggerFactory.getLogger(JpaTradeSettlement.class);
+
+    static final BigDecimal INITIAL_BALANCE = new BigDecimal("10000.00");
+
+    private final UserRepository userRepository;
+    private final UserBalanceService userBalanceService;
+    private final UserBalanceRepository userBalanceRepository;
+    private final TransactionRepository transactionRepository;
+
+    @Autowired
+    public JpaTradeSettlement(UserRepository userRepository,
+                              UserBalanceService userBalanceService,
+                              UserBalanceRepository userBalanceRepository,
+                              TransactionRepository transactionRepository) {
+        this.userRepository = userRepository;
+        this.userBalanceService = userBalanceService;
+        this.userBalanceRepository = userBalanceRepository;
+        this.transactionRepository = transactionRepository;
+    }
+
+    @Override
+    @Transactional
+    public Transaction buy(User user, String symbol, BigDecimal quantity, BigDecimal price, BigDecimal totalCost) {
+        User account = loadUser(user.getId());
+        
+        // Verify the user has enough balance
+        if (account.getBalance().compareTo(totalCost) < 0) {
+            throw new RuntimeException("Insufficient balance to complete this purchase");
+        }
+        
+        // Update user's USD balance
+        updateCashBalance(account, account.getBalance().subtract(totalCost));
+        
+        // Update user's crypto balance
+        userBalanceService.updateUserCryptoBalance(account, symbol, quantity);
+        
+        return transactionRepository.save(
+                new Transaction(account, symbol, Transaction.TransactionType.BUY, quantity, price, totalCost));
+    }
+
+    @Override
+    @Transactional
+    public Transaction sell(User user, String symbol, BigDecimal quantity, BigDecimal price, BigDecimal totalValue) {
+        User account = loadUser(user.getId());
+        
+        // Check if user has enough crypto balance to sell
+        BigDecimal currentCryptoBalance = userBalanceService.getUserCryptoBalance(account, symbol);
+        if (currentCryptoBalance.compareTo(quantity) < 0) {
+            throw new RuntimeException("Insufficient " + symbol + " balance to complete this sale");
+        }
+        
+        // Update user's USD balance (add the sale value)
+        updateCashBalance(account, account.getBalance().add(totalValue));
+        
+        // Update user's crypto balance (subtract the sold amount)
+        userBalanceService.updateUserCryptoBalance(account, symbol, quantity.negate());
+        
+        return transactionRepository.save(
+                new Transaction(account, symbol, Transaction.TransactionType.SELL, quantity, price, totalValue));
+    }
+
+    /**
+     * The user as of this transaction; the caller's copy may predate a concurrent trade
+     */
+    private User loadUser(Long userId) {
+        return userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+
+    private void updateCashBalance(User user, BigDecimal newBalance) {
+        logger.info("Updating balance for user ID {} to {}", user.getId(), newBalance);
+        user.setBalance(newBalance);
+        userRepository.save(user);
+    }
+
+    /**
+     * The balance of the caller's user, which is current: cached users are invalidated
+     * after every trade
+     */
+    @Override
+    public BigDecimal getCashBalance(User user) {
+        return user.getBalance();
+    }
+
+    @Override
+    public List<CryptoBalance> getCryptoBalances(User user) {
+        return userBalanceRepository.findHeldBalances(user.getId());
+    }
+
+    @Override
+    @Transactional
+    public void reset(User user) {
+        // Reset USD balance to initial value of $10,000
+        updateCashBalance(loadUser(user.getId()), INITIAL_BALANCE);
+        logger.info("Reset balance to ${} for user ID {}", INITIAL_BALANCE, user.getId());
+        
+        // Delete all transactions
+        List<Transaction> transactions = transactionRepository.findByUserOrderByTransactionDateDesc(user);
+        if (!transactions.isEmpty()) {
+            transactionRepository.deleteAll(transactions);
+            logger.info("Deleted {} transactions", transactions.size());
+        }
+        
+        // Clear all crypto balances
+        List<UserBalance> balances = userBalanceService.getUserBalances(user);
+        for (UserBalance balance : balances) {
+            if (balance.getBalance().compareTo(BigDecimal.ZERO) > 0) {
+                userBalanceService.updateUserCryptoBalance(user, balance.getCryptoSymbol(), balance.getBalance().negate());
+                logger.info("Reset balance for {} to zero", balance.getCryptoSymbol());
+            }
+        }
+    }
+}
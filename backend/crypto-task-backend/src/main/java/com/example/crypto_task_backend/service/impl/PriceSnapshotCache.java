@@ -0,0 +1,60 @@
+package com.example.crypto_task_backend.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Cache of serialized price views.
+ * Each view is keyed by the immutable object it was serialized from (a price table or
+ * a single price), so it is serialized at most once per update and the same bytes are
+ * then written by every REST response and broker send.
+ */
+class PriceSnapshotCache {
+
+    private static final class Entry {
+        final Object source;
+        final byte[] json;
+
+        Entry(Object source, byte[] json) {
+            this.source = source;
+            this.json = json;
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    PriceSnapshotCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Get the serialized view, regenerating it if it was built from a different source
+     * @param key The view name
+     * @param source The immutable value the view is derived from
+     * @param payload Maps the source to the object to serialize
+     * @return JSON bytes of the view
+     */
+    <T> byte[] get(String key, T source, Function<T, Object> payload) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.source == source) {
+            return entry.json;
+        }
+        // Racing readers may both serialize the same source; either result is valid
+        Entry fresh = new Entry(source, serialize(payload.apply(source)));
+        entries.put(key, fresh);
+        return fresh.json;
+    }
+
+    private byte[] serialize(Object payload) {
+        try {
+            return objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error serializing price snapshot: " + e.getMessage(), e);
+        }
+    }
+}
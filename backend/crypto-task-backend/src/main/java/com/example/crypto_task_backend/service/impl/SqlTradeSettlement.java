@@ -0,0 +1,90 @@
+package com.example.crypto_task_backend.service.impl;
+
+import com.example.crypto_task_backend.dto.CryptoBalance;
+import com.example.crypto_task_backend.model.Transaction;
+import com.example.crypto_task_backend.model.User;
+import com.example.crypto_task_backend.repository.TransactionRepository;
+import com.example.crypto_task_backend.repository.UserBalanceRepository;
+import com.example.crypto_task_backend.repository.UserRepository;
+import com.example.crypto_task_backend.service.TradeSettlement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Settlement with conditional single-statement updates (crypto.trade.settlement=sql).
+ * A trade is three statements in one transaction and loads no entity: a guarded debit
+ * whose row count doubles as the balance check, a credit (an upsert for crypto) and the
+ * transaction insert. The database applies each change atomically, so the result does
+ * not depend on a balance read earlier in the request.
+ */
+@Service
+@ConditionalOnProperty(name = "crypto.trade.settlement", havingValue = "sql")
+public class SqlTradeSettlement implements TradeSettlement {
+    private static final Logger logger = LoggerFactory.getLogger(SqlTradeSettlement.class);
+
+    private final UserRepository userRepository;
+    private final UserBalanceRepository userBalanceRepository;
+    private final TransactionRepository transactionRepository;
+
+    @Autowired
+    public SqlTradeSettlement(UserRepository userRepository,
+                              UserBalanceRepository userBalanceRepository,
+                              TransactionRepository transactionRepository) {
+        this.userRepository = userRepository;
+        this.userBalanceRepository = userBalanceRepository;
+        this.transactionRepository = transactionRepository;
+    }
+
+    @Override
+    @Transactional
+    public Transaction buy(User user, String symbol, BigDecimal quantity, BigDecimal price, BigDecimal totalCost) {
+        if (userRepository.debitBalance(user.getId(), totalCost) == 0) {
+            throw new RuntimeException("Insufficient balance to complete this purchase");
+        }
+        userBalanceRepository.creditBalance(user.getId(), symbol, quantity);
+        return transactionRepository.save(
+                new Transaction(user, symbol, Transaction.TransactionType.BUY, quantity, price, totalCost));
+    }
+
+    @Override
+    @Transactional
+    public Transaction sell(User user, String symbol, BigDecimal quantity, BigDecimal price, BigDecimal totalValue) {
+        if (userBalanceRepository.debitBalance(user.getId(), symbol, quantity) == 0) {
+            throw new RuntimeException("Insufficient " + symbol + " balance to complete this sale");
+        }
+        userRepository.creditBalance(user.getId(), totalValue);
+        return transactionRepository.save(
+                new Transaction(user, symbol, Transaction.TransactionType.SELL, quantity, price, totalValue));
+    }
+
+    /**
+     * The balance of the caller's user, which is current: cached users are invalidated
+     * after every trade
+     */
+    @Override
+    public BigDecimal getCashBalance(User user) {
+        return user.getBalance();
+    }
+
+    @Override
+    public List<CryptoBalance> getCryptoBalances(User user) {
+        return userBalanceRepository.findHeldBalances(user.getId());
+    }
+
+    @Override
+    @Transactional
+    public void reset(User user) {
+        userRepository.setBalance(user.getId(), JpaTradeSettlement.INITIAL_BALANCE);
+        int deleted = transactionRepository.deleteByUserId(user.getId());
+        int cleared = userBalanceRepository.clearBalances(user.getId());
+        logger.info("Reset user ID {}: deleted {} transactions, cleared {} crypto balances",
+                user.getId(), deleted, cleared);
+    }
+}
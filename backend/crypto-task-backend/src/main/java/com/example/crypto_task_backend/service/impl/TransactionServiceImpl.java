@@ -1,170 +1,286 @@
 package com.example.crypto_task_backend.service.impl;
 
+import com.example.crypto_task_backend.dto.CryptoBalance;
+import com.example.crypto_task_backend.dto.PortfolioValuation;
+import com.example.crypto_task_backend.dto.TransactionPage;
 import com.example.crypto_task_backend.dto.TransactionRequest;
 import com.example.crypto_task_backend.dto.TransactionResponse;
 import com.example.crypto_task_backend.dto.UserHoldingResponse;
 import com.example.crypto_task_backend.model.CryptoPrice;
 import com.example.crypto_task_backend.model.Transaction;
 import com.example.crypto_task_backend.model.User;
-import com.example.crypto_task_backend.model.UserBalance;
 import com.example.crypto_task_backend.repository.TransactionRepository;
 import com.example.crypto_task_backend.service.CryptoPriceService;
+import com.example.crypto_task_backend.service.TradeSettlement;
 import com.example.crypto_task_backend.service.TransactionService;
-import com.example.crypto_task_backend.service.UserBalanceService;
 import com.example.crypto_task_backend.service.UserService;
+import com.example.crypto_task_backend.service.concurrency.UserLocks;
+import com.example.crypto_task_backend.service.lots.LotSummary;
+import com.example.crypto_task_backend.service.lots.LotTracker;
+import com.example.crypto_task_backend.service.orderbook.ExecutionQuote;
+import com.example.crypto_task_backend.service.orderbook.OrderBookService;
+import com.example.crypto_task_backend.service.portfolio.PortfolioValuationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Supplier;
 
 @Service
 public class TransactionServiceImpl implements TransactionService {
     private static final Logger logger = LoggerFactory.getLogger(TransactionServiceImpl.class);
     
+    // Decimals of transactions.price
+    private static final int EXECUTION_PRICE_SCALE = 8;
+    
+    // Largest page of the transaction history endpoint
+    private static final int MAX_PAGE_SIZE = 500;
+    
+    // Settlement attempts when a concurrent writer outside this process wins a version check
+    private static final int MAX_SETTLEMENT_ATTEMPTS = 3;
+    
     private final TransactionRepository transactionRepository;
     private final UserService userService;
     private final CryptoPriceService cryptoPriceService;
-    private final UserBalanceService userBalanceService;
+    private final TradeSettlement tradeSettlement;
+    private final OrderBookService orderBookService;
+    private final UserLocks userLocks;
+    private final LotTracker lotTracker;
+    private final PortfolioValuationService portfolioValuation;
+    private final boolean depthExecution;
 
     @Autowired
     public TransactionServiceImpl(
             TransactionRepository transactionRepository,
             UserService userService,
             CryptoPriceService cryptoPriceService,
-            UserBalanceService userBalanceService) {
+            TradeSettlement tradeSettlement,
+            OrderBookService orderBookService,
+            UserLocks userLocks,
+            LotTracker lotTracker,
+            PortfolioValuationService portfolioValuation,
+            @Value("${crypto.trade.execution:last}") String executionMode) {
         this.transactionRepository = transactionRepository;
         this.userService = userService;
         this.cryptoPriceService = cryptoPriceService;
-        this.userBalanceService = userBalanceService;
+        this.tradeSettlement = tradeSettlement;
+        this.orderBookService = orderBookService;
+        this.userLocks = userLocks;
+        this.lotTracker = lotTracker;
+        this.portfolioValuation = portfolioValuation;
+        this.depthExecution = "depth".equalsIgnoreCase(executionMode);
+    }
+    
+    /**
+     * Walk the live order book for the requested quantity
+     * (crypto.trade.execution=depth, requires kraken.websocket.book.enabled)
+     * @throws RuntimeException If there is no book or it cannot fill the whole quantity
+     */
+    private ExecutionQuote quoteAgainstBook(TransactionRequest request, boolean buy) {
+        ExecutionQuote quote = orderBookService.quote(request.getSymbol(), buy, request.getQuantity());
+        if (!quote.isFilled()) {
+            throw new RuntimeException("Insufficient order book depth: only " + quote.getFilled() + " "
+                    + request.getSymbol() + " available within the book");
+        }
+        logger.info("{} {} {} fills at average {} over {} levels, slippage {} bps", buy ? "Buy" : "Sell",
+                request.getQuantity(), request.getSymbol(), quote.getAveragePrice(EXECUTION_PRICE_SCALE),
+                quote.getLevels(), quote.getSlippageBps());
+        return quote;
+    }
+    
+    /**
+     * Last trade price of a symbol, which fills the whole quantity in the default execution mode
+     */
+    private BigDecimal lastPrice(String symbol) {
+        CryptoPrice cryptoPrice = cryptoPriceService.getPriceBySymbol(symbol);
+        if (cryptoPrice == null) {
+            throw new RuntimeException("Crypto price not available for " + symbol);
+        }
+        return cryptoPrice.getPrice();
+    }
+
+    /**
+     * Run a settlement under the user's lock, retrying it if an optimistic version check
+     * fails, then drop the user from the cache if the settlement writes the users row. Pricing stays outside the lock so other
+     * trades of the user only wait for the balance updates.
+     */
+    private <T> T settle(User user, Supplier<T> settlement) {
+        return userLocks.withLock(user.getId(), () -> {
+            try {
+                for (int attempt = 1; ; attempt++) {
+                    try {
+                        return settlement.get();
+                    } catch (OptimisticLockingFailureException e) {
+                        if (attempt >= MAX_SETTLEMENT_ATTEMPTS) {
+                            throw new RuntimeException("Account was updated concurrently, please try again", e);
+                        }
+                        logger.warn("Concurrent update of user ID {}, retrying settlement (attempt {})",
+                                user.getId(), attempt + 1);
+                    }
+                }
+            } finally {
+                // Committed or rolled back, the cached copy of the user's row can no longer be trusted
+                if (tradeSettlement.writesUserRow()) {
+                    userService.invalidateUser(user.getId());
+                }
+            }
+        });
     }
 
     @Override
-    @Transactional
     public TransactionResponse buyCrypto(TransactionRequest request) {
         logger.info("Processing buy request for {} {}", request.getQuantity(), request.getSymbol());
         User user = userService.getCurrentUser();
         
-        // Get the current price of the cryptocurrency
-        var cryptoPrice = cryptoPriceService.getPriceBySymbol(request.getSymbol());
-        if (cryptoPrice == null) {
-            throw new RuntimeException("Crypto price not available for " + request.getSymbol());
-        }
-        BigDecimal currentPrice = cryptoPrice.getPrice();
-        
-        // Calculate the total cost of the purchase
-        BigDecimal totalCost = currentPrice.multiply(request.getQuantity());
-        
-        // Verify the user has enough balance
-        if (user.getBalance().compareTo(totalCost) < 0) {
-            throw new RuntimeException("Insufficient balance to complete this purchase");
+        // Price the purchase at the last trade, or by walking the asks in depth mode
+        BigDecimal currentPrice;
+        BigDecimal totalCost;
+        BigDecimal slippageBps = null;
+        if (depthExecution) {
+            ExecutionQuote quote = quoteAgainstBook(request, true);
+            currentPrice = quote.getAveragePrice(EXECUTION_PRICE_SCALE);
+            totalCost = quote.getNotional();
+            slippageBps = quote.getSlippageBps();
+        } else {
+            currentPrice = lastPrice(request.getSymbol());
+            totalCost = currentPrice.multiply(request.getQuantity());
         }
         
-        // Update user's USD balance
-        BigDecimal newBalance = user.getBalance().subtract(totalCost);
-        userService.updateUserBalance(user.getId(), newBalance);
-        
-        // Update user's crypto balance
-        userBalanceService.updateUserCryptoBalance(user, request.getSymbol(), request.getQuantity());
-        
-        // Create and save transaction record
-        Transaction transaction = new Transaction(
-                user,
-                request.getSymbol(),
-                Transaction.TransactionType.BUY,
-                request.getQuantity(),
-                currentPrice,
-                totalCost
-        );
-        
-        Transaction savedTransaction = transactionRepository.save(transaction);
+        // Move the cash and crypto, record the transaction and apply it to the lots and the
+        // live portfolio
+        Transaction savedTransaction = settle(user, () -> {
+            Transaction transaction = tradeSettlement.buy(
+                    user, request.getSymbol(), request.getQuantity(), currentPrice, totalCost);
+            lotTracker.onTrade(user.getId(), transaction);
+            portfolioValuation.onTrade(user, transaction);
+            return transaction;
+        });
         logger.info("Buy transaction completed: ID={}, Amount={} {}, Total Cost=${}", 
                 savedTransaction.getId(), request.getQuantity(), request.getSymbol(), totalCost);
-        return new TransactionResponse(savedTransaction);
+        TransactionResponse response = new TransactionResponse(savedTransaction);
+        response.setSlippageBps(slippageBps);
+        return response;
     }
 
     @Override
-    @Transactional
     public TransactionResponse sellCrypto(TransactionRequest request) {
         logger.info("Processing sell request for {} {}", request.getQuantity(), request.getSymbol());
         User user = userService.getCurrentUser();
         
-        // Get the current price of the cryptocurrency
-        CryptoPrice cryptoPrice = cryptoPriceService.getPriceBySymbol(request.getSymbol());
-        if (cryptoPrice == null) {
-            throw new RuntimeException("Crypto price not available for " + request.getSymbol());
-        }
-        BigDecimal currentPrice = cryptoPrice.getPrice();
-        
-        // Check if user has enough crypto balance to sell
-        BigDecimal currentCryptoBalance = userBalanceService.getUserCryptoBalance(user, request.getSymbol());
-        if (currentCryptoBalance.compareTo(request.getQuantity()) < 0) {
-            throw new RuntimeException("Insufficient " + request.getSymbol() + " balance to complete this sale");
+        // Price the sale at the last trade, or by walking the bids in depth mode
+        BigDecimal currentPrice;
+        BigDecimal totalValue;
+        BigDecimal slippageBps = null;
+        if (depthExecution) {
+            ExecutionQuote quote = quoteAgainstBook(request, false);
+            currentPrice = quote.getAveragePrice(EXECUTION_PRICE_SCALE);
+            totalValue = quote.getNotional();
+            slippageBps = quote.getSlippageBps();
+        } else {
+            currentPrice = lastPrice(request.getSymbol());
+            totalValue = currentPrice.multiply(request.getQuantity());
         }
         
-        // Calculate the total value of the sale
-        BigDecimal totalValue = currentPrice.multiply(request.getQuantity());
-        
-        // Update user's USD balance (add the sale value)
-        BigDecimal newBalance = user.getBalance().add(totalValue);
-        userService.updateUserBalance(user.getId(), newBalance);
-        
-        // Update user's crypto balance (subtract the sold amount)
-        userBalanceService.updateUserCryptoBalance(user, request.getSymbol(), request.getQuantity().negate());
-        
-        // Create and save transaction record
-        Transaction transaction = new Transaction(
-                user,
-                request.getSymbol(),
-                Transaction.TransactionType.SELL,
-                request.getQuantity(),
-                currentPrice,
-                totalValue
-        );
-        
-        Transaction savedTransaction = transactionRepository.save(transaction);
+        // Check the crypto balance, move the cash and crypto, record the transaction and
+        // close it against the lots, then apply it to the live portfolio
+        Transaction savedTransaction = settle(user, () -> {
+            Transaction transaction = tradeSettlement.sell(
+                    user, request.getSymbol(), request.getQuantity(), currentPrice, totalValue);
+            lotTracker.onTrade(user.getId(), transaction);
+            portfolioValuation.onTrade(user, transaction);
+            return transaction;
+        });
         logger.info("Sell transaction completed: ID={}, Amount={} {}, Total Value=${}", 
                 savedTransaction.getId(), request.getQuantity(), request.getSymbol(), totalValue);
-        return new TransactionResponse(savedTransaction);
+        TransactionResponse response = new TransactionResponse(savedTransaction);
+        response.setSlippageBps(slippageBps);
+        return response;
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<TransactionResponse> getUserTransactions() {
         User user = userService.getCurrentUser();
-        return transactionRepository.findByUserOrderByTransactionDateDesc(user).stream()
-                .map(TransactionResponse::new)
-                .collect(Collectors.toList());
+        return transactionRepository.findResponsesByUserId(user.getId());
+    }
+    
+    @Override
+    public TransactionPage getTransactionPage(String cursor, int limit) {
+        User user = userService.getCurrentUser();
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // One extra row tells whether another page follows
+        Limit fetch = Limit.of(size + 1);
+        List<TransactionResponse> transactions;
+        if (cursor == null || cursor.isEmpty()) {
+            transactions = transactionRepository.findPage(user.getId(), fetch);
+        } else {
+            String position = decodeCursor(cursor);
+            int separator = position.lastIndexOf('_');
+            try {
+                transactions = transactionRepository.findPageAfter(user.getId(),
+                        LocalDateTime.parse(position.substring(0, separator)),
+                        Long.parseLong(position.substring(separator + 1)), fetch);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        if (transactions.size() <= size) {
+            return new TransactionPage(transactions, null);
+        }
+        List<TransactionResponse> page = transactions.subList(0, size);
+        TransactionResponse last = page.get(size - 1);
+        return new TransactionPage(new ArrayList<>(page), encodeCursor(last.getTransactionDate() + "_" + last.getId()));
+    }
+    
+    private static String encodeCursor(String position) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.US_ASCII));
+    }
+    
+    private static String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
     }
     
     @Override
-    @Transactional(readOnly = true)
     public List<UserHoldingResponse> getUserHoldings() {
         logger.info("Fetching user crypto holdings");
         User user = userService.getCurrentUser();
-        List<UserBalance> balances = userBalanceService.getUserBalances(user);
-        
-        // Filter out zero balances
-        balances = balances.stream()
-                .filter(balance -> balance.getBalance().compareTo(BigDecimal.ZERO) > 0)
-                .collect(Collectors.toList());
+        // Zero balances are already filtered out
+        List<CryptoBalance> balances = tradeSettlement.getCryptoBalances(user);
+        Map<String, LotSummary> lots = lotTracker.getSummaries(user.getId());
         
         List<UserHoldingResponse> holdings = new ArrayList<>();
         
-        for (UserBalance balance : balances) {
+        for (CryptoBalance balance : balances) {
             CryptoPrice cryptoPrice = cryptoPriceService.getPriceBySymbol(balance.getCryptoSymbol());
+            UserHoldingResponse holding;
             if (cryptoPrice != null) {
                 String cryptoName = cryptoPrice.getName() != null ? cryptoPrice.getName() : balance.getCryptoSymbol();
-                holdings.add(new UserHoldingResponse(balance, cryptoName, cryptoPrice.getPrice()));
+                holding = new UserHoldingResponse(balance, cryptoName, cryptoPrice.getPrice());
             } else {
                 // If price not available, still show the holding but with zero price
-                holdings.add(new UserHoldingResponse(balance, balance.getCryptoSymbol(), BigDecimal.ZERO));
+                holding = new UserHoldingResponse(balance, balance.getCryptoSymbol(), BigDecimal.ZERO);
             }
+            LotSummary symbolLots = lots.get(balance.getCryptoSymbol());
+            if (symbolLots != null) {
+                holding.applyCostBasis(symbolLots.getCostBasis(), symbolLots.getRealisedPnl());
+            }
+            holdings.add(holding);
         }
         
         logger.info("Returning {} crypto holdings", holdings.size());
@@ -172,32 +288,20 @@ public class TransactionServiceImpl implements TransactionService {
     }
     
     @Override
-    @Transactional
+    public PortfolioValuation getPortfolioValuation() {
+        return portfolioValuation.getValuation(userService.getCurrentUser().getId());
+    }
+    
+    @Override
     public void resetUserAccount() {
         logger.info("Resetting user account");
         User user = userService.getCurrentUser();
-        
-        // Reset USD balance to initial value of $10,000
-        BigDecimal initialBalance = new BigDecimal("10000.00");
-        userService.updateUserBalance(user.getId(), initialBalance);
-        logger.info("Reset balance to ${} for user ID {}", initialBalance, user.getId());
-        
-        // Delete all transactions
-        List<Transaction> transactions = transactionRepository.findByUserOrderByTransactionDateDesc(user);
-        if (!transactions.isEmpty()) {
-            transactionRepository.deleteAll(transactions);
-            logger.info("Deleted {} transactions", transactions.size());
-        }
-        
-        // Clear all crypto balances
-        List<UserBalance> balances = userBalanceService.getUserBalances(user);
-        for (UserBalance balance : balances) {
-            if (balance.getBalance().compareTo(BigDecimal.ZERO) > 0) {
-                userBalanceService.updateUserCryptoBalance(user, balance.getCryptoSymbol(), balance.getBalance().negate());
-                logger.info("Reset balance for {} to zero", balance.getCryptoSymbol());
-            }
-        }
-        
+        settle(user, () -> {
+            tradeSettlement.reset(user);
+            lotTracker.onReset(user.getId());
+            portfolioValuation.onReset(user);
+            return null;
+        });
         logger.info("Account reset completed for user ID {}", user.getId());
     }
 }
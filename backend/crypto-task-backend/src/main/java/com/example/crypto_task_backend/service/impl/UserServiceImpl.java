@@ -2,64 +2,106 @@ package com.example.crypto_task_backend.service.impl;
 
 import com.example.crypto_task_backend.model.User;
 import com.example.crypto_task_backend.repository.UserRepository;
+import com.example.crypto_task_backend.service.TradeSettlement;
 import com.example.crypto_task_backend.service.UserService;
+import com.example.crypto_task_backend.service.user.UserCache;
+import com.example.crypto_task_backend.service.user.UserContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.util.List;
 
 @Service
 public class UserServiceImpl implements UserService {
 
     private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
     private final UserRepository userRepository;
+    private final TradeSettlement tradeSettlement;
+    private final UserCache userCache;
+    private volatile Long defaultUserId;
 
     @Autowired
-    public UserServiceImpl(UserRepository userRepository) {
+    public UserServiceImpl(UserRepository userRepository, TradeSettlement tradeSettlement, UserCache userCache) {
         this.userRepository = userRepository;
+        this.tradeSettlement = tradeSettlement;
+        this.userCache = userCache;
     }
 
+    /**
+     * The user of the X-User-Id header, or the default user without one. Served from the
+     * user cache, so the read paths normally run no query; not transactional for the
+     * same reason.
+     * @throws RuntimeException If the header names an unknown user
+     */
     @Override
-    @Transactional(readOnly = true)
     public User getCurrentUser() {
-        // Since we only have one user with no authentication, just get the first user 
-        // or create a default one if none exists
-        logger.info("Getting current user");
-        List<User> users = userRepository.findAll();
-        logger.info("Found {} users in the database", users.size());
-        
-        return users.stream()
-                .findFirst()
-                .orElseGet(() -> {
-                    logger.info("No users found, creating default user");
-                    User defaultUser = new User("defaultUser");
-                    defaultUser.setBalance(new BigDecimal("10000.00"));
-                    return userRepository.save(defaultUser);
-                });
+        Long userId = UserContext.getUserId();
+        if (userId == null) {
+            userId = getDefaultUserId();
+        }
+        return getUser(userId);
+    }
+
+    @Override
+    public User getUser(Long userId) {
+        User user = userCache.get(userId, userRepository::findById);
+        if (user == null) {
+            throw new RuntimeException("User not found");
+        }
+        return user;
+    }
+
+    /**
+     * Since requests without a user id have no authentication, they act for the first
+     * user, or a default one created if none exists. Resolved once.
+     */
+    private Long getDefaultUserId() {
+        Long userId = defaultUserId;
+        if (userId == null) {
+            synchronized (this) {
+                userId = defaultUserId;
+                if (userId == null) {
+                    userId = userRepository.findFirstByOrderByIdAsc()
+                            .orElseGet(() -> {
+                                logger.info("No users found, creating default user");
+                                User defaultUser = new User("defaultUser");
+                                defaultUser.setBalance(new BigDecimal("10000.00"));
+                                return userRepository.save(defaultUser);
+                            })
+                            .getId();
+                    logger.info("Requests without {} act for user ID {}", UserContext.USER_ID_HEADER, userId);
+                    defaultUserId = userId;
+                }
+            }
+        }
+        return userId;
     }
 
     @Override
-    @Transactional
     public User updateUserBalance(Long userId, BigDecimal newBalance) {
         logger.info("Updating balance for user ID {} to {}", userId, newBalance);
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
         user.setBalance(newBalance);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        invalidateUser(userId);
+        return saved;
     }
 
     @Override
-    @Transactional(readOnly = true)
     public BigDecimal getUserBalance() {
         logger.info("Getting user balance");
         User currentUser = getCurrentUser();
-        BigDecimal balance = currentUser.getBalance();
+        BigDecimal balance = tradeSettlement.getCashBalance(currentUser);
         logger.info("User ID: {}, Balance: {}", currentUser.getId(), balance);
         return balance;
     }
+
+    @Override
+    public void invalidateUser(Long userId) {
+        userCache.invalidate(userId);
+    }
 }
@@ -0,0 +1,276 @@
+package com.example.crypto_task_backend.service.journal;
+
+import com.example.crypto_task_backend.model.CryptoPrice;
+import com.example.crypto_task_backend.service.CryptoPriceService;
+import com.example.crypto_task_backend.util.EpochNanos;
+import com.example.crypto_task_backend.util.FixedPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Append-only journal of price ticks in memory-mapped segment files.
+ * Records are fixed-size, so appending a tick is a handful of stores into the mapped
+ * buffer with no system call; files are only created, synced and deleted when a segment
+ * rolls and on the periodic force. On startup the tail of the journal is replayed through
+ * the price service, which rebuilds the latest prices and every listener's history.
+ * <p>
+ * Record layout (64 bytes): int marker, byte price scale, byte symbol length,
+ * 17 bytes symbol (UTF-8), byte volume scale, then epoch nanos, price, ask, bid and
+ * volume as longs. The marker is written last; a zero marker ends the segment.
+ * Records of the previous layout (marker TIK1, 18 bytes symbol) are still replayed,
+ * with their volume at {@link FixedPoint#VOLUME_SCALE}.
+ */
+@Component
+public class TickJournal {
+    private static final Logger logger = LoggerFactory.getLogger(TickJournal.class);
+
+    static final int RECORD_SIZE = 64;
+    static final int MAX_SYMBOL_BYTES = 17;
+    static final int RECORD_MARKER = 0x54494B32;
+    static final int LEGACY_RECORD_MARKER = 0x54494B31;
+    private static final byte[] UNSUPPORTED_SYMBOL = new byte[0];
+    private static final String SEGMENT_PREFIX = "ticks-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final CryptoPriceService cryptoPriceService;
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final int retainedSegments;
+    private final int replayRecords;
+    private final long maxRestoreAgeNanos;
+
+    private final Map<String, byte[]> symbolBytes = new ConcurrentHashMap<>();
+    private MappedByteBuffer segment;
+    private volatile Thread replayThread;
+    private final AtomicBoolean restored = new AtomicBoolean();
+
+    @Autowired
+    public TickJournal(CryptoPriceService cryptoPriceService,
+                       @Value("${crypto.journal.enabled:true}") boolean enabled,
+                       @Value("${crypto.journal.dir:data/journal}") String directory,
+                       @Value("${crypto.journal.segment.size:16777216}") int segmentSize,
+                       @Value("${crypto.journal.retained.segments:8}") int retainedSegments,
+                       @Value("${crypto.journal.replay.records:100000}") int replayRecords,
+                       @Value("${crypto.journal.restore.max.age.minutes:1440}") long maxRestoreAgeMinutes) {
+        this.cryptoPriceService = cryptoPriceService;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.segmentSize = Math.max(RECORD_SIZE, segmentSize - segmentSize % RECORD_SIZE);
+        this.retainedSegments = Math.max(1, retainedSegments);
+        this.replayRecords = replayRecords;
+        this.maxRestoreAgeNanos = maxRestoreAgeMinutes * 60_000_000_000L;
+        if (enabled) {
+            cryptoPriceService.addPriceUpdateListener(this::onPriceUpdate);
+        }
+    }
+
+    public void onPriceUpdate(CryptoPrice price) {
+        if (Thread.currentThread() == replayThread) {
+            return;
+        }
+        byte[] symbol = symbolBytes.computeIfAbsent(price.getSymbol(), TickJournal::encodeSymbol);
+        if (symbol == UNSUPPORTED_SYMBOL) {
+            return;
+        }
+        try {
+            append(symbol, price);
+        } catch (IOException e) {
+            logger.error("Error appending to tick journal: {}", e.getMessage(), e);
+        }
+    }
+
+    private synchronized void append(byte[] symbol, CryptoPrice price) throws IOException {
+        if (segment == null || segment.remaining() < RECORD_SIZE) {
+            roll();
+        }
+        int pos = segment.position();
+        segment.put(pos + 4, (byte) price.priceScale());
+        segment.put(pos + 5, (byte) symbol.length);
+        segment.put(pos + 6, symbol);
+        segment.put(pos + 23, (byte) price.volumeScale());
+        segment.putLong(pos + 24, price.epochNanos());
+        segment.putLong(pos + 32, price.priceUnits());
+        segment.putLong(pos + 40, price.askUnits());
+        segment.putLong(pos + 48, price.bidUnits());
+        segment.putLong(pos + 56, price.volumeUnits());
+        segment.putInt(pos, RECORD_MARKER);
+        segment.position(pos + RECORD_SIZE);
+    }
+
+    /**
+     * Map a new segment after the newest existing one and delete segments beyond retention
+     */
+    private void roll() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments = listSegments();
+        long next = segments.isEmpty() ? 0 : segmentIndex(segments.get(segments.size() - 1)) + 1;
+        Path file = directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, next, SEGMENT_SUFFIX));
+        if (segment != null) {
+            segment.force();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segments.add(file);
+        for (int i = 0; i < segments.size() - retainedSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+        logger.info("Rolled tick journal to segment {}", file.getFileName());
+    }
+
+    /**
+     * Rebuild price state from the last crypto.journal.replay.records journal entries.
+     * Records older than crypto.journal.restore.max.age.minutes, or older than a price
+     * that has already arrived live, are skipped.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void restore() {
+        if (!enabled || replayRecords <= 0 || !Files.isDirectory(directory) || !restored.compareAndSet(false, true)) {
+            return;
+        }
+        long started = System.nanoTime();
+        replayThread = Thread.currentThread();
+        try {
+            List<Path> segments = listSegments();
+            // Walk back from the newest segment until enough records are found, then replay forwards
+            List<MappedByteBuffer> tail = new ArrayList<>();
+            List<int[]> tailRanges = new ArrayList<>();
+            int remaining = replayRecords;
+            for (int i = segments.size() - 1; i >= 0 && remaining > 0; i--) {
+                MappedByteBuffer buffer = mapReadOnly(segments.get(i));
+                int count = recordCount(buffer);
+                int take = Math.min(count, remaining);
+                tail.add(0, buffer);
+                tailRanges.add(0, new int[] {count - take, count});
+                remaining -= take;
+            }
+
+            long cutoff = EpochNanos.now() - maxRestoreAgeNanos;
+            int replayed = 0;
+            for (int s = 0; s < tail.size(); s++) {
+                int[] range = tailRanges.get(s);
+                for (int r = range[0]; r < range[1]; r++) {
+                    if (replay(tail.get(s), r * RECORD_SIZE, cutoff)) {
+                        replayed++;
+                    }
+                }
+            }
+            logger.info("Restored {} ticks from tick journal in {} ms", replayed,
+                    (System.nanoTime() - started) / 1_000_000L);
+        } catch (IOException e) {
+            logger.error("Error restoring from tick journal: {}", e.getMessage(), e);
+        } finally {
+            replayThread = null;
+        }
+    }
+
+    private boolean replay(MappedByteBuffer buffer, int pos, long cutoff) {
+        long epochNanos = buffer.getLong(pos + 24);
+        if (epochNanos < cutoff) {
+            return false;
+        }
+        int symbolLength = buffer.get(pos + 5);
+        byte[] symbol = new byte[symbolLength];
+        buffer.get(pos + 6, symbol);
+        String pair = new String(symbol, StandardCharsets.UTF_8);
+        int volumeScale = buffer.getInt(pos) == RECORD_MARKER ? buffer.get(pos + 23) : FixedPoint.VOLUME_SCALE;
+        // The feed is already live during replay; a tick that arrived meanwhile must win
+        return cryptoPriceService.updatePriceIfNewer(pair, buffer.get(pos + 4), buffer.getLong(pos + 32),
+                buffer.getLong(pos + 40), buffer.getLong(pos + 48), volumeScale, buffer.getLong(pos + 56),
+                epochNanos) != null;
+    }
+
+    /**
+     * Number of complete records in a segment; records are contiguous, so binary search
+     * for the first slot without a marker
+     */
+    static int recordCount(MappedByteBuffer buffer) {
+        int low = 0;
+        int high = buffer.capacity() / RECORD_SIZE;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int marker = buffer.getInt(mid * RECORD_SIZE);
+            if (marker == RECORD_MARKER || marker == LEGACY_RECORD_MARKER) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static MappedByteBuffer mapReadOnly(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return new ArrayList<>(files
+                    .filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList());
+        }
+    }
+
+    private static long segmentIndex(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static byte[] encodeSymbol(String symbol) {
+        byte[] bytes = symbol.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_SYMBOL_BYTES) {
+            logger.warn("Symbol {} is longer than {} bytes and will not be journaled", symbol, MAX_SYMBOL_BYTES);
+            return UNSUPPORTED_SYMBOL;
+        }
+        return bytes;
+    }
+
+    /**
+     * Flush dirty journal pages to disk in the background, so a crash of the whole host
+     * loses at most one interval of ticks; a crash of the process alone loses nothing
+     */
+    @Scheduled(fixedDelayString = "${crypto.journal.force.interval:1000}")
+    public void force() {
+        MappedByteBuffer current;
+        synchronized (this) {
+            current = segment;
+        }
+        if (current != null) {
+            current.force();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        force();
+    }
+}
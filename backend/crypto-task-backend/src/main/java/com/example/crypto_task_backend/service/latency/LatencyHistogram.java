@@ -0,0 +1,79 @@
+package com.example.crypto_task_backend.service.latency;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latency distribution in nanoseconds. Recording goes through a lock-free HdrHistogram
+ * {@link Recorder}; readers fold the recorded interval into a cumulative histogram
+ * under this object's lock. A recorder holds four histograms, so the range and precision
+ * decide the footprint: about 120 KB for {@link #precise()}, about 11 KB for {@link #coarse()}.
+ */
+final class LatencyHistogram {
+
+    private final long highestTrackableNanos;
+    private final Recorder recorder;
+    private final Histogram cumulative;
+    private Histogram interval;
+
+    private LatencyHistogram(long lowestDiscernibleNanos, long highestTrackableNanos, int significantDigits) {
+        this.highestTrackableNanos = highestTrackableNanos;
+        this.recorder = new Recorder(lowestDiscernibleNanos, highestTrackableNanos, significantDigits);
+        this.cumulative = new Histogram(lowestDiscernibleNanos, highestTrackableNanos, significantDigits);
+    }
+
+    /**
+     * Nanosecond values up to one minute at 1% precision
+     */
+    static LatencyHistogram precise() {
+        return new LatencyHistogram(1, 60_000_000_000L, 2);
+    }
+
+    /**
+     * Microsecond values up to ten seconds at 10% precision
+     */
+    static LatencyHistogram coarse() {
+        return new LatencyHistogram(1_000, 10_000_000_000L, 1);
+    }
+
+    void record(long nanos) {
+        recorder.recordValue(Math.max(1, Math.min(nanos, highestTrackableNanos)));
+    }
+
+    private void drain() {
+        interval = recorder.getIntervalHistogram(interval);
+        cumulative.add(interval);
+    }
+
+    synchronized long valueAtPercentile(double percentile) {
+        drain();
+        return cumulative.getValueAtPercentile(percentile);
+    }
+
+    synchronized long max() {
+        drain();
+        return cumulative.getMaxValue();
+    }
+
+    /**
+     * Count and p50/p99/p999/max in microseconds
+     */
+    synchronized Map<String, Object> summary() {
+        drain();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", cumulative.getTotalCount());
+        summary.put("p50Micros", cumulative.getValueAtPercentile(50) / 1_000.0);
+        summary.put("p99Micros", cumulative.getValueAtPercentile(99) / 1_000.0);
+        summary.put("p999Micros", cumulative.getValueAtPercentile(99.9) / 1_000.0);
+        summary.put("maxMicros", cumulative.getMaxValue() / 1_000.0);
+        return summary;
+    }
+
+    synchronized void reset() {
+        drain();
+        cumulative.reset();
+    }
+}
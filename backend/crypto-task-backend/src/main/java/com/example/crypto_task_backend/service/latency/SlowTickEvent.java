@@ -0,0 +1,41 @@
+package com.example.crypto_task_backend.service.latency;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for a tick whose receive-to-send latency exceeded crypto.latency.slow.threshold.ms
+ */
+@Name("crypto.SlowTick")
+@Label("Slow Tick")
+@Category({"Crypto", "Ingest"})
+@Description("Kraken tick that took longer than the threshold to reach STOMP clients")
+class SlowTickEvent extends Event {
+
+    @Label("Symbol")
+    String symbol;
+
+    @Label("Queue")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueNanos;
+
+    @Label("Parse")
+    @Timespan(Timespan.NANOSECONDS)
+    long parseNanos;
+
+    @Label("Update")
+    @Timespan(Timespan.NANOSECONDS)
+    long updateNanos;
+
+    @Label("Publish")
+    @Timespan(Timespan.NANOSECONDS)
+    long publishNanos;
+
+    @Label("Total")
+    @Timespan(Timespan.NANOSECONDS)
+    long totalNanos;
+}
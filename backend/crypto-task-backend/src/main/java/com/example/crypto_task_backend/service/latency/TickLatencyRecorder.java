@@ -0,0 +1,207 @@
+package com.example.crypto_task_backend.service.latency;
+
+import com.example.crypto_task_backend.model.CryptoPrice;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-stage latency of live Kraken ticks, from socket receive to STOMP send:
+ * QUEUE (ingest ring wait), PARSE (frame decode), UPDATE (price cache swap and
+ * listeners), PUBLISH (conflation wait and send) and TOTAL. Every stage is tracked
+ * overall at full precision; per symbol only TOTAL is tracked, in a coarse histogram
+ * created with the symbol's first tick and dropped with its gauges when the pair is
+ * unsubscribed. All are exposed as crypto.tick.latency gauges; ticks slower than
+ * crypto.latency.slow.threshold.ms emit a {@link SlowTickEvent} for JFR.
+ * <p>
+ * A live tick is recognized at send time by its epochNanos, which the ingest path sets
+ * to the frame's receive time; restored, dummy and tree-parser prices are not measured.
+ */
+@Component
+public class TickLatencyRecorder {
+
+    public enum Stage { QUEUE, PARSE, UPDATE, PUBLISH, TOTAL }
+
+    private static final double[] GAUGE_PERCENTILES = {50, 99, 99.9};
+
+    /**
+     * TOTAL histogram, gauges and the stage timings of the latest live tick of one symbol.
+     * The latest-tick fields are written by ingest and read by the publisher without
+     * locking, so a slow-tick event may combine timings of two consecutive ticks.
+     */
+    private static final class SymbolLatency {
+        final LatencyHistogram total = LatencyHistogram.coarse();
+        final List<Meter> gauges = new ArrayList<>();
+        volatile long epochNanos;
+        volatile long receivedNanos;
+        volatile long updatedNanos;
+        volatile long queueNanos;
+        volatile long parseNanos;
+        volatile long updateNanos;
+    }
+
+    private final boolean enabled;
+    private final long slowThresholdNanos;
+    private final MeterRegistry meterRegistry;
+    private final Map<Stage, LatencyHistogram> overall = newHistograms();
+    private final Map<String, SymbolLatency> symbols = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TickLatencyRecorder(MeterRegistry meterRegistry,
+                               @Value("${crypto.latency.enabled:true}") boolean enabled,
+                               @Value("${crypto.latency.slow.threshold.ms:50}") long slowThresholdMillis) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.slowThresholdNanos = slowThresholdMillis * 1_000_000L;
+        overall.forEach((stage, histogram) -> registerGauges(stage, histogram, "all"));
+    }
+
+    private static Map<Stage, LatencyHistogram> newHistograms() {
+        Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, LatencyHistogram.precise());
+        }
+        return histograms;
+    }
+
+    private List<Meter> registerGauges(Stage stage, LatencyHistogram histogram, String symbol) {
+        List<Meter> gauges = new ArrayList<>(GAUGE_PERCENTILES.length + 1);
+        for (double percentile : GAUGE_PERCENTILES) {
+            gauges.add(Gauge.builder("crypto.tick.latency", histogram, h -> h.valueAtPercentile(percentile) / 1e9)
+                    .tag("stage", stage.name().toLowerCase())
+                    .tag("symbol", symbol)
+                    .tag("quantile", Double.toString(percentile / 100))
+                    .baseUnit("seconds")
+                    .description("Kraken tick latency from socket receive to STOMP send")
+                    .register(meterRegistry));
+        }
+        gauges.add(Gauge.builder("crypto.tick.latency.max", histogram, h -> h.max() / 1e9)
+                .tag("stage", stage.name().toLowerCase())
+                .tag("symbol", symbol)
+                .baseUnit("seconds")
+                .register(meterRegistry));
+        return gauges;
+    }
+
+    private SymbolLatency symbol(String symbol) {
+        SymbolLatency latency = symbols.get(symbol);
+        if (latency == null) {
+            latency = symbols.computeIfAbsent(symbol, s -> {
+                SymbolLatency created = new SymbolLatency();
+                created.gauges.addAll(registerGauges(Stage.TOTAL, created.total, s));
+                return created;
+            });
+        }
+        return latency;
+    }
+
+    /**
+     * Drop the latency of a pair that is no longer subscribed, along with its gauges
+     * @param symbol The pair
+     */
+    public void removeSymbol(String symbol) {
+        SymbolLatency latency = symbols.remove(symbol);
+        if (latency != null) {
+            latency.gauges.forEach(meterRegistry::remove);
+        }
+    }
+
+    /**
+     * Record the ingest stages of a live tick, all times from System.nanoTime()
+     * @param symbol The pair
+     * @param epochNanos The epochNanos the tick was stored with
+     * @param receivedNanos Socket receive time
+     * @param dequeuedNanos Time the consumer took the frame off the ingest ring
+     * @param parsedNanos Time the frame was decoded
+     * @param updatedNanos Time updatePrice returned
+     */
+    public void recordIngest(String symbol, long epochNanos, long receivedNanos, long dequeuedNanos,
+                             long parsedNanos, long updatedNanos) {
+        if (!enabled) {
+            return;
+        }
+        SymbolLatency latency = symbol(symbol);
+        long queue = dequeuedNanos - receivedNanos;
+        long parse = parsedNanos - dequeuedNanos;
+        long update = updatedNanos - parsedNanos;
+        overall.get(Stage.QUEUE).record(queue);
+        overall.get(Stage.PARSE).record(parse);
+        overall.get(Stage.UPDATE).record(update);
+        latency.queueNanos = queue;
+        latency.parseNanos = parse;
+        latency.updateNanos = update;
+        latency.receivedNanos = receivedNanos;
+        latency.updatedNanos = updatedNanos;
+        latency.epochNanos = epochNanos;
+    }
+
+    /**
+     * Record the publish and total latency once a price has been sent to STOMP clients
+     * @param price The price that was sent
+     */
+    public void recordPublished(CryptoPrice price) {
+        if (!enabled) {
+            return;
+        }
+        SymbolLatency latency = symbols.get(price.getSymbol());
+        if (latency == null || latency.epochNanos != price.epochNanos()) {
+            return;
+        }
+        long sentNanos = System.nanoTime();
+        long publish = sentNanos - latency.updatedNanos;
+        long total = sentNanos - latency.receivedNanos;
+        overall.get(Stage.PUBLISH).record(publish);
+        overall.get(Stage.TOTAL).record(total);
+        latency.total.record(total);
+
+        if (total >= slowThresholdNanos) {
+            SlowTickEvent event = new SlowTickEvent();
+            if (event.isEnabled()) {
+                event.symbol = price.getSymbol();
+                event.queueNanos = latency.queueNanos;
+                event.parseNanos = latency.parseNanos;
+                event.updateNanos = latency.updateNanos;
+                event.publishNanos = publish;
+                event.totalNanos = total;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Latency summary per stage overall, and of the total per symbol, since start or the last reset
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("slowThresholdMillis", slowThresholdNanos / 1_000_000L);
+        stats.put("stages", summarize(overall));
+        Map<String, Object> perSymbol = new TreeMap<>();
+        symbols.forEach((symbol, latency) -> perSymbol.put(symbol,
+                Map.of(Stage.TOTAL.name().toLowerCase(), latency.total.summary())));
+        stats.put("symbols", perSymbol);
+        return stats;
+    }
+
+    private static Map<String, Object> summarize(Map<Stage, LatencyHistogram> histograms) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        histograms.forEach((stage, histogram) -> summary.put(stage.name().toLowerCase(), histogram.summary()));
+        return summary;
+    }
+
+    public void reset() {
+        overall.values().forEach(LatencyHistogram::reset);
+        symbols.values().forEach(latency -> latency.total.reset());
+    }
+}
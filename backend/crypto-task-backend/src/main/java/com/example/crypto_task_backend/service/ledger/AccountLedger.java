@@ -0,0 +1,390 @@
+package com.example.crypto_task_backend.service.ledger;
+
+import com.example.crypto_task_backend.dto.CryptoBalance;
+import com.example.crypto_task_backend.model.Transaction;
+import com.example.crypto_task_backend.model.User;
+import com.example.crypto_task_backend.repository.UserBalanceRepository;
+import com.example.crypto_task_backend.service.TradeSettlement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Settlement against in-memory accounts (crypto.trade.settlement=ledger).
+ * Each user's cash and crypto balances are loaded from MySQL on first use and from then
+ * on held in memory as the authoritative copy; a trade checks and updates them under the
+ * account's monitor and appends an entry to the local journal, without touching the
+ * connection pool. A flusher thread drains the entries every flush interval and writes
+ * them to MySQL in batches. On startup, entries the database has not seen yet are
+ * replayed from the journal before any account is loaded.
+ * <p>
+ * At most crypto.ledger.pending.max entries wait for the database; past that, trades are
+ * rejected until MySQL catches up. A batch that MySQL rejects for its data, or that keeps
+ * failing, is written entry by entry, and entries rejected for their data are moved to
+ * the journal's quarantine file so the entries behind them still reach the database.
+ * <p>
+ * Transaction history is read from MySQL, so it trails trades by up to one flush.
+ */
+@Component
+@ConditionalOnProperty(name = "crypto.trade.settlement", havingValue = "ledger")
+public class AccountLedger implements TradeSettlement {
+    private static final Logger logger = LoggerFactory.getLogger(AccountLedger.class);
+
+    static final BigDecimal INITIAL_BALANCE = new BigDecimal("10000.00");
+
+    private final UserBalanceRepository userBalanceRepository;
+    private final LedgerJournal journal;
+    private final LedgerWriter writer;
+    private final long flushIntervalMillis;
+    private final int flushBatch;
+    private final int flushAttempts;
+
+    private final Map<Long, LedgerAccount> accounts = new ConcurrentHashMap<>();
+    private final BlockingQueue<LedgerEntry> pending;
+    private final AtomicLong flushedEntries = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+    private final AtomicLong rejectedTrades = new AtomicLong();
+    private long nextSequence;
+    private long nextTransactionId;
+    private volatile boolean running;
+    private Thread flusher;
+
+    @Autowired
+    public AccountLedger(UserBalanceRepository userBalanceRepository,
+                         JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${crypto.ledger.journal.file:data/ledger/ledger.journal}") String journalFile,
+                         @Value("${crypto.ledger.journal.fsync:false}") boolean fsync,
+                         @Value("${crypto.ledger.journal.segment.bytes:16777216}") long segmentBytes,
+                         @Value("${crypto.ledger.flush.interval:50}") long flushIntervalMillis,
+                         @Value("${crypto.ledger.flush.batch:500}") int flushBatch,
+                         @Value("${crypto.ledger.flush.attempts:5}") int flushAttempts,
+                         @Value("${crypto.ledger.pending.max:100000}") int pendingMax) {
+        this.userBalanceRepository = userBalanceRepository;
+        this.journal = new LedgerJournal(Paths.get(journalFile), fsync, segmentBytes);
+        this.writer = new LedgerWriter(jdbcTemplate, new TransactionTemplate(transactionManager));
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+        this.flushBatch = Math.max(1, flushBatch);
+        this.flushAttempts = Math.max(1, flushAttempts);
+        this.pending = new LinkedBlockingQueue<>(Math.max(1, pendingMax));
+    }
+
+    /**
+     * Replay unflushed journal entries to MySQL and start the flusher
+     * @throws RuntimeException If the journal cannot be read or MySQL is unavailable
+     */
+    @PostConstruct
+    public void start() {
+        try {
+            List<LedgerEntry> unflushed = journal.open();
+            if (!unflushed.isEmpty()) {
+                for (int from = 0; from < unflushed.size(); from += flushBatch) {
+                    List<LedgerEntry> batch = new ArrayList<>(
+                            unflushed.subList(from, Math.min(unflushed.size(), from + flushBatch)));
+                    try {
+                        writer.write(batch);
+                    } catch (DataIntegrityViolationException e) {
+                        if (!isolate(batch)) {
+                            throw new RuntimeException("Unable to replay the ledger journal to the database");
+                        }
+                    }
+                }
+                journal.checkpoint(journal.getLastSequence());
+                logger.info("Replayed {} ledger entries to the database", unflushed.size());
+            }
+            synchronized (journal) {
+                nextSequence = journal.getLastSequence() + 1;
+                long maxJournalId = unflushed.stream().mapToLong(LedgerEntry::getTransactionId).max().orElse(0);
+                nextTransactionId = Math.max(writer.maxTransactionId(), maxJournalId) + 1;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to open ledger journal: " + e.getMessage(), e);
+        }
+        running = true;
+        flusher = new Thread(this::flushLoop, "ledger-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public Transaction buy(User user, String symbol, BigDecimal quantity, BigDecimal price, BigDecimal totalCost) {
+        LedgerAccount account = account(user);
+        synchronized (account) {
+            // Verify the user has enough balance
+            if (account.getCash().compareTo(totalCost) < 0) {
+                throw new RuntimeException("Insufficient balance to complete this purchase");
+            }
+            BigDecimal cashAfter = LedgerAccount.cash(account.getCash().subtract(totalCost));
+            BigDecimal cryptoAfter = LedgerAccount.crypto(account.getCrypto(symbol).add(quantity));
+            LedgerEntry entry = record(LedgerEntry.Type.BUY, user.getId(), symbol, quantity, price, totalCost,
+                    cashAfter, cryptoAfter);
+            account.setCash(cashAfter);
+            account.setCrypto(symbol, cryptoAfter);
+            return entry.toTransaction(user);
+        }
+    }
+
+    @Override
+    public Transaction sell(User user, String symbol, BigDecimal quantity, BigDecimal price, BigDecimal totalValue) {
+        LedgerAccount account = account(user);
+        synchronized (account) {
+            // Check if user has enough crypto balance to sell
+            if (account.getCrypto(symbol).compareTo(quantity) < 0) {
+                throw new RuntimeException("Insufficient " + symbol + " balance to complete this sale");
+            }
+            BigDecimal cashAfter = LedgerAccount.cash(account.getCash().add(totalValue));
+            BigDecimal cryptoAfter = LedgerAccount.crypto(account.getCrypto(symbol).subtract(quantity));
+            LedgerEntry entry = record(LedgerEntry.Type.SELL, user.getId(), symbol, quantity, price, totalValue,
+                    cashAfter, cryptoAfter);
+            account.setCash(cashAfter);
+            account.setCrypto(symbol, cryptoAfter);
+            return entry.toTransaction(user);
+        }
+    }
+
+    /**
+     * Cash lives in the account until the flusher writes it; the User is only read on load
+     */
+    @Override
+    public boolean writesUserRow() {
+        return false;
+    }
+
+    @Override
+    public BigDecimal getCashBalance(User user) {
+        LedgerAccount account = account(user);
+        synchronized (account) {
+            return account.getCash();
+        }
+    }
+
+    @Override
+    public List<CryptoBalance> getCryptoBalances(User user) {
+        LedgerAccount account = account(user);
+        List<CryptoBalance> balances = new ArrayList<>();
+        synchronized (account) {
+            account.getCrypto().forEach((symbol, balance) -> {
+                if (balance.signum() > 0) {
+                    balances.add(new CryptoBalance(null, symbol, balance, null));
+                }
+            });
+        }
+        return balances;
+    }
+
+    @Override
+    public void reset(User user) {
+        LedgerAccount account = account(user);
+        synchronized (account) {
+            record(LedgerEntry.Type.RESET, user.getId(), null, null, null, null, INITIAL_BALANCE, null);
+            account.setCash(INITIAL_BALANCE);
+            account.getCrypto().replaceAll((symbol, balance) -> LedgerAccount.crypto(BigDecimal.ZERO));
+        }
+        logger.info("Reset ledger account of user ID {}", user.getId());
+    }
+
+    private LedgerAccount account(User user) {
+        LedgerAccount account = accounts.get(user.getId());
+        if (account != null) {
+            return account;
+        }
+        LedgerAccount loaded = new LedgerAccount(user.getId(), user.getBalance());
+        for (CryptoBalance balance : userBalanceRepository.findHeldBalances(user.getId())) {
+            loaded.setCrypto(balance.getCryptoSymbol(), LedgerAccount.crypto(balance.getBalance()));
+        }
+        account = accounts.putIfAbsent(user.getId(), loaded);
+        return account != null ? account : loaded;
+    }
+
+    /**
+     * Journal an entry and queue it for the database. Sequence order, journal order and
+     * queue order are the same.
+     * @throws RuntimeException If the database is too far behind or the journal write fails;
+     * the account is then left unchanged
+     */
+    private LedgerEntry record(LedgerEntry.Type type, long userId, String symbol, BigDecimal amount,
+                               BigDecimal price, BigDecimal totalValue, BigDecimal cashAfter,
+                               BigDecimal cryptoAfter) {
+        synchronized (journal) {
+            if (!running) {
+                throw new RuntimeException("Ledger is not accepting trades");
+            }
+            // Only this method adds to the queue, so a free slot now is still free below
+            if (pending.remainingCapacity() == 0) {
+                rejectedTrades.incrementAndGet();
+                logger.warn("Rejecting trade of user ID {}: {} ledger entries are waiting for the database",
+                        userId, pending.size());
+                throw new RuntimeException("Trading is temporarily unavailable, try again later");
+            }
+            LedgerEntry entry = new LedgerEntry(nextSequence, type, nextTransactionId, userId, symbol,
+                    amount, price, totalValue, cashAfter, cryptoAfter, System.currentTimeMillis());
+            try {
+                journal.append(entry);
+            } catch (IOException e) {
+                logger.error("Error appending to ledger journal: {}", e.getMessage(), e);
+                throw new RuntimeException("Unable to record the trade, try again");
+            }
+            nextSequence++;
+            nextTransactionId++;
+            pending.add(entry);
+            return entry;
+        }
+    }
+
+    private void flushLoop() {
+        List<LedgerEntry> batch = new ArrayList<>(flushBatch);
+        int attempts = 0;
+        while (running || !pending.isEmpty() || !batch.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    LedgerEntry first = pending.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    if (running) {
+                        // Let a burst accumulate into one batch
+                        Thread.sleep(flushIntervalMillis);
+                    }
+                }
+                pending.drainTo(batch, flushBatch - batch.size());
+                writer.write(batch);
+                journal.checkpoint(batch.get(batch.size() - 1).getSequence());
+                flushedEntries.addAndGet(batch.size());
+                batch.clear();
+                attempts = 0;
+            } catch (InterruptedException e) {
+                // Stopping: drain what is left
+            } catch (Exception e) {
+                flushFailures.incrementAndGet();
+                attempts++;
+                if (e instanceof DataIntegrityViolationException || attempts >= flushAttempts) {
+                    logger.error("Error writing {} ledger entries (attempt {}), writing them one by one: {}",
+                            batch.size(), attempts, e.getMessage());
+                    if (isolate(batch)) {
+                        attempts = 0;
+                        continue;
+                    }
+                } else {
+                    logger.error("Error writing {} ledger entries, retrying: {}", batch.size(), e.getMessage());
+                }
+                if (!running) {
+                    logger.error("Leaving {} entries in the ledger journal for replay on startup",
+                            batch.size() + pending.size());
+                    return;
+                }
+                sleepQuietly();
+            }
+        }
+    }
+
+    /**
+     * Write a failed batch one entry at a time, in order, quarantining entries the database
+     * rejects for their data. Stops at the first entry that fails for another reason, which
+     * points at the database rather than the entry; it stays at the head of the batch.
+     * @return true if the whole batch was written or quarantined
+     */
+    private boolean isolate(List<LedgerEntry> batch) {
+        long written = 0;
+        LedgerEntry last = null;
+        Iterator<LedgerEntry> it = batch.iterator();
+        try {
+            while (it.hasNext()) {
+                LedgerEntry entry = it.next();
+                try {
+                    writer.write(List.of(entry));
+                    written++;
+                } catch (DataIntegrityViolationException e) {
+                    journal.quarantine(List.of(entry));
+                    logger.error("Quarantined ledger entry {} ({} {} {} of user ID {}, transaction ID {}): {}",
+                            entry.getSequence(), entry.getType(), entry.getAmount(), entry.getSymbol(),
+                            entry.getUserId(), entry.getTransactionId(), e.getMessage());
+                }
+                last = entry;
+                it.remove();
+            }
+        } catch (Exception e) {
+            flushFailures.incrementAndGet();
+            logger.error("Error writing ledger entry {} on its own, retrying: {}",
+                    batch.isEmpty() ? -1 : batch.get(0).getSequence(), e.getMessage());
+        }
+        flushedEntries.addAndGet(written);
+        if (last != null) {
+            try {
+                journal.checkpoint(last.getSequence());
+            } catch (IOException e) {
+                logger.error("Error writing ledger checkpoint: {}", e.getMessage());
+            }
+        }
+        return batch.isEmpty();
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(Math.max(1000, flushIntervalMillis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        synchronized (journal) {
+            running = false;
+        }
+        if (flusher != null) {
+            flusher.interrupt();
+            try {
+                flusher.join(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.warn("Error closing ledger journal: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("accounts", accounts.size());
+        stats.put("pending", pending.size());
+        stats.put("flushed", flushedEntries.get());
+        stats.put("flushFailures", flushFailures.get());
+        stats.put("rejectedTrades", rejectedTrades.get());
+        stats.put("quarantined", journal.getQuarantined());
+        stats.put("checkpoint", journal.getCheckpoint());
+        stats.put("journalSegments", journal.getSegmentCount());
+        try {
+            stats.put("journalBytes", journal.size());
+        } catch (IOException e) {
+            stats.put("journalBytes", -1);
+        }
+        return stats;
+    }
+}
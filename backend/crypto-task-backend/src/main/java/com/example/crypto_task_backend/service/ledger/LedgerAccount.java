@@ -0,0 +1,61 @@
+package com.example.crypto_task_backend.service.ledger;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory balances of one user, the authoritative copy while the ledger is active.
+ * Amounts are kept at the scales of the MySQL columns so memory and database never
+ * disagree by a rounding. Callers hold the account's monitor across a check and update.
+ */
+final class LedgerAccount {
+
+    static final int CASH_SCALE = 2;
+    static final int CRYPTO_SCALE = 8;
+
+    private final long userId;
+    private BigDecimal cash;
+    private final Map<String, BigDecimal> crypto = new LinkedHashMap<>();
+
+    LedgerAccount(long userId, BigDecimal cash) {
+        this.userId = userId;
+        this.cash = cash(cash);
+    }
+
+    static BigDecimal cash(BigDecimal amount) {
+        return amount.setScale(CASH_SCALE, RoundingMode.HALF_UP);
+    }
+
+    static BigDecimal crypto(BigDecimal amount) {
+        return amount.setScale(CRYPTO_SCALE, RoundingMode.HALF_UP);
+    }
+
+    long getUserId() {
+        return userId;
+    }
+
+    BigDecimal getCash() {
+        return cash;
+    }
+
+    void setCash(BigDecimal cash) {
+        this.cash = cash;
+    }
+
+    BigDecimal getCrypto(String symbol) {
+        return crypto.getOrDefault(symbol, BigDecimal.ZERO);
+    }
+
+    void setCrypto(String symbol, BigDecimal balance) {
+        crypto.put(symbol, balance);
+    }
+
+    /**
+     * Balances by symbol, including zero balances of symbols once held
+     */
+    Map<String, BigDecimal> getCrypto() {
+        return crypto;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.crypto_task_backend.service.ledger;
+
+import com.example.crypto_task_backend.model.Transaction;
+import com.example.crypto_task_backend.model.User;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * One settled change to an account as written to the ledger journal. Balances are
+ * recorded as their values after the change rather than as deltas, so applying an entry
+ * to MySQL twice leaves the same state as applying it once.
+ */
+final class LedgerEntry {
+
+    enum Type {
+        BUY, SELL, RESET
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final long transactionId;
+    private final long userId;
+    private final String symbol;
+    private final BigDecimal amount;
+    private final BigDecimal price;
+    private final BigDecimal totalValue;
+    private final BigDecimal cashAfter;
+    private final BigDecimal cryptoAfter;
+    private final long epochMillis;
+
+    /**
+     * @param transactionId The id of the transaction row; for a reset, every transaction
+     * of the user below this id is deleted
+     * @param symbol The traded symbol, or null for a reset
+     */
+    LedgerEntry(long sequence, Type type, long transactionId, long userId, String symbol,
+                BigDecimal amount, BigDecimal price, BigDecimal totalValue,
+                BigDecimal cashAfter, BigDecimal cryptoAfter, long epochMillis) {
+        this.sequence = sequence;
+        this.type = type;
+        this.transactionId = transactionId;
+        this.userId = userId;
+        this.symbol = symbol;
+        this.amount = amount;
+        this.price = price;
+        this.totalValue = totalValue;
+        this.cashAfter = cashAfter;
+        this.cryptoAfter = cryptoAfter;
+        this.epochMillis = epochMillis;
+    }
+
+    byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(sequence);
+            out.writeByte(type.ordinal());
+            out.writeLong(transactionId);
+            out.writeLong(userId);
+            out.writeUTF(symbol != null ? symbol : "");
+            writeDecimal(out, amount);
+            writeDecimal(out, price);
+            writeDecimal(out, totalValue);
+            writeDecimal(out, cashAfter);
+            writeDecimal(out, cryptoAfter);
+            out.writeLong(epochMillis);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static LedgerEntry decode(DataInputStream in) throws IOException {
+        long sequence = in.readLong();
+        Type type = Type.values()[in.readUnsignedByte()];
+        long transactionId = in.readLong();
+        long userId = in.readLong();
+        String symbol = in.readUTF();
+        return new LedgerEntry(sequence, type, transactionId, userId, symbol.isEmpty() ? null : symbol,
+                readDecimal(in), readDecimal(in), readDecimal(in), readDecimal(in), readDecimal(in),
+                in.readLong());
+    }
+
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        out.writeUTF(value != null ? value.toPlainString() : "");
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        String value = in.readUTF();
+        return value.isEmpty() ? null : new BigDecimal(value);
+    }
+
+    /**
+     * The transaction as it will be stored, for BUY and SELL entries
+     */
+    Transaction toTransaction(User user) {
+        Transaction transaction = new Transaction(user, symbol,
+                type == Type.BUY ? Transaction.TransactionType.BUY : Transaction.TransactionType.SELL,
+                amount, price, totalValue);
+        transaction.setId(transactionId);
+        transaction.setTransactionDate(getTransactionDate());
+        return transaction;
+    }
+
+    LocalDateTime getTransactionDate() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    Type getType() {
+        return type;
+    }
+
+    long getTransactionId() {
+        return transactionId;
+    }
+
+    long getUserId() {
+        return userId;
+    }
+
+    String getSymbol() {
+        return symbol;
+    }
+
+    BigDecimal getAmount() {
+        return amount;
+    }
+
+    BigDecimal getPrice() {
+        return price;
+    }
+
+    BigDecimal getTotalValue() {
+        return totalValue;
+    }
+
+    BigDecimal getCashAfter() {
+        return cashAfter;
+    }
+
+    BigDecimal getCryptoAfter() {
+        return cryptoAfter;
+    }
+}
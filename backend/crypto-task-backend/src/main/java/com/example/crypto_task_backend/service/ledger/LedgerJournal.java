@@ -0,0 +1,274 @@
+package com.example.crypto_task_backend.service.ledger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only ledger entries in segment files, plus a checkpoint file holding the
+ * sequence of the last entry written to MySQL. Each record is an int length, the CRC32
+ * of the payload and the payload; a record cut short by a crash fails its length or
+ * checksum and is truncated on open. A segment is named after the sequence of its first
+ * entry and rolls once it reaches the segment size; every segment whose entries are all
+ * checkpointed is deleted, so the journal only holds what MySQL has not seen yet plus
+ * the current segment, and startup reads no more than that.
+ * <p>
+ * Entries MySQL rejects for good are moved to a quarantine file in the same record format.
+ */
+final class LedgerJournal {
+    private static final Logger logger = LoggerFactory.getLogger(LedgerJournal.class);
+
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_ENTRY_SIZE = 64 * 1024;
+    // First sequence of a journal written before segmentation, which sorts it first
+    private static final long LEGACY_SEGMENT = 0;
+
+    private final Path file;
+    private final Path checkpointFile;
+    private final Path quarantineFile;
+    private final boolean fsync;
+    private final long segmentBytes;
+    private final CRC32 crc = new CRC32();
+    // First sequence to segment file, oldest first; the last one is being appended to
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private FileChannel channel;
+    private long checkpoint;
+    private long lastSequence;
+    private long quarantined;
+
+    /**
+     * @param file Base name of the segment, checkpoint and quarantine files
+     * @param fsync Force every append to the device; without it entries survive a process
+     * crash but not a power loss
+     * @param segmentBytes Size at which the current segment is closed and a new one started
+     */
+    LedgerJournal(Path file, boolean fsync, long segmentBytes) {
+        this.file = file;
+        this.checkpointFile = file.resolveSibling(file.getFileName() + ".checkpoint");
+        this.quarantineFile = file.resolveSibling(file.getFileName() + ".quarantine");
+        this.fsync = fsync;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Open the journal for appending, deleting segments that are already checkpointed
+     * @return The entries after the checkpoint, in sequence order
+     */
+    synchronized List<LedgerEntry> open() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        checkpoint = Files.exists(checkpointFile)
+                ? Long.parseLong(Files.readString(checkpointFile, StandardCharsets.US_ASCII).trim())
+                : 0;
+        lastSequence = checkpoint;
+
+        segments.clear();
+        if (Files.exists(file)) {
+            segments.put(LEGACY_SEGMENT, file);
+        }
+        String prefix = file.getFileName() + ".";
+        try (Stream<Path> files = Files.list(parent)) {
+            files.forEach(path -> {
+                String name = path.getFileName().toString();
+                if (name.startsWith(prefix) && name.length() > prefix.length()
+                        && name.substring(prefix.length()).chars().allMatch(Character::isDigit)) {
+                    segments.put(Long.parseLong(name.substring(prefix.length())), path);
+                }
+            });
+        }
+        deleteCheckpointed(false);
+
+        List<LedgerEntry> pending = new ArrayList<>();
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            boolean last = segment.getKey().equals(segments.lastKey());
+            FileChannel segmentChannel = FileChannel.open(segment.getValue(), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long validBytes = read(segmentChannel, pending);
+            if (segmentChannel.size() > validBytes) {
+                logger.warn("Truncating {} bytes of incomplete ledger journal records in {}",
+                        segmentChannel.size() - validBytes, segment.getValue().getFileName());
+                segmentChannel.truncate(validBytes);
+            }
+            if (last && segment.getKey() != LEGACY_SEGMENT) {
+                segmentChannel.position(validBytes);
+                channel = segmentChannel;
+            } else {
+                segmentChannel.close();
+            }
+        }
+        logger.info("Opened ledger journal {}: checkpoint {}, {} segment(s), {} entries to replay", file,
+                checkpoint, segments.size(), pending.size());
+        return pending;
+    }
+
+    /**
+     * Read the valid records of a segment, collecting the entries after the checkpoint
+     * @return Bytes of valid records at the start of the segment
+     */
+    private long read(FileChannel segmentChannel, List<LedgerEntry> pending) throws IOException {
+        long validBytes = 0;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(segmentChannel), 65536));
+        try {
+            while (true) {
+                int length = in.readInt();
+                long expected = in.readInt() & 0xFFFFFFFFL;
+                if (length <= 0 || length > MAX_ENTRY_SIZE) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload, 0, length);
+                if (crc.getValue() != expected) {
+                    break;
+                }
+                LedgerEntry entry = LedgerEntry.decode(new DataInputStream(new ByteArrayInputStream(payload)));
+                validBytes += HEADER_SIZE + length;
+                lastSequence = Math.max(lastSequence, entry.getSequence());
+                if (entry.getSequence() > checkpoint) {
+                    pending.add(entry);
+                }
+            }
+        } catch (EOFException e) {
+            // End of the segment, or a record cut short
+        }
+        return validBytes;
+    }
+
+    /**
+     * Append an entry, starting a new segment if the current one is full;
+     * it is durable against a process crash once this returns
+     */
+    synchronized void append(LedgerEntry entry) throws IOException {
+        if (channel == null || channel.size() >= segmentBytes) {
+            roll(entry.getSequence());
+        }
+        write(channel, entry);
+        if (fsync) {
+            channel.force(false);
+        }
+        lastSequence = entry.getSequence();
+    }
+
+    private void write(FileChannel target, LedgerEntry entry) throws IOException {
+        byte[] payload = entry.encode();
+        crc.reset();
+        crc.update(payload, 0, payload.length);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        while (record.hasRemaining()) {
+            target.write(record);
+        }
+    }
+
+    private void roll(long firstSequence) throws IOException {
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+        }
+        Path segment = file.resolveSibling(String.format("%s.%020d", file.getFileName(), firstSequence));
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segments.put(firstSequence, segment);
+        logger.info("Rolled ledger journal to segment {}", segment.getFileName());
+    }
+
+    /**
+     * Record that every entry up to a sequence is in MySQL, and delete the segments
+     * that hold nothing newer
+     */
+    synchronized void checkpoint(long sequence) throws IOException {
+        Path temporary = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        Files.writeString(temporary, Long.toString(sequence), StandardCharsets.US_ASCII);
+        Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        checkpoint = sequence;
+        deleteCheckpointed(true);
+    }
+
+    /**
+     * Delete every segment whose successor starts at or below checkpoint + 1. The newest
+     * segment is kept for appending, unless it is a legacy journal that has been read and
+     * is fully checkpointed.
+     * @param read Whether the entries of the segments have been read
+     */
+    private void deleteCheckpointed(boolean read) throws IOException {
+        Iterator<Map.Entry<Long, Path>> it = segments.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Path> segment = it.next();
+            Long next = segments.higherKey(segment.getKey());
+            boolean checkpointed = next != null
+                    ? next - 1 <= checkpoint
+                    : read && segment.getKey() == LEGACY_SEGMENT && lastSequence <= checkpoint;
+            if (!checkpointed) {
+                break;
+            }
+            Files.deleteIfExists(segment.getValue());
+            it.remove();
+            logger.debug("Deleted checkpointed ledger journal segment {}", segment.getValue().getFileName());
+        }
+    }
+
+    /**
+     * Set aside entries that MySQL keeps rejecting, so the flush can move past them
+     */
+    synchronized void quarantine(List<LedgerEntry> entries) throws IOException {
+        try (FileChannel target = FileChannel.open(quarantineFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            for (LedgerEntry entry : entries) {
+                write(target, entry);
+            }
+            target.force(false);
+        }
+        quarantined += entries.size();
+    }
+
+    synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    synchronized long getCheckpoint() {
+        return checkpoint;
+    }
+
+    synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    synchronized long getQuarantined() {
+        return quarantined;
+    }
+
+    synchronized long size() throws IOException {
+        long size = 0;
+        for (Path segment : segments.values()) {
+            size += Files.size(segment);
+        }
+        return size;
+    }
+
+    synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.crypto_task_backend.service.ledger;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a batch of ledger entries to MySQL in one database transaction with a few
+ * JDBC batches. Balances are coalesced to their latest value per user and per symbol,
+ * so a burst of trades on one account costs one row update. Every statement is
+ * idempotent, which makes replaying entries after a crash safe.
+ */
+final class LedgerWriter {
+
+    private static final String DELETE_TRANSACTIONS =
+            "DELETE FROM transactions WHERE user_id = ? AND id < ?";
+    private static final String CLEAR_BALANCES =
+            "UPDATE user_balances SET balance = 0, version = version + 1 WHERE user_id = ?";
+    private static final String INSERT_TRANSACTION =
+            "INSERT IGNORE INTO transactions (id, user_id, crypto_symbol, transaction_type, amount, price, "
+                    + "total_value, transaction_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_CASH =
+            "UPDATE users SET balance = ?, version = version + 1 WHERE id = ?";
+    private static final String UPSERT_BALANCE =
+            "INSERT INTO user_balances (user_id, crypto_symbol, balance, updated_at) VALUES (?, ?, ?, ?) "
+                    + "ON DUPLICATE KEY UPDATE balance = VALUES(balance), updated_at = VALUES(updated_at), "
+                    + "version = version + 1";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    LedgerWriter(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * @param entries Entries in sequence order
+     */
+    void write(List<LedgerEntry> entries) {
+        Map<Long, Long> resets = new LinkedHashMap<>();
+        List<LedgerEntry> trades = new ArrayList<>(entries.size());
+        Map<Long, BigDecimal> cash = new LinkedHashMap<>();
+        Map<Long, Map<String, Object[]>> balances = new LinkedHashMap<>();
+
+        for (LedgerEntry entry : entries) {
+            long userId = entry.getUserId();
+            cash.put(userId, entry.getCashAfter());
+            if (entry.getType() == LedgerEntry.Type.RESET) {
+                resets.put(userId, entry.getTransactionId());
+                // Earlier balances of the batch are superseded by the reset
+                balances.remove(userId);
+                continue;
+            }
+            trades.add(entry);
+            balances.computeIfAbsent(userId, id -> new HashMap<>()).put(entry.getSymbol(), new Object[]{
+                    userId, entry.getSymbol(), entry.getCryptoAfter(), Timestamp.valueOf(entry.getTransactionDate())});
+        }
+
+        List<Object[]> transactionRows = new ArrayList<>(trades.size());
+        for (LedgerEntry trade : trades) {
+            Long reset = resets.get(trade.getUserId());
+            if (reset != null && trade.getTransactionId() < reset) {
+                continue;
+            }
+            transactionRows.add(new Object[]{trade.getTransactionId(), trade.getUserId(), trade.getSymbol(),
+                    trade.getType().name(), trade.getAmount(), trade.getPrice(), trade.getTotalValue(),
+                    Timestamp.valueOf(trade.getTransactionDate())});
+        }
+        List<Object[]> cashRows = new ArrayList<>(cash.size());
+        cash.forEach((userId, balance) -> cashRows.add(new Object[]{balance, userId}));
+        List<Object[]> balanceRows = new ArrayList<>();
+        balances.values().forEach(bySymbol -> balanceRows.addAll(bySymbol.values()));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            resets.forEach((userId, marker) -> {
+                jdbcTemplate.update(DELETE_TRANSACTIONS, userId, marker);
+                jdbcTemplate.update(CLEAR_BALANCES, userId);
+            });
+            if (!transactionRows.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_TRANSACTION, transactionRows);
+            }
+            jdbcTemplate.batchUpdate(UPDATE_CASH, cashRows);
+            if (!balanceRows.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPSERT_BALANCE, balanceRows);
+            }
+        });
+    }
+
+    /**
+     * Highest transaction id in MySQL, or 0 if there are none
+     */
+    long maxTransactionId() {
+        Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM transactions", Long.class);
+        return max != null ? max : 0;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.crypto_task_backend.service.lots;
+
+/**
+ * How the cost of sold crypto is matched against earlier buys
+ */
+public enum CostBasisMethod {
+    /** Oldest open lots are sold first */
+    FIFO("fifo"),
+    /** Every sale leaves at the position's average cost */
+    AVERAGE("average");
+
+    private final String code;
+
+    CostBasisMethod(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * @return The method, or null if the code is not fifo or average
+     */
+    public static CostBasisMethod fromCode(String code) {
+        for (CostBasisMethod method : values()) {
+            if (method.code.equalsIgnoreCase(code)) {
+                return method;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.crypto_task_backend.service.lots;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+
+/**
+ * Open lots of one symbol in one account, with running quantity, cost and realised P&L.
+ * FIFO keeps a queue of lots: a buy appends one and a sell consumes from the head, whole
+ * lots are removed and at most one is split, so each lot is added and removed once and a
+ * sell costs amortised O(1). Average cost keeps no lots, only the totals. Not
+ * thread-safe; {@link UserLots} guards access.
+ */
+final class LotBook {
+
+    // Decimals of the cost split off a partially sold lot or average position
+    static final int COST_SCALE = 8;
+
+    private final CostBasisMethod method;
+    private final ArrayDeque<Lot> lots = new ArrayDeque<>();
+    private BigDecimal quantity = BigDecimal.ZERO;
+    private BigDecimal cost = BigDecimal.ZERO;
+    private BigDecimal realisedPnl = BigDecimal.ZERO;
+
+    LotBook(CostBasisMethod method) {
+        this.method = method;
+    }
+
+    void buy(BigDecimal amount, BigDecimal totalCost) {
+        quantity = quantity.add(amount);
+        cost = cost.add(totalCost);
+        if (method == CostBasisMethod.FIFO) {
+            lots.addLast(new Lot(amount, totalCost));
+        }
+    }
+
+    /**
+     * Close the sold quantity against the open lots and realise the difference to the
+     * proceeds. A sale larger than the open quantity, which only a history that predates
+     * lot tracking can produce, realises the uncovered part at zero cost.
+     */
+    void sell(BigDecimal amount, BigDecimal proceeds) {
+        BigDecimal covered = amount.min(quantity);
+        BigDecimal soldCost;
+        if (covered.compareTo(quantity) == 0) {
+            soldCost = cost;
+            lots.clear();
+        } else if (method == CostBasisMethod.FIFO) {
+            soldCost = consume(covered);
+        } else {
+            soldCost = cost.multiply(covered).divide(quantity, COST_SCALE, RoundingMode.HALF_UP);
+        }
+        quantity = quantity.subtract(covered);
+        cost = quantity.signum() == 0 ? BigDecimal.ZERO : cost.subtract(soldCost);
+        realisedPnl = realisedPnl.add(proceeds).subtract(soldCost);
+    }
+
+    /**
+     * Remove the quantity from the head of the queue
+     * @return The cost of the removed quantity
+     */
+    private BigDecimal consume(BigDecimal amount) {
+        BigDecimal remaining = amount;
+        BigDecimal consumed = BigDecimal.ZERO;
+        while (remaining.signum() > 0) {
+            Lot lot = lots.peekFirst();
+            if (lot.quantity.compareTo(remaining) <= 0) {
+                lots.pollFirst();
+                remaining = remaining.subtract(lot.quantity);
+                consumed = consumed.add(lot.cost);
+            } else {
+                BigDecimal part = lot.cost.multiply(remaining).divide(lot.quantity, COST_SCALE, RoundingMode.HALF_UP);
+                lot.quantity = lot.quantity.subtract(remaining);
+                lot.cost = lot.cost.subtract(part);
+                consumed = consumed.add(part);
+                remaining = BigDecimal.ZERO;
+            }
+        }
+        return consumed;
+    }
+
+    LotSummary toSummary(String symbol) {
+        return new LotSummary(symbol, quantity, cost, realisedPnl, lots.size());
+    }
+
+    BigDecimal getRealisedPnl() {
+        return realisedPnl;
+    }
+
+    private static final class Lot {
+        private BigDecimal quantity;
+        private BigDecimal cost;
+
+        private Lot(BigDecimal quantity, BigDecimal cost) {
+            this.quantity = quantity;
+            this.cost = cost;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.crypto_task_backend.service.lots;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Point-in-time cost basis and realised P&L of one symbol in one account
+ */
+public final class LotSummary {
+    private final String symbol;
+    private final BigDecimal quantity;
+    private final BigDecimal costBasis;
+    private final BigDecimal realisedPnl;
+    private final int openLots;
+
+    LotSummary(String symbol, BigDecimal quantity, BigDecimal costBasis, BigDecimal realisedPnl, int openLots) {
+        this.symbol = symbol;
+        this.quantity = quantity;
+        this.costBasis = costBasis;
+        this.realisedPnl = realisedPnl;
+        this.openLots = openLots;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public BigDecimal getQuantity() {
+        return quantity;
+    }
+
+    public BigDecimal getCostBasis() {
+        return costBasis;
+    }
+
+    public BigDecimal getRealisedPnl() {
+        return realisedPnl;
+    }
+
+    /**
+     * Number of FIFO lots still open; always 0 under average cost
+     */
+    public int getOpenLots() {
+        return openLots;
+    }
+
+    /**
+     * Cost per unit of the open quantity, or null if nothing is held
+     */
+    public BigDecimal getAverageCost() {
+        return quantity.signum() == 0 ? null
+                : costBasis.divide(quantity, LotBook.COST_SCALE, RoundingMode.HALF_UP);
+    }
+}
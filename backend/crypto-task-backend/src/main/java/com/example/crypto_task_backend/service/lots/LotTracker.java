@@ -0,0 +1,244 @@
+package com.example.crypto_task_backend.service.lots;
+
+import com.example.crypto_task_backend.dto.TransactionResponse;
+import com.example.crypto_task_backend.model.Transaction;
+import com.example.crypto_task_backend.repository.TransactionRepository;
+import com.example.crypto_task_backend.repository.UserRepository;
+import com.example.crypto_task_backend.service.concurrency.UserLocks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cost basis and realised P&L per user and symbol, kept as FIFO lots or at average cost
+ * (crypto.lots.method). An account's lots are built once from its transaction history and
+ * then updated by each settled trade, so a sell never replays history. A backfill builds
+ * every account in parallel on a fork/join pool after startup; accounts it has not reached
+ * yet are built on first use.
+ */
+@Component
+public class LotTracker {
+    private static final Logger logger = LoggerFactory.getLogger(LotTracker.class);
+
+    // Accounts built by one fork/join leaf; each costs a history query
+    private static final int BACKFILL_BATCH = 16;
+
+    private final TransactionRepository transactionRepository;
+    private final UserRepository userRepository;
+    private final UserLocks userLocks;
+    private final CostBasisMethod method;
+    private final int parallelism;
+    private final boolean backfillOnStartup;
+
+    private final Map<Long, UserLots> accounts = new ConcurrentHashMap<>();
+    private final AtomicBoolean backfilling = new AtomicBoolean();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong built = new AtomicLong();
+    private volatile long lastBackfillMillis = -1;
+
+    @Autowired
+    public LotTracker(TransactionRepository transactionRepository,
+                      UserRepository userRepository,
+                      UserLocks userLocks,
+                      @Value("${crypto.lots.method:fifo}") String method,
+                      @Value("${crypto.lots.backfill.parallelism:0}") int parallelism,
+                      @Value("${crypto.lots.backfill.on-startup:true}") boolean backfillOnStartup) {
+        this.transactionRepository = transactionRepository;
+        this.userRepository = userRepository;
+        this.userLocks = userLocks;
+        this.method = CostBasisMethod.fromCode(method);
+        if (this.method == null) {
+            throw new IllegalArgumentException("crypto.lots.method must be fifo or average, not " + method);
+        }
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.backfillOnStartup = backfillOnStartup;
+    }
+
+    /**
+     * Apply a settled buy or sell to the user's lots.
+     * Must be called under the user's trade lock, in settlement order.
+     */
+    public void onTrade(Long userId, Transaction transaction) {
+        // Building the lots from history may already cover the trade; its id tells
+        boolean buy = transaction.getTransactionType() == Transaction.TransactionType.BUY;
+        if (lots(userId).apply(transaction.getId(), transaction.getCryptoSymbol(), buy,
+                transaction.getAmount(), transaction.getTotalValue())) {
+            applied.incrementAndGet();
+        }
+    }
+
+    /**
+     * Drop the user's lots and realised P&L along with the reset history.
+     * Must be called under the user's trade lock.
+     */
+    public void onReset(Long userId) {
+        // The account has no history left to build from
+        accounts.put(userId, new UserLots(method));
+    }
+
+    /**
+     * Cost basis of one symbol
+     * @return The summary, or null if the user has not traded the symbol since the last reset
+     */
+    public LotSummary getSummary(Long userId, String symbol) {
+        return lots(userId).getSummary(symbol);
+    }
+
+    /**
+     * Cost basis of every symbol traded since the last reset, closed positions included
+     */
+    public Map<String, LotSummary> getSummaries(Long userId) {
+        return lots(userId).getSummaries();
+    }
+
+    /**
+     * Realised P&L over all symbols since the last reset
+     */
+    public BigDecimal getRealisedPnl(Long userId) {
+        return lots(userId).getRealisedPnl();
+    }
+
+    public CostBasisMethod getMethod() {
+        return method;
+    }
+
+    private UserLots lots(Long userId) {
+        UserLots lots = accounts.get(userId);
+        if (lots != null) {
+            return lots;
+        }
+        return userLocks.withLock(userId, () -> load(userId));
+    }
+
+    /**
+     * The account's lots, built from history if it has none yet. Callers hold the trade
+     * lock, so no trade settles between the history read and the put.
+     */
+    private UserLots load(Long userId) {
+        UserLots lots = accounts.get(userId);
+        if (lots == null) {
+            lots = build(userId);
+            accounts.put(userId, lots);
+            built.incrementAndGet();
+        }
+        return lots;
+    }
+
+    /**
+     * Replay an account's history, oldest first
+     */
+    private UserLots build(Long userId) {
+        UserLots lots = new UserLots(method);
+        List<TransactionResponse> history = transactionRepository.findResponsesByUserId(userId);
+        for (int i = history.size() - 1; i >= 0; i--) {
+            TransactionResponse transaction = history.get(i);
+            lots.apply(transaction.getId(), transaction.getCryptoSymbol(),
+                    Transaction.TransactionType.BUY.name().equals(transaction.getTransactionType()),
+                    transaction.getAmount(), transaction.getTotalValue());
+        }
+        return lots;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                backfill();
+            } catch (RuntimeException e) {
+                logger.error("Lot backfill failed: {}", e.getMessage(), e);
+            }
+        }, "lot-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Build the lots of every account from its history, in parallel across accounts.
+     * Each account is built under its trade lock, so trades keep settling meanwhile.
+     * Accounts that already have lots are kept, trades have been applied to them since.
+     * @return Number of accounts built
+     * @throws IllegalStateException If a backfill is already running
+     */
+    public int backfill() {
+        if (!backfilling.compareAndSet(false, true)) {
+            throw new IllegalStateException("Lot backfill already running");
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            long start = System.nanoTime();
+            List<Long> userIds = userRepository.findAllIds();
+            int count = pool.invoke(new BackfillTask(userIds, 0, userIds.size()));
+            lastBackfillMillis = (System.nanoTime() - start) / 1_000_000;
+            logger.info("Built {} lots of {} accounts in {} ms on {} threads", method, count,
+                    lastBackfillMillis, parallelism);
+            return count;
+        } finally {
+            pool.shutdown();
+            backfilling.set(false);
+        }
+    }
+
+
+    /**
+     * Splits the account ids in halves down to {@link #BACKFILL_BATCH} per leaf
+     */
+    private final class BackfillTask extends RecursiveTask<Integer> {
+        private final List<Long> userIds;
+        private final int from;
+        private final int to;
+
+        private BackfillTask(List<Long> userIds, int from, int to) {
+            this.userIds = userIds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= BACKFILL_BATCH) {
+                int count = 0;
+                for (int i = from; i < to; i++) {
+                    Long userId = userIds.get(i);
+                    if (!accounts.containsKey(userId)) {
+                        userLocks.withLock(userId, () -> load(userId));
+                        count++;
+                    }
+                }
+                return count;
+            }
+            int middle = (from + to) >>> 1;
+            BackfillTask left = new BackfillTask(userIds, from, middle);
+            left.fork();
+            int right = new BackfillTask(userIds, middle, to).compute();
+            return left.join() + right;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("method", method.getCode());
+        stats.put("accounts", accounts.size());
+        stats.put("tradesApplied", applied.get());
+        stats.put("accountsBuilt", built.get());
+        stats.put("backfillRunning", backfilling.get());
+        stats.put("lastBackfillMillis", lastBackfillMillis);
+        return stats;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.crypto_task_backend.service.lots;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Lot books of one account, keyed by symbol. Remembers the last transaction applied so a
+ * trade that is already part of the history it was built from is not applied twice.
+ * Guarded by this; writers also hold the user's trade lock.
+ */
+final class UserLots {
+
+    private final CostBasisMethod method;
+    private final Map<String, LotBook> books = new TreeMap<>();
+    private long lastTransactionId;
+
+    UserLots(CostBasisMethod method) {
+        this.method = method;
+    }
+
+    /**
+     * Apply a buy or sell in transaction order
+     * @return false if the transaction was already applied
+     */
+    synchronized boolean apply(long transactionId, String symbol, boolean buy, BigDecimal amount,
+                               BigDecimal totalValue) {
+        if (transactionId <= lastTransactionId) {
+            return false;
+        }
+        lastTransactionId = transactionId;
+        LotBook book = books.computeIfAbsent(symbol, s -> new LotBook(method));
+        if (buy) {
+            book.buy(amount, totalValue);
+        } else {
+            book.sell(amount, totalValue);
+        }
+        return true;
+    }
+
+    synchronized LotSummary getSummary(String symbol) {
+        LotBook book = books.get(symbol);
+        return book != null ? book.toSummary(symbol) : null;
+    }
+
+    /**
+     * @return Every symbol ever traded since the last reset, including closed positions
+     */
+    synchronized Map<String, LotSummary> getSummaries() {
+        Map<String, LotSummary> summaries = new LinkedHashMap<>();
+        for (Map.Entry<String, LotBook> entry : books.entrySet()) {
+            summaries.put(entry.getKey(), entry.getValue().toSummary(entry.getKey()));
+        }
+        return summaries;
+    }
+
+    synchronized BigDecimal getRealisedPnl() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (LotBook book : books.values()) {
+            total = total.add(book.getRealisedPnl());
+        }
+        return total;
+    }
+}
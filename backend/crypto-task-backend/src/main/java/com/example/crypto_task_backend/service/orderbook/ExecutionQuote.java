@@ -0,0 +1,129 @@
+package com.example.crypto_task_backend.service.orderbook;
+
+import com.example.crypto_task_backend.util.FixedPoint;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Result of walking one side of an order book for a quantity: filled volume, the levels
+ * consumed and the notional, accumulated as a 128-bit integer so the walk itself never
+ * overflows or allocates. BigDecimal views are only built when asked for.
+ */
+public final class ExecutionQuote {
+
+    private String symbol;
+    private boolean buy;
+    private int priceScale;
+    private int volumeScale;
+    private long requestedUnits;
+    private long filledUnits;
+    private int levels;
+    private long bestPrice;
+    private long worstPrice;
+    // Sum of price * volume at scale priceScale + volumeScale, as an unsigned 128-bit value
+    private long notionalHigh;
+    private long notionalLow;
+
+    void reset(String symbol, boolean buy, long requestedUnits, int priceScale, int volumeScale) {
+        this.symbol = symbol;
+        this.buy = buy;
+        this.requestedUnits = requestedUnits;
+        this.priceScale = priceScale;
+        this.volumeScale = volumeScale;
+        this.filledUnits = 0;
+        this.levels = 0;
+        this.bestPrice = FixedPoint.NONE;
+        this.worstPrice = FixedPoint.NONE;
+        this.notionalHigh = 0;
+        this.notionalLow = 0;
+    }
+
+    void fill(long price, long volume) {
+        if (levels == 0) {
+            bestPrice = price;
+        }
+        worstPrice = price;
+        levels++;
+        filledUnits += volume;
+        long low = price * volume;
+        long high = Math.multiplyHigh(price, volume);
+        long sum = notionalLow + low;
+        if (Long.compareUnsigned(sum, low) < 0) {
+            high++;
+        }
+        notionalLow = sum;
+        notionalHigh += high;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public boolean isBuy() {
+        return buy;
+    }
+
+    /**
+     * Whether the book had enough depth for the whole quantity
+     */
+    public boolean isFilled() {
+        return filledUnits >= requestedUnits;
+    }
+
+    public int getLevels() {
+        return levels;
+    }
+
+    public BigDecimal getRequested() {
+        return FixedPoint.toBigDecimal(requestedUnits, volumeScale);
+    }
+
+    public BigDecimal getFilled() {
+        return FixedPoint.toBigDecimal(filledUnits, volumeScale);
+    }
+
+    public BigDecimal getBestPrice() {
+        return FixedPoint.toBigDecimal(bestPrice, priceScale);
+    }
+
+    public BigDecimal getWorstPrice() {
+        return FixedPoint.toBigDecimal(worstPrice, priceScale);
+    }
+
+    /**
+     * Total cost (buy) or proceeds (sell) of the filled volume, exact
+     */
+    public BigDecimal getNotional() {
+        BigInteger unscaled = BigInteger.valueOf(notionalHigh).shiftLeft(64)
+                .add(new BigInteger(Long.toUnsignedString(notionalLow)));
+        return new BigDecimal(unscaled, priceScale + volumeScale);
+    }
+
+    /**
+     * Volume-weighted average fill price
+     * @param scale Decimals of the result, rounded half-up
+     * @return The price, or null if nothing was filled
+     */
+    public BigDecimal getAveragePrice(int scale) {
+        if (filledUnits == 0) {
+            return null;
+        }
+        return getNotional().divide(getFilled(), scale, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Slippage of the average fill against the best level in basis points; positive
+     * means a worse price than the top of the book
+     */
+    public BigDecimal getSlippageBps() {
+        if (filledUnits == 0) {
+            return null;
+        }
+        BigDecimal best = getBestPrice();
+        BigDecimal average = getAveragePrice(priceScale + 4);
+        BigDecimal difference = buy ? average.subtract(best) : best.subtract(average);
+        return difference.multiply(BigDecimal.valueOf(10_000)).divide(best, 2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.crypto_task_backend.service.orderbook;
+
+import com.example.crypto_task_backend.dto.OrderBookLevel;
+import com.example.crypto_task_backend.dto.OrderBookResponse;
+import com.example.crypto_task_backend.service.websocket.KrakenFrame;
+import com.example.crypto_task_backend.util.FixedPoint;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Local L2 order book of one pair, kept in step with Kraken's book channel.
+ * Prices and volumes are scaled longs at the decimals Kraken sends for the pair, so the
+ * digits needed for the CRC32 checksum come straight from the stored values. Applying a
+ * snapshot or update allocates nothing; reads copy out under the same monitor.
+ */
+public final class OrderBook {
+
+    /** Levels per side covered by Kraken's book checksum */
+    static final int CHECKSUM_LEVELS = 10;
+
+    private final String symbol;
+    private final OrderBookSide asks;
+    private final OrderBookSide bids;
+    private final CRC32 crc = new CRC32();
+    private final byte[] checksumBuffer = new byte[CHECKSUM_LEVELS * 2 * 2 * 19];
+    private int priceScale = -1;
+    private int volumeScale = FixedPoint.VOLUME_SCALE;
+    private boolean synced;
+    private long updateTimeMillis;
+
+    OrderBook(String symbol, int depth) {
+        this.symbol = symbol;
+        this.asks = new OrderBookSide(true, depth);
+        this.bids = new OrderBookSide(false, depth);
+    }
+
+    /**
+     * Replace the book with a snapshot; its decimals become the book's scales
+     */
+    synchronized void applySnapshot(KrakenFrame.BookLevels askLevels, KrakenFrame.BookLevels bidLevels) {
+        asks.clear();
+        bids.clear();
+        KrakenFrame.BookLevels first = askLevels.size() > 0 ? askLevels : bidLevels;
+        if (first.size() > 0) {
+            priceScale = first.priceScale(0);
+            volumeScale = first.volumeScale(0);
+        }
+        applyLevels(asks, askLevels);
+        applyLevels(bids, bidLevels);
+        synced = priceScale >= 0;
+        updateTimeMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Apply an incremental update and verify its checksum
+     * @param checksum Kraken's CRC32 of the top levels after the update, or -1 if absent
+     * @return false if the checksum did not match; the book then stays out of sync until
+     * the next snapshot
+     */
+    synchronized boolean applyUpdate(KrakenFrame.BookLevels askLevels, KrakenFrame.BookLevels bidLevels,
+                                     long checksum) {
+        if (priceScale < 0) {
+            return false;
+        }
+        applyLevels(asks, askLevels);
+        applyLevels(bids, bidLevels);
+        updateTimeMillis = System.currentTimeMillis();
+        if (checksum >= 0 && checksum != checksum()) {
+            synced = false;
+            return false;
+        }
+        return true;
+    }
+
+    private void applyLevels(OrderBookSide side, KrakenFrame.BookLevels levels) {
+        for (int i = 0; i < levels.size(); i++) {
+            long price = FixedPoint.rescale(levels.price(i), levels.priceScale(i), priceScale);
+            long volume = FixedPoint.rescale(levels.volume(i), levels.volumeScale(i), volumeScale);
+            side.apply(price, volume);
+        }
+    }
+
+    /**
+     * Kraken's book checksum: for the top ten asks, then the top ten bids, the price and
+     * volume digits with the decimal point and leading zeros removed, concatenated and
+     * run through CRC32
+     */
+    synchronized long checksum() {
+        int length = appendLevels(asks, 0);
+        length = appendLevels(bids, length);
+        crc.reset();
+        crc.update(checksumBuffer, 0, length);
+        return crc.getValue();
+    }
+
+    private int appendLevels(OrderBookSide side, int position) {
+        int levels = Math.min(CHECKSUM_LEVELS, side.size());
+        for (int i = 0; i < levels; i++) {
+            position = appendDigits(side.price(i), position);
+            position = appendDigits(side.volume(i), position);
+        }
+        return position;
+    }
+
+    private int appendDigits(long value, int position) {
+        int start = position;
+        do {
+            checksumBuffer[position++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        for (int i = start, j = position - 1; i < j; i++, j--) {
+            byte digit = checksumBuffer[i];
+            checksumBuffer[i] = checksumBuffer[j];
+            checksumBuffer[j] = digit;
+        }
+        return position;
+    }
+
+    /**
+     * Walk the asks (buy) or bids (sell) from the best level until the quantity is filled
+     * or the side is exhausted. Allocates nothing; cost grows with the levels consumed.
+     * @param quantity Quantity in units at the book's volume scale
+     * @param quote Receives the fills
+     * @return false if the book is not in sync, in which case the quote is empty
+     */
+    synchronized boolean walk(boolean buy, long quantity, ExecutionQuote quote) {
+        quote.reset(symbol, buy, quantity, priceScale, volumeScale);
+        if (!synced) {
+            return false;
+        }
+        OrderBookSide side = buy ? asks : bids;
+        long remaining = quantity;
+        for (int i = 0; i < side.size() && remaining > 0; i++) {
+            long fill = Math.min(remaining, side.volume(i));
+            quote.fill(side.price(i), fill);
+            remaining -= fill;
+        }
+        return true;
+    }
+
+    /**
+     * Copy the best levels of both sides
+     * @param levels Maximum levels per side
+     */
+    public synchronized OrderBookResponse toResponse(int levels) {
+        return new OrderBookResponse(symbol, updateTimeMillis, synced, copy(asks, levels), copy(bids, levels));
+    }
+
+    private List<OrderBookLevel> copy(OrderBookSide side, int levels) {
+        int count = Math.min(levels, side.size());
+        List<OrderBookLevel> copy = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            copy.add(new OrderBookLevel(FixedPoint.toBigDecimal(side.price(i), priceScale),
+                    FixedPoint.toBigDecimal(side.volume(i), volumeScale)));
+        }
+        return copy;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public synchronized boolean isSynced() {
+        return synced;
+    }
+
+    public synchronized int getPriceScale() {
+        return priceScale;
+    }
+
+    public synchronized int getVolumeScale() {
+        return volumeScale;
+    }
+}
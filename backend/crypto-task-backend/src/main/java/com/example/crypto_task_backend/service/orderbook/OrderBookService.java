@@ -0,0 +1,137 @@
+package com.example.crypto_task_backend.service.orderbook;
+
+import com.example.crypto_task_backend.config.KrakenWebSocketConfig;
+import com.example.crypto_task_backend.dto.OrderBookResponse;
+import com.example.crypto_task_backend.service.websocket.KrakenFrame;
+import com.example.crypto_task_backend.util.FixedPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local L2 order books built from Kraken's book channel, one per pair.
+ * Snapshots and updates are applied on the ingest consumers; a failed checksum marks the
+ * book out of sync and asks the caller to resubscribe for a fresh snapshot. Changed books
+ * are published at most once per flush to /topic/book/{symbol}.
+ */
+@Component
+public class OrderBookService {
+    private static final Logger logger = LoggerFactory.getLogger(OrderBookService.class);
+
+    public static final String TOPIC_PREFIX = "/topic/book/";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final int depth;
+    private final int publishLevels;
+    private final Map<String, OrderBook> books = new ConcurrentHashMap<>();
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+    private final AtomicLong checksumFailures = new AtomicLong();
+
+    @Autowired
+    public OrderBookService(SimpMessagingTemplate messagingTemplate,
+                            KrakenWebSocketConfig config,
+                            @Value("${crypto.book.publish.levels:10}") int publishLevels) {
+        this.messagingTemplate = messagingTemplate;
+        this.depth = config.getBookDepth();
+        this.publishLevels = publishLevels;
+    }
+
+    /**
+     * Apply a BOOK_SNAPSHOT or BOOK_UPDATE frame
+     * @return true if the update failed its checksum and the pair must be resubscribed
+     */
+    public boolean apply(KrakenFrame frame) {
+        String symbol = frame.getPair();
+        OrderBook book = books.get(symbol);
+        if (book == null) {
+            book = books.computeIfAbsent(symbol, s -> new OrderBook(s, depth));
+        }
+        if (frame.getType() == KrakenFrame.Type.BOOK_SNAPSHOT) {
+            book.applySnapshot(frame.getBookAsks(), frame.getBookBids());
+        } else if (!book.isSynced()) {
+            // Updates before the first or the resynced snapshot cannot be applied
+            return false;
+        } else if (!book.applyUpdate(frame.getBookAsks(), frame.getBookBids(), frame.getChecksum())) {
+            checksumFailures.incrementAndGet();
+            logger.warn("Order book checksum mismatch for {}, requesting a fresh snapshot", symbol);
+            changed.add(symbol);
+            return true;
+        }
+        changed.add(symbol);
+        return false;
+    }
+
+    /**
+     * Publish every book that changed since the last flush
+     */
+    @Scheduled(fixedDelayString = "${crypto.book.flush.interval:250}")
+    public void flush() {
+        Iterator<String> symbols = changed.iterator();
+        while (symbols.hasNext()) {
+            String symbol = symbols.next();
+            symbols.remove();
+            OrderBook book = books.get(symbol);
+            if (book != null) {
+                messagingTemplate.convertAndSend(TOPIC_PREFIX + symbol, book.toResponse(publishLevels));
+            }
+        }
+    }
+
+    /**
+     * Price a market order against the live book
+     * @param symbol The pair
+     * @param buy True to walk the asks, false to walk the bids
+     * @param quantity The quantity to fill
+     * @return The fills; check {@link ExecutionQuote#isFilled()} for sufficient depth
+     * @throws RuntimeException If the pair has no book in sync
+     */
+    public ExecutionQuote quote(String symbol, boolean buy, BigDecimal quantity) {
+        OrderBook book = books.get(symbol);
+        if (book == null) {
+            throw new RuntimeException("Order book not available for " + symbol);
+        }
+        ExecutionQuote quote = new ExecutionQuote();
+        if (!book.walk(buy, FixedPoint.fromBigDecimal(quantity, book.getVolumeScale()), quote)) {
+            throw new RuntimeException("Order book for " + symbol + " is resynchronizing, try again");
+        }
+        return quote;
+    }
+
+    /**
+     * The live book of a symbol, or null if none has been received
+     */
+    public OrderBook getBook(String symbol) {
+        return books.get(symbol);
+    }
+
+    /**
+     * Best levels of a symbol's book
+     * @param levels Maximum levels per side
+     * @return The levels, or null if the symbol has no book
+     */
+    public OrderBookResponse getDepth(String symbol, int levels) {
+        OrderBook book = books.get(symbol);
+        return book != null ? book.toResponse(levels) : null;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("depth", depth);
+        stats.put("books", books.size());
+        stats.put("synced", books.values().stream().filter(OrderBook::isSynced).count());
+        stats.put("checksumFailures", checksumFailures.get());
+        return stats;
+    }
+}
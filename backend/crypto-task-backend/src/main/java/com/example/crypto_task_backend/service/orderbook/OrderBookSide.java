@@ -0,0 +1,106 @@
+package com.example.crypto_task_backend.service.orderbook;
+
+/**
+ * One side of an L2 book as parallel sorted primitive arrays, best level first:
+ * ascending prices for asks, descending for bids. Levels are located by binary search
+ * and inserted or removed with an arraycopy bounded by the book depth. Levels that fall
+ * beyond the depth are dropped, as Kraken expects of a local book. Not thread-safe;
+ * {@link OrderBook} guards access.
+ */
+final class OrderBookSide {
+
+    private final boolean ascending;
+    private final long[] prices;
+    private final long[] volumes;
+    private int size;
+
+    OrderBookSide(boolean ascending, int depth) {
+        this.ascending = ascending;
+        this.prices = new long[depth];
+        this.volumes = new long[depth];
+    }
+
+    /**
+     * Set a level's volume; a volume of zero removes the level
+     */
+    void apply(long price, long volume) {
+        int index = search(price);
+        if (index >= 0) {
+            if (volume == 0) {
+                remove(index);
+            } else {
+                volumes[index] = volume;
+            }
+            return;
+        }
+        if (volume == 0) {
+            return;
+        }
+        int at = -index - 1;
+        int capacity = prices.length;
+        if (at >= capacity) {
+            return;
+        }
+        // Shift worse levels down one slot; a full side drops its worst level
+        int moved = Math.min(size, capacity - 1) - at;
+        if (moved > 0) {
+            System.arraycopy(prices, at, prices, at + 1, moved);
+            System.arraycopy(volumes, at, volumes, at + 1, moved);
+        }
+        prices[at] = price;
+        volumes[at] = volume;
+        if (size < capacity) {
+            size++;
+        }
+    }
+
+    private void remove(int index) {
+        int moved = size - index - 1;
+        if (moved > 0) {
+            System.arraycopy(prices, index + 1, prices, index, moved);
+            System.arraycopy(volumes, index + 1, volumes, index, moved);
+        }
+        size--;
+    }
+
+    /**
+     * @return The level's index, or -(insertion point) - 1 if the price has no level
+     */
+    private int search(long price) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midPrice = prices[mid];
+            if (midPrice == price) {
+                return mid;
+            }
+            if (ascending ? midPrice < price : midPrice > price) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return -(low + 1);
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int depth() {
+        return prices.length;
+    }
+
+    long price(int index) {
+        return prices[index];
+    }
+
+    long volume(int index) {
+        return volumes[index];
+    }
+}
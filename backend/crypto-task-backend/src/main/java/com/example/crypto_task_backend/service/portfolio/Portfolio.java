@@ -0,0 +1,170 @@
+package com.example.crypto_task_backend.service.portfolio;
+
+import com.example.crypto_task_backend.dto.PortfolioValuation;
+import com.example.crypto_task_backend.dto.PositionValuation;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory position vector of one user with running totals of market value and cost.
+ * Cost basis and realised P&L come from the user's lots. Cash is rounded half-up to cents
+ * after every trade, like the stored balance, so it matches /balance.
+ * A price change touches only the affected position and adjusts the totals by its
+ * difference, so repricing costs the same however many positions the user holds.
+ * Trades are applied under the user's trade lock; all access is guarded by this.
+ */
+final class Portfolio {
+
+    // users.balance is DECIMAL(10,2)
+    private static final int CASH_SCALE = 2;
+
+    private final Long userId;
+    private final Map<String, Position> positions = new TreeMap<>();
+    private BigDecimal cash;
+    private BigDecimal marketValue = BigDecimal.ZERO;
+    private BigDecimal costBasis = BigDecimal.ZERO;
+    private BigDecimal realisedPnl = BigDecimal.ZERO;
+
+    Portfolio(Long userId, BigDecimal cash) {
+        this.userId = userId;
+        this.cash = cash.setScale(CASH_SCALE, RoundingMode.HALF_UP);
+    }
+
+    Long getUserId() {
+        return userId;
+    }
+
+    /**
+     * Add a position loaded from the account
+     * @param price Current price, or null if none is known yet
+     */
+    synchronized void open(String symbol, BigDecimal quantity, BigDecimal cost, BigDecimal price) {
+        Position position = new Position(quantity, cost);
+        positions.put(symbol, position);
+        costBasis = costBasis.add(cost);
+        reprice(position, price);
+    }
+
+    /**
+     * Revalue one position at a new price
+     * @return false if the user holds no such position or the price is unchanged
+     */
+    synchronized boolean reprice(String symbol, BigDecimal price) {
+        Position position = positions.get(symbol);
+        if (position == null || (position.price != null && position.price.compareTo(price) == 0)) {
+            return false;
+        }
+        reprice(position, price);
+        return true;
+    }
+
+    private void reprice(Position position, BigDecimal price) {
+        if (price == null) {
+            return;
+        }
+        BigDecimal value = position.quantity.multiply(price);
+        marketValue = marketValue.add(value).subtract(position.marketValue);
+        position.price = price;
+        position.marketValue = value;
+    }
+
+    /**
+     * Apply a settled buy
+     * @param cost Cost basis of the position after the buy, as tracked by the lots
+     * @param price Current price of the symbol, used if the position is new
+     * @return true if the buy opened the position
+     */
+    synchronized boolean buy(String symbol, BigDecimal quantity, BigDecimal totalCost, BigDecimal cost,
+                             BigDecimal price) {
+        cash = cash.subtract(totalCost).setScale(CASH_SCALE, RoundingMode.HALF_UP);
+        Position position = positions.get(symbol);
+        boolean opened = position == null;
+        if (opened) {
+            position = new Position(BigDecimal.ZERO, BigDecimal.ZERO);
+            positions.put(symbol, position);
+        }
+        position.quantity = position.quantity.add(quantity);
+        setCost(position, cost);
+        BigDecimal current = position.price != null ? position.price : price;
+        // Force the revaluation, the quantity changed even if the price did not
+        position.price = null;
+        reprice(position, current);
+        return opened;
+    }
+
+    /**
+     * Apply a settled sell
+     * @param cost Cost basis of what is left of the position, as tracked by the lots
+     * @return true if the sell closed the position
+     */
+    synchronized boolean sell(String symbol, BigDecimal quantity, BigDecimal totalValue, BigDecimal cost) {
+        cash = cash.add(totalValue).setScale(CASH_SCALE, RoundingMode.HALF_UP);
+        Position position = positions.get(symbol);
+        if (position == null) {
+            return false;
+        }
+        BigDecimal remaining = position.quantity.subtract(quantity);
+        if (remaining.signum() <= 0) {
+            positions.remove(symbol);
+            if (positions.isEmpty()) {
+                // Restart the totals from an exact zero along with the last position
+                costBasis = BigDecimal.ZERO;
+                marketValue = BigDecimal.ZERO;
+            } else {
+                costBasis = costBasis.subtract(position.cost);
+                marketValue = marketValue.subtract(position.marketValue);
+            }
+            return true;
+        }
+        position.quantity = remaining;
+        setCost(position, cost);
+        BigDecimal price = position.price;
+        position.price = null;
+        reprice(position, price);
+        return false;
+    }
+
+    private void setCost(Position position, BigDecimal cost) {
+        costBasis = costBasis.add(cost).subtract(position.cost);
+        position.cost = cost;
+    }
+
+    /**
+     * @param realisedPnl Realised P&L over all symbols, closed positions included
+     */
+    synchronized void setRealisedPnl(BigDecimal realisedPnl) {
+        this.realisedPnl = realisedPnl;
+    }
+
+    synchronized Collection<String> getSymbols() {
+        return new ArrayList<>(positions.keySet());
+    }
+
+    synchronized PortfolioValuation toValuation() {
+        List<PositionValuation> valuations = new ArrayList<>(positions.size());
+        for (Map.Entry<String, Position> entry : positions.entrySet()) {
+            Position position = entry.getValue();
+            valuations.add(new PositionValuation(entry.getKey(), position.quantity,
+                    position.price != null ? position.price : BigDecimal.ZERO, position.marketValue, position.cost));
+        }
+        return new PortfolioValuation(userId, cash, marketValue, costBasis, realisedPnl, valuations);
+    }
+
+    private static final class Position {
+        private BigDecimal quantity;
+        private BigDecimal cost;
+        private BigDecimal price;
+        private BigDecimal marketValue = BigDecimal.ZERO;
+
+        private Position(BigDecimal quantity, BigDecimal cost) {
+            this.quantity = quantity;
+            this.cost = cost;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.crypto_task_backend.service.portfolio;
+
+import com.example.crypto_task_backend.dto.CryptoBalance;
+import com.example.crypto_task_backend.dto.PortfolioValuation;
+import com.example.crypto_task_backend.model.CryptoPrice;
+import com.example.crypto_task_backend.model.Transaction;
+import com.example.crypto_task_backend.model.User;
+import com.example.crypto_task_backend.service.CryptoPriceService;
+import com.example.crypto_task_backend.service.TradeSettlement;
+import com.example.crypto_task_backend.service.UserService;
+import com.example.crypto_task_backend.service.concurrency.UserLocks;
+import com.example.crypto_task_backend.service.lots.LotSummary;
+import com.example.crypto_task_backend.service.lots.LotTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live portfolio valuations, pushed to /topic/portfolio/{userId}.
+ * A user's portfolio is loaded when the first client subscribes to its topic and then kept
+ * in step with the user's trades, with cost basis and realised P&L taken from the
+ * {@link LotTracker}, until the last client unsubscribes or disconnects. A REST read of a
+ * portfolio nobody subscribes to values the account without tracking it. A reverse index
+ * from symbol to the portfolios holding it means a price tick only revalues its holders.
+ * Changed portfolios are published at most once per flush.
+ */
+@Component
+public class PortfolioValuationService {
+    private static final Logger logger = LoggerFactory.getLogger(PortfolioValuationService.class);
+
+    public static final String TOPIC_PREFIX = "/topic/portfolio/";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final CryptoPriceService cryptoPriceService;
+    private final TradeSettlement tradeSettlement;
+    private final LotTracker lotTracker;
+    private final UserService userService;
+    private final UserLocks userLocks;
+
+    private final Map<Long, Portfolio> portfolios = new ConcurrentHashMap<>();
+    private final Map<String, Set<Portfolio>> holders = new ConcurrentHashMap<>();
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+    // Session id to its portfolio subscriptions, by subscription id, and subscriptions per user
+    private final Map<String, Map<String, Long>> sessions = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong repriced = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+
+    @Autowired
+    public PortfolioValuationService(SimpMessagingTemplate messagingTemplate,
+                                     CryptoPriceService cryptoPriceService,
+                                     TradeSettlement tradeSettlement,
+                                     LotTracker lotTracker,
+                                     UserService userService,
+                                     UserLocks userLocks) {
+        this.messagingTemplate = messagingTemplate;
+        this.cryptoPriceService = cryptoPriceService;
+        this.tradeSettlement = tradeSettlement;
+        this.lotTracker = lotTracker;
+        this.userService = userService;
+        this.userLocks = userLocks;
+        cryptoPriceService.addPriceUpdateListener(this::onPriceUpdate);
+    }
+
+    /**
+     * Revalue the portfolios holding the symbol; runs on the ingest thread
+     * @param price The updated price
+     */
+    public void onPriceUpdate(CryptoPrice price) {
+        Set<Portfolio> symbolHolders = holders.get(price.getSymbol());
+        if (symbolHolders == null || symbolHolders.isEmpty()) {
+            return;
+        }
+        BigDecimal value = price.getPrice();
+        for (Portfolio portfolio : symbolHolders) {
+            if (portfolio.reprice(price.getSymbol(), value)) {
+                repriced.incrementAndGet();
+                changed.add(portfolio.getUserId());
+            }
+        }
+    }
+
+    /**
+     * Apply a settled trade to the user's portfolio, if it is loaded.
+     * Must be called under the user's trade lock, in settlement order, after the trade
+     * has been applied to the user's lots.
+     */
+    public void onTrade(User user, Transaction transaction) {
+        Portfolio portfolio = portfolios.get(user.getId());
+        if (portfolio == null) {
+            return;
+        }
+        String symbol = transaction.getCryptoSymbol();
+        BigDecimal cost = costBasis(lotTracker.getSummary(user.getId(), symbol));
+        if (transaction.getTransactionType() == Transaction.TransactionType.BUY) {
+            if (portfolio.buy(symbol, transaction.getAmount(), transaction.getTotalValue(), cost,
+                    currentPrice(symbol))) {
+                index(symbol, portfolio);
+            }
+        } else {
+            if (portfolio.sell(symbol, transaction.getAmount(), transaction.getTotalValue(), cost)) {
+                unindex(symbol, portfolio);
+            }
+            portfolio.setRealisedPnl(lotTracker.getRealisedPnl(user.getId()));
+        }
+        changed.add(user.getId());
+    }
+
+    /**
+     * Reload the user's portfolio after an account reset, if it is loaded.
+     * Must be called under the user's trade lock, after the user's lots have been reset.
+     */
+    public void onReset(User user) {
+        Portfolio portfolio = portfolios.remove(user.getId());
+        if (portfolio == null) {
+            return;
+        }
+        for (String symbol : portfolio.getSymbols()) {
+            unindex(symbol, portfolio);
+        }
+        Portfolio reloaded = load(user);
+        portfolios.put(user.getId(), reloaded);
+        index(reloaded);
+        changed.add(user.getId());
+    }
+
+    /**
+     * Current valuation of a user's portfolio; an untracked portfolio is built from the account
+     * @throws RuntimeException If the user does not exist
+     */
+    public PortfolioValuation getValuation(Long userId) {
+        Portfolio portfolio = portfolios.get(userId);
+        if (portfolio != null) {
+            return portfolio.toValuation();
+        }
+        return userLocks.withLock(userId, () -> {
+            Portfolio tracked = portfolios.get(userId);
+            return (tracked != null ? tracked : load(userService.getUser(userId))).toValuation();
+        });
+    }
+
+    /**
+     * Start tracking a user when a client subscribes to its portfolio topic and push the
+     * current valuation with the next flush
+     */
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        Map<String, Object> headers = event.getMessage().getHeaders();
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (destination == null || !destination.startsWith(TOPIC_PREFIX)) {
+            return;
+        }
+        Long userId;
+        try {
+            userId = Long.valueOf(destination.substring(TOPIC_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            logger.debug("Ignoring subscription to {}", destination);
+            return;
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        String subscriptionId = SimpMessageHeaderAccessor.getSubscriptionId(headers);
+        if (sessionId != null && subscriptionId != null) {
+            Long previous = sessions.computeIfAbsent(sessionId, s -> new ConcurrentHashMap<>())
+                    .put(subscriptionId, userId);
+            subscribers.merge(userId, 1, Integer::sum);
+            if (previous != null) {
+                release(previous);
+            }
+        }
+        try {
+            track(userId);
+            changed.add(userId);
+        } catch (RuntimeException e) {
+            logger.warn("Cannot value portfolio of user ID {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Drop a client's subscription to a portfolio topic
+     */
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        Map<String, Object> headers = event.getMessage().getHeaders();
+        Map<String, Long> subscriptions = sessions.get(SimpMessageHeaderAccessor.getSessionId(headers));
+        if (subscriptions == null) {
+            return;
+        }
+        Long userId = subscriptions.remove(SimpMessageHeaderAccessor.getSubscriptionId(headers));
+        if (userId != null) {
+            release(userId);
+        }
+    }
+
+    /**
+     * Drop every portfolio subscription of a closed session
+     */
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, Long> subscriptions = sessions.remove(event.getSessionId());
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::release);
+        }
+    }
+
+    /**
+     * Count down a user's subscriptions and stop tracking the user after the last one
+     */
+    private void release(Long userId) {
+        if (subscribers.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null) != null) {
+            return;
+        }
+        userLocks.withLock(userId, () -> {
+            // A client may have subscribed again meanwhile
+            if (subscribers.containsKey(userId)) {
+                return;
+            }
+            Portfolio portfolio = portfolios.remove(userId);
+            if (portfolio != null) {
+                for (String symbol : portfolio.getSymbols()) {
+                    unindex(symbol, portfolio);
+                }
+                changed.remove(userId);
+                logger.info("Stopped tracking portfolio of user ID {}", userId);
+            }
+        });
+    }
+
+    private void track(Long userId) {
+        if (portfolios.containsKey(userId)) {
+            return;
+        }
+        // Loaded under the trade lock so no trade settles between the reads and the indexing
+        userLocks.withLock(userId, () -> {
+            // The last client may already have unsubscribed
+            if (portfolios.containsKey(userId) || !subscribers.containsKey(userId)) {
+                return;
+            }
+            Portfolio loaded = load(userService.getUser(userId));
+            portfolios.put(userId, loaded);
+            index(loaded);
+            logger.info("Tracking portfolio of user ID {}", userId);
+        });
+    }
+
+    /**
+     * Build a portfolio from the account's balances and lots
+     */
+    private Portfolio load(User user) {
+        Map<String, LotSummary> lots = lotTracker.getSummaries(user.getId());
+        Portfolio portfolio = new Portfolio(user.getId(), tradeSettlement.getCashBalance(user));
+        for (CryptoBalance balance : tradeSettlement.getCryptoBalances(user)) {
+            String symbol = balance.getCryptoSymbol();
+            portfolio.open(symbol, balance.getBalance(), costBasis(lots.get(symbol)), currentPrice(symbol));
+        }
+        portfolio.setRealisedPnl(lotTracker.getRealisedPnl(user.getId()));
+        return portfolio;
+    }
+
+    private void index(Portfolio portfolio) {
+        for (String symbol : portfolio.getSymbols()) {
+            index(symbol, portfolio);
+        }
+    }
+
+    private static BigDecimal costBasis(LotSummary lots) {
+        return lots != null ? lots.getCostBasis() : BigDecimal.ZERO;
+    }
+
+    private BigDecimal currentPrice(String symbol) {
+        CryptoPrice price = cryptoPriceService.getPriceBySymbol(symbol);
+        return price != null ? price.getPrice() : null;
+    }
+
+    private void index(String symbol, Portfolio portfolio) {
+        holders.compute(symbol, (s, set) -> {
+            if (set == null) {
+                set = ConcurrentHashMap.newKeySet();
+            }
+            set.add(portfolio);
+            return set;
+        });
+    }
+
+    private void unindex(String symbol, Portfolio portfolio) {
+        holders.computeIfPresent(symbol, (s, set) -> {
+            set.remove(portfolio);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    /**
+     * Publish every portfolio that changed since the last flush
+     */
+    @Scheduled(fixedDelayString = "${crypto.portfolio.flush.interval:250}")
+    public void flush() {
+        Iterator<Long> userIds = changed.iterator();
+        while (userIds.hasNext()) {
+            Long userId = userIds.next();
+            userIds.remove();
+            Portfolio portfolio = portfolios.get(userId);
+            if (portfolio != null) {
+                messagingTemplate.convertAndSend(TOPIC_PREFIX + userId, portfolio.toValuation());
+                published.incrementAndGet();
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("portfolios", portfolios.size());
+        stats.put("sessions", sessions.size());
+        stats.put("symbols", holders.size());
+        stats.put("repriced", repriced.get());
+        stats.put("published", published.get());
+        return stats;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.crypto_task_backend.service.user;
+
+import com.example.crypto_task_backend.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU cache of users by id, so resolving the current user is a map lookup.
+ * Entries are invalidated after every balance write. A load that raced with an
+ * invalidation is returned but not cached, so a value read before a commit can never
+ * outlive it. Cached users are shared between threads and must be treated as read-only.
+ */
+@Component
+public class UserCache {
+
+    private final Map<Long, User> users;
+    // Bumped by every invalidation; a load only caches if none happened while it ran
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    public UserCache(@Value("${crypto.user.cache.size:10000}") int maxSize) {
+        int capacity = Math.max(1, maxSize);
+        this.users = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, User> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * The cached user, or the loader's result on a miss
+     * @return The user, or null if the loader found none
+     */
+    public User get(Long userId, Function<Long, Optional<User>> loader) {
+        synchronized (users) {
+            User user = users.get(userId);
+            if (user != null) {
+                hits.incrementAndGet();
+                return user;
+            }
+        }
+        misses.incrementAndGet();
+        long generation = invalidations.get();
+        User user = loader.apply(userId).orElse(null);
+        if (user != null) {
+            synchronized (users) {
+                if (invalidations.get() == generation) {
+                    users.put(userId, user);
+                }
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Drop a user whose row changed; call after the change is committed
+     */
+    public void invalidate(Long userId) {
+        synchronized (users) {
+            invalidations.incrementAndGet();
+            users.remove(userId);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (users) {
+            stats.put("size", users.size());
+        }
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.crypto_task_backend.service.user;
+
+/**
+ * The user a request acts for, bound to the request thread by
+ * {@link com.example.crypto_task_backend.config.UserContextInterceptor}
+ */
+public final class UserContext {
+
+    /** Request header carrying the user id; requests without it act for the default user */
+    public static final String USER_ID_HEADER = "X-User-Id";
+
+    private static final ThreadLocal<Long> USER_ID = new ThreadLocal<>();
+
+    private UserContext() {
+    }
+
+    /**
+     * @return The user id of the current request, or null for the default user
+     */
+    public static Long getUserId() {
+        return USER_ID.get();
+    }
+
+    public static void setUserId(Long userId) {
+        USER_ID.set(userId);
+    }
+
+    public static void clear() {
+        USER_ID.remove();
+    }
+}
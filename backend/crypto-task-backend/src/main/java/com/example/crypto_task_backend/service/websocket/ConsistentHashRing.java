@@ -0,0 +1,58 @@
+package com.example.crypto_task_backend.service.websocket;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maps keys to one of N shards by consistent hashing with virtual nodes, so changing the
+ * shard count or the key set moves only the keys whose position on the ring changes
+ */
+public final class ConsistentHashRing {
+
+    private static final int VIRTUAL_NODES = 160;
+
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+    private final int shards;
+
+    public ConsistentHashRing(int shards) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shards);
+        }
+        this.shards = shards;
+        for (int shard = 0; shard < shards; shard++) {
+            for (int node = 0; node < VIRTUAL_NODES; node++) {
+                ring.put(hash("shard-" + shard + "#" + node), shard);
+            }
+        }
+    }
+
+    /**
+     * Shard owning a key: the first virtual node clockwise from the key's hash
+     */
+    public int shardFor(String key) {
+        Map.Entry<Long, Integer> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    public int size() {
+        return shards;
+    }
+
+    /**
+     * 64-bit FNV-1a with a final avalanche mix, so similar pair names spread evenly
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.crypto_task_backend.service.websocket;
+
+import com.example.crypto_task_backend.config.KrakenWebSocketConfig;
+import com.example.crypto_task_backend.util.EpochNanos;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Captures raw Kraken frames with their socket receive time to a {@link FrameRecording}
+ * file when kraken.recorder.file is set. Frames are recorded on the ingest consumer
+ * threads, never on the socket thread, and written through a buffer that is flushed
+ * once a second.
+ */
+@Component
+public class FrameRecorder {
+    private static final Logger logger = LoggerFactory.getLogger(FrameRecorder.class);
+
+    private final FrameRecording.Writer writer;
+    private long recorded;
+
+    @Autowired
+    public FrameRecorder(KrakenWebSocketConfig config) {
+        FrameRecording.Writer opened = null;
+        if (config.isRecorderEnabled()) {
+            try {
+                opened = new FrameRecording.Writer(Paths.get(config.getRecorderFile()));
+                logger.info("Recording Kraken frames to {}", config.getRecorderFile());
+            } catch (IOException e) {
+                logger.error("Cannot open frame recording {}: {}", config.getRecorderFile(), e.getMessage(), e);
+            }
+        }
+        this.writer = opened;
+    }
+
+    public boolean isEnabled() {
+        return writer != null;
+    }
+
+    /**
+     * Record a frame
+     * @param frame The raw frame
+     * @param receivedNanos System.nanoTime() at which the socket thread received the frame
+     */
+    public void record(String frame, long receivedNanos) {
+        if (writer == null) {
+            return;
+        }
+        synchronized (this) {
+            try {
+                writer.write(EpochNanos.fromNanoTime(receivedNanos), frame);
+                recorded++;
+            } catch (IOException e) {
+                logger.error("Error recording frame: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelay = 1000)
+    public synchronized void flush() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            logger.error("Error flushing frame recording: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+            logger.info("Closed frame recording after {} frames", recorded);
+        } catch (IOException e) {
+            logger.error("Error closing frame recording: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.crypto_task_backend.service.websocket;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Binary file format for raw Kraken frames: a header followed by one record per frame,
+ * each an epoch-nanosecond receive time, a byte length and the UTF-8 frame text.
+ */
+public final class FrameRecording {
+
+    private static final int MAGIC = 0x4B524652;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private FrameRecording() {
+    }
+
+    /**
+     * Appends frames through a 64 KiB buffer; not thread-safe
+     */
+    public static final class Writer implements Closeable {
+        private final DataOutputStream out;
+
+        public Writer(Path file) throws IOException {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        public void write(long epochNanos, String frame) throws IOException {
+            byte[] bytes = frame.getBytes(StandardCharsets.UTF_8);
+            out.writeLong(epochNanos);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads frames in recorded order; not thread-safe
+     */
+    public static final class Reader implements Closeable {
+        private final DataInputStream in;
+        private long epochNanos;
+        private String frame;
+
+        public Reader(Path file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                in.close();
+                throw new IOException("Not a frame recording: " + file);
+            }
+        }
+
+        /**
+         * Advance to the next frame
+         * @return false at the end of the recording
+         */
+        public boolean next() throws IOException {
+            try {
+                long time = in.readLong();
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                epochNanos = time;
+                frame = new String(bytes, StandardCharsets.UTF_8);
+                return true;
+            } catch (EOFException e) {
+                // A truncated last record, e.g. after a crash, also ends the recording
+                return false;
+            }
+        }
+
+        public long getEpochNanos() {
+            return epochNanos;
+        }
+
+        public String getFrame() {
+            return frame;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.crypto_task_backend.service.websocket;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded lock-free ring buffer of raw WebSocket frames.
+ * Slots are preallocated and claimed through per-slot sequence numbers, so the socket
+ * thread only copies a reference and a timestamp into a slot and never waits on consumers
+ * (unless the BLOCK overflow policy is selected).
+ */
+public class FrameRingBuffer {
+
+    /**
+     * What to do when a frame arrives while the ring is full
+     */
+    public enum OverflowPolicy {
+        /** Discard the oldest unconsumed frame to make room */
+        DROP_OLDEST,
+        /** Park the producer until a consumer frees a slot */
+        BLOCK
+    }
+
+    private static final long PARK_NANOS = 50_000L;
+
+    private static final class Slot {
+        volatile long sequence;
+        String frame;
+        long receivedNanos;
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final OverflowPolicy overflowPolicy;
+
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder consumed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private volatile long highWaterMark;
+    private volatile boolean closed;
+
+    public FrameRingBuffer(int requestedCapacity, OverflowPolicy overflowPolicy) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.slots = new Slot[capacity];
+        this.mask = capacity - 1;
+        this.overflowPolicy = overflowPolicy;
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+            slots[i].sequence = i;
+        }
+    }
+
+    /**
+     * Publish a raw frame, applying the overflow policy if the ring is full
+     * @param frame The raw frame
+     * @param receivedNanos System.nanoTime() at which the frame was received
+     * @return false only if the ring was closed while waiting for space
+     */
+    public boolean publish(String frame, long receivedNanos) {
+        while (!offer(frame, receivedNanos)) {
+            if (closed) {
+                return false;
+            }
+            if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                if (poll(null)) {
+                    dropped.increment();
+                }
+            } else {
+                blocked.increment();
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+        published.increment();
+        long occupancy = size();
+        if (occupancy > highWaterMark) {
+            highWaterMark = occupancy;
+        }
+        return true;
+    }
+
+    private boolean offer(String frame, long receivedNanos) {
+        long position = tail.get();
+        for (;;) {
+            Slot slot = slots[(int) position & mask];
+            long difference = slot.sequence - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slot.frame = frame;
+                    slot.receivedNanos = receivedNanos;
+                    slot.sequence = position + 1;
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Take the next frame, if any
+     * @param consumer Receives the frame, or null to discard it
+     * @return true if a frame was taken
+     */
+    public boolean poll(FrameConsumer consumer) {
+        long position = head.get();
+        for (;;) {
+            Slot slot = slots[(int) position & mask];
+            long difference = slot.sequence - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    String frame = slot.frame;
+                    long receivedNanos = slot.receivedNanos;
+                    slot.frame = null;
+                    slot.sequence = position + slots.length;
+                    if (consumer != null) {
+                        consumed.increment();
+                        consumer.onFrame(frame, receivedNanos);
+                    }
+                    return true;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    public void close() {
+        closed = true;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    public long size() {
+        return Math.max(0, tail.get() - head.get());
+    }
+
+    public long getPublished() {
+        return published.sum();
+    }
+
+    public long getConsumed() {
+        return consumed.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getBlocked() {
+        return blocked.sum();
+    }
+
+    public long getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Callback for frames taken off the ring
+     */
+    @FunctionalInterface
+    public interface FrameConsumer {
+        void onFrame(String frame, long receivedNanos);
+    }
+}
@@ -0,0 +1,447 @@
+package com.example.crypto_task_backend.service.websocket;
+
+import com.example.crypto_task_backend.config.KrakenWebSocketConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.handshake.ServerHandshake;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One Kraken WebSocket connection serving a shard of the subscribed pairs.
+ * Each shard has its own socket thread and pair state and reconnects on its own, so a
+ * slow or dropped socket only affects its own pairs. Frames are handed to the shared
+ * ingest pipeline untouched.
+ * <p>
+ * Lifecycle: CONNECTING, then OPEN until Kraken's systemStatus arrives, then ONLINE,
+ * at which point every assigned pair is subscribed at once. A close from either side
+ * moves to BACKOFF and reconnects after an exponentially growing, jittered delay that
+ * resets once the exchange reports itself online again. A watchdog closes sockets that
+ * stop delivering frames and resubscribes pairs whose ticks stop.
+ */
+class KrakenConnection {
+    private static final Logger logger = LoggerFactory.getLogger(KrakenConnection.class);
+
+    enum State { IDLE, CONNECTING, OPEN, ONLINE, BACKOFF, STOPPED }
+
+    // Subscribe anyway if the server never sends systemStatus after the handshake
+    private static final long STATUS_FALLBACK_MILLIS = 2000;
+    private static final long WATCHDOG_INTERVAL_MILLIS = 1000;
+
+    /**
+     * Subscription and tick time of one assigned pair
+     */
+    private static final class PairState {
+        volatile boolean subscribed;
+        volatile long subscribedNanos;
+        volatile long lastTickNanos;
+    }
+
+    private final int shard;
+    private final URI uri;
+    private final ObjectMapper objectMapper;
+    private final KrakenIngestPipeline ingestPipeline;
+    private final ScheduledExecutorService scheduler;
+    private final long reconnectDelayMillis;
+    private final long reconnectMaxDelayMillis;
+    private final long staleConnectionNanos;
+    private final long stalePairNanos;
+    private final int bookDepth;
+
+    // Pairs this shard should carry
+    private final Map<String, PairState> assignedPairs = new ConcurrentHashMap<>();
+
+    private volatile WebSocketClient client;
+    private volatile State state = State.IDLE;
+    private volatile long lastFrameNanos;
+    private volatile long framesReceived;
+    private volatile long reconnects;
+    private volatile long resubscribes;
+    private volatile long bookResyncs;
+    private int failedAttempts;
+    private boolean watchdogStarted;
+
+    KrakenConnection(int shard, URI uri, ObjectMapper objectMapper, KrakenIngestPipeline ingestPipeline,
+                     ScheduledExecutorService scheduler, KrakenWebSocketConfig config) {
+        this.shard = shard;
+        this.uri = uri;
+        this.objectMapper = objectMapper;
+        this.ingestPipeline = ingestPipeline;
+        this.scheduler = scheduler;
+        this.reconnectDelayMillis = config.getReconnectDelay();
+        this.reconnectMaxDelayMillis = config.getReconnectMaxDelay();
+        this.staleConnectionNanos = TimeUnit.MILLISECONDS.toNanos(config.getStaleConnectionTimeout());
+        this.stalePairNanos = TimeUnit.MILLISECONDS.toNanos(config.getStalePairTimeout());
+        this.bookDepth = config.isBookEnabled() ? config.getBookDepth() : 0;
+    }
+
+    /**
+     * Open the socket unless it is already open, connecting or waiting to reconnect
+     */
+    synchronized void connect() {
+        if (state != State.IDLE && state != State.STOPPED) {
+            return;
+        }
+        if (!watchdogStarted) {
+            watchdogStarted = true;
+            scheduler.scheduleWithFixedDelay(this::checkStale, WATCHDOG_INTERVAL_MILLIS,
+                    WATCHDOG_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        open();
+    }
+
+    private synchronized void open() {
+        state = State.CONNECTING;
+        try {
+            logger.info("Shard {}: connecting to Kraken WebSocket API at {}", shard, uri);
+            WebSocketClient socket = newClient();
+            client = socket;
+            socket.setConnectionLostTimeout(30);
+            socket.connect();
+        } catch (Exception e) {
+            logger.error("Shard {}: error connecting to Kraken WebSocket API: {}", shard, e.getMessage(), e);
+            scheduleReconnect();
+        }
+    }
+
+    private WebSocketClient newClient() {
+        return new WebSocketClient(uri) {
+            @Override
+            public void onOpen(ServerHandshake handshakedata) {
+                if (client != this) {
+                    return;
+                }
+                lastFrameNanos = System.nanoTime();
+                markAllUnsubscribed();
+                state = State.OPEN;
+                logger.info("Shard {}: connected to Kraken WebSocket API with status: {}",
+                        shard, handshakedata.getHttpStatus());
+                scheduler.schedule(() -> {
+                    if (client == this && state == State.OPEN) {
+                        logger.info("Shard {}: no systemStatus received, subscribing anyway", shard);
+                        subscribeAssigned();
+                    }
+                }, STATUS_FALLBACK_MILLIS, TimeUnit.MILLISECONDS);
+            }
+
+            @Override
+            public void onMessage(String message) {
+                lastFrameNanos = System.nanoTime();
+                framesReceived++;
+                // Ticker frames are arrays; only event objects are checked for systemStatus
+                if (message.startsWith("{") && message.contains("\"systemStatus\"")) {
+                    onSystemStatus(!message.contains("\"maintenance\""));
+                }
+                // Only hand the raw frame over; parsing and fan-out run on the ingest consumers
+                ingestPipeline.publish(message);
+            }
+
+            @Override
+            public void onClose(int code, String reason, boolean remote) {
+                if (client != this) {
+                    return;
+                }
+                markAllUnsubscribed();
+                logger.info("Shard {}: disconnected from Kraken WebSocket API: code={}, reason={}, remote={}",
+                        shard, code, reason, remote);
+                scheduleReconnect();
+            }
+
+            @Override
+            public void onError(Exception ex) {
+                logger.error("Shard {}: WebSocket error: {}", shard, ex.getMessage(), ex);
+            }
+        };
+    }
+
+    /**
+     * Kraken sends systemStatus right after the handshake and whenever its status changes.
+     * Any status other than maintenance accepts public subscriptions, so the full pair set
+     * is subscribed immediately instead of after a fixed delay.
+     */
+    private synchronized void onSystemStatus(boolean online) {
+        if (state != State.OPEN && state != State.ONLINE) {
+            return;
+        }
+        if (!online) {
+            logger.warn("Shard {}: Kraken is in maintenance, waiting for it to come back online", shard);
+            state = State.OPEN;
+            return;
+        }
+        failedAttempts = 0;
+        state = State.ONLINE;
+        subscribeAssigned();
+    }
+
+    /**
+     * Reconnect after a jittered exponential backoff unless the shard was stopped on purpose
+     */
+    private synchronized void scheduleReconnect() {
+        if (state == State.STOPPED || state == State.BACKOFF) {
+            return;
+        }
+        state = State.BACKOFF;
+        long delay = backoffDelay(failedAttempts++, reconnectDelayMillis, reconnectMaxDelayMillis);
+        logger.info("Shard {}: attempting to reconnect in {} ms (attempt {})", shard, delay, failedAttempts);
+        scheduler.schedule(this::reconnect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void reconnect() {
+        if (state != State.BACKOFF) {
+            return;
+        }
+        reconnects++;
+        open();
+    }
+
+    /**
+     * Equal-jitter backoff: half of min(max, base * 2^attempt) plus a random part of the
+     * other half, so shards dropped together do not reconnect in lockstep
+     */
+    static long backoffDelay(int attempt, long baseMillis, long maxMillis) {
+        long ceiling = Math.min(maxMillis, baseMillis << Math.min(attempt, 20));
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+
+    synchronized void disconnect() {
+        state = State.STOPPED;
+        WebSocketClient socket = client;
+        if (socket != null && socket.isOpen()) {
+            socket.close();
+            logger.info("Shard {}: disconnected from Kraken WebSocket API", shard);
+        }
+        markAllUnsubscribed();
+    }
+
+    boolean isOpen() {
+        WebSocketClient current = client;
+        return current != null && current.isOpen();
+    }
+
+    /**
+     * Record a ticker update for a pair of this shard
+     * @param receivedNanos System.nanoTime() at which the frame was received
+     */
+    void tickReceived(String pair, long receivedNanos) {
+        PairState pairState = assignedPairs.get(pair);
+        if (pairState != null) {
+            pairState.lastTickNanos = receivedNanos;
+        }
+    }
+
+    /**
+     * Watchdog: reconnect a silent socket and resubscribe pairs that stopped ticking
+     */
+    private void checkStale() {
+        try {
+            WebSocketClient socket = client;
+            State current = state;
+            if (socket == null || (current != State.OPEN && current != State.ONLINE)) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (staleConnectionNanos > 0 && now - lastFrameNanos > staleConnectionNanos) {
+                logger.warn("Shard {}: no frames for {} ms, reconnecting", shard,
+                        TimeUnit.NANOSECONDS.toMillis(now - lastFrameNanos));
+                // Drop the socket without a close handshake; onClose schedules the reconnect
+                socket.closeConnection(CloseFrame.ABNORMAL_CLOSE, "Stale connection");
+                return;
+            }
+            if (stalePairNanos > 0 && current == State.ONLINE) {
+                resubscribeStalePairs(now);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Shard {}: error in connection watchdog: {}", shard, e.getMessage(), e);
+        }
+    }
+
+    private synchronized void resubscribeStalePairs(long now) {
+        List<String> stale = new ArrayList<>();
+        for (Map.Entry<String, PairState> entry : assignedPairs.entrySet()) {
+            PairState pairState = entry.getValue();
+            long lastSeen = Math.max(pairState.lastTickNanos, pairState.subscribedNanos);
+            if (pairState.subscribed && now - lastSeen > stalePairNanos) {
+                stale.add(entry.getKey());
+            }
+        }
+        if (stale.isEmpty()) {
+            return;
+        }
+        logger.warn("Shard {}: no ticks for {} pairs, resubscribing: {}", shard, stale.size(), stale);
+        send("unsubscribe", stale, tickerSubscription());
+        if (send("subscribe", stale, tickerSubscription())) {
+            for (String pair : stale) {
+                assignedPairs.get(pair).subscribedNanos = now;
+            }
+            resubscribes += stale.size();
+        }
+    }
+
+    /**
+     * Add pairs to this shard, subscribing them now if the exchange is online
+     */
+    void addPairs(Collection<String> pairs) {
+        boolean added = false;
+        for (String pair : pairs) {
+            if (assignedPairs.putIfAbsent(pair, new PairState()) == null) {
+                added = true;
+            }
+        }
+        if (added && state == State.ONLINE) {
+            subscribeAssigned();
+        }
+    }
+
+    /**
+     * Remove pairs from this shard, unsubscribing them if the socket is open
+     */
+    synchronized void removePairs(Collection<String> pairs) {
+        List<String> removed = new ArrayList<>();
+        for (String pair : pairs) {
+            PairState pairState = assignedPairs.remove(pair);
+            if (pairState != null && pairState.subscribed) {
+                removed.add(pair);
+            }
+        }
+        if (!removed.isEmpty() && isOpen()) {
+            send("unsubscribe", removed, tickerSubscription());
+            if (bookDepth > 0) {
+                send("unsubscribe", removed, bookSubscription());
+            }
+            logger.info("Shard {}: unsubscribed from ticker for pairs: {}", shard, removed);
+        }
+    }
+
+    /**
+     * Subscribe every assigned pair that is not yet subscribed on the current session
+     */
+    synchronized void subscribeAssigned() {
+        if (!isOpen()) {
+            return;
+        }
+        List<String> pending = new ArrayList<>();
+        for (Map.Entry<String, PairState> entry : assignedPairs.entrySet()) {
+            if (!entry.getValue().subscribed) {
+                pending.add(entry.getKey());
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        if (bookDepth > 0) {
+            send("subscribe", pending, bookSubscription());
+        }
+        if (send("subscribe", pending, tickerSubscription())) {
+            long now = System.nanoTime();
+            for (String pair : pending) {
+                PairState pairState = assignedPairs.get(pair);
+                if (pairState != null) {
+                    pairState.subscribed = true;
+                    pairState.subscribedNanos = now;
+                }
+            }
+            logger.info("Shard {}: subscribed to {} pairs: {}", shard, pending.size(), pending);
+        }
+    }
+
+    /**
+     * Resubscribe a pair's book channel so Kraken sends a fresh snapshot, e.g. after a
+     * checksum mismatch
+     */
+    synchronized void resyncBook(String pair) {
+        if (bookDepth == 0 || !isOpen() || !assignedPairs.containsKey(pair)) {
+            return;
+        }
+        List<String> pairs = List.of(pair);
+        send("unsubscribe", pairs, bookSubscription());
+        send("subscribe", pairs, bookSubscription());
+        bookResyncs++;
+        logger.info("Shard {}: resubscribed book for {}", shard, pair);
+    }
+
+    private Map<String, Object> tickerSubscription() {
+        Map<String, Object> subscription = new HashMap<>();
+        subscription.put("name", "ticker");
+        return subscription;
+    }
+
+    private Map<String, Object> bookSubscription() {
+        Map<String, Object> subscription = new HashMap<>();
+        subscription.put("name", "book");
+        subscription.put("depth", bookDepth);
+        return subscription;
+    }
+
+    private void markAllUnsubscribed() {
+        for (PairState pairState : assignedPairs.values()) {
+            pairState.subscribed = false;
+        }
+    }
+
+    /**
+     * Send a subscription message, formatted according to Kraken's documentation
+     * See: https://docs.kraken.com/websockets/#message-subscribe
+     */
+    private boolean send(String event, List<String> pairs, Map<String, Object> subscription) {
+        try {
+            Map<String, Object> message = new HashMap<>();
+            message.put("event", event);
+            message.put("subscription", subscription);
+            message.put("pair", pairs);
+            String json = objectMapper.writeValueAsString(message);
+            logger.debug("Shard {}: sending {} message: {}", shard, event, json);
+            client.send(json);
+            return true;
+        } catch (JsonProcessingException e) {
+            logger.error("Shard {}: error creating {} message: {}", shard, event, e.getMessage(), e);
+            return false;
+        } catch (RuntimeException e) {
+            logger.warn("Shard {}: could not send {} message: {}", shard, event, e.getMessage());
+            return false;
+        }
+    }
+
+    int getShard() {
+        return shard;
+    }
+
+    int getSubscribedCount() {
+        int subscribed = 0;
+        for (PairState pairState : assignedPairs.values()) {
+            if (pairState.subscribed) {
+                subscribed++;
+            }
+        }
+        return subscribed;
+    }
+
+    Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("shard", shard);
+        stats.put("state", state.name());
+        stats.put("open", isOpen());
+        stats.put("assigned", new TreeSet<>(assignedPairs.keySet()));
+        stats.put("subscribed", getSubscribedCount());
+        stats.put("framesReceived", framesReceived);
+        stats.put("reconnects", reconnects);
+        stats.put("resubscribes", resubscribes);
+        stats.put("bookResyncs", bookResyncs);
+        return stats;
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.crypto_task_backend.service.websocket;
+
+import com.example.crypto_task_backend.util.FixedPoint;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Reusable holder for a single decoded Kraken WebSocket frame.
+ * One instance is kept per consuming thread and reset before every parse,
+ * so ticker fields are decoded without allocating a tree or intermediate strings.
+ */
+public class KrakenFrame {
+
+    /**
+     * Frame kinds recognised by {@link KrakenFrameParser}
+     */
+    public enum Type {
+        HEARTBEAT, SYSTEM_STATUS, SUBSCRIPTION_STATUS, TICKER, BOOK_SNAPSHOT, BOOK_UPDATE, OTHER
+    }
+
+    Type type = Type.OTHER;
+    String status;
+    String connectionId;
+    String channelName;
+    String pair;
+    String errorMessage;
+    boolean tickerData;
+
+    final DecimalField last = new DecimalField();
+    final DecimalField ask = new DecimalField();
+    final DecimalField bid = new DecimalField();
+    final DecimalField volume24h = new DecimalField();
+
+    boolean bookSnapshot;
+    long checksum = -1;
+    final BookLevels bookAsks = new BookLevels();
+    final BookLevels bookBids = new BookLevels();
+
+    void reset() {
+        type = Type.OTHER;
+        status = null;
+        connectionId = null;
+        channelName = null;
+        pair = null;
+        errorMessage = null;
+        tickerData = false;
+        last.clear();
+        ask.clear();
+        bid.clear();
+        volume24h.clear();
+        bookSnapshot = false;
+        checksum = -1;
+        bookAsks.clear();
+        bookBids.clear();
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getConnectionId() {
+        return connectionId;
+    }
+
+    public String getChannelName() {
+        return channelName;
+    }
+
+    public String getPair() {
+        return pair;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public BigDecimal getPrice() {
+        return last.toBigDecimal();
+    }
+
+    public BigDecimal getAskPrice() {
+        return ask.toBigDecimal();
+    }
+
+    public BigDecimal getBidPrice() {
+        return bid.toBigDecimal();
+    }
+
+    public BigDecimal getVolume24h() {
+        return volume24h.toBigDecimal();
+    }
+
+    /**
+     * Last trade price as fixed-point units, or FixedPoint.NONE if absent
+     */
+    public long getPriceUnits(int scale) {
+        return last.toUnits(scale);
+    }
+
+    public long getAskUnits(int scale) {
+        return ask.toUnits(scale);
+    }
+
+    public long getBidUnits(int scale) {
+        return bid.toUnits(scale);
+    }
+
+    public long getVolumeUnits(int scale) {
+        return volume24h.toUnits(scale);
+    }
+
+    /**
+     * Digits before the decimal point of the 24h volume, or 0 if absent
+     */
+    public int getVolumeIntegerDigits() {
+        return volume24h.integerDigits();
+    }
+
+    /**
+     * Ticker fields that were present but could not be converted to units, because they were
+     * malformed or out of range at the requested scale. Such a field reads as FixedPoint.NONE
+     * and does not affect the others.
+     */
+    public int getRejectedFields() {
+        return (last.rejected ? 1 : 0) + (ask.rejected ? 1 : 0) + (bid.rejected ? 1 : 0)
+                + (volume24h.rejected ? 1 : 0);
+    }
+
+    /**
+     * Ask levels of a book snapshot or update, in frame order
+     */
+    public BookLevels getBookAsks() {
+        return bookAsks;
+    }
+
+    /**
+     * Bid levels of a book snapshot or update, in frame order
+     */
+    public BookLevels getBookBids() {
+        return bookBids;
+    }
+
+    /**
+     * CRC32 checksum sent with a book update, or -1 if the frame carried none
+     */
+    public long getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * Price levels decoded from a book frame. Each price keeps the number of decimals
+     * Kraken sent, which the book checksum depends on. Arrays grow once to the largest
+     * frame seen and are reused afterwards.
+     */
+    public static final class BookLevels {
+        private long[] prices = new long[16];
+        private int[] priceScales = new int[16];
+        private long[] volumes = new long[16];
+        private int[] volumeScales = new int[16];
+        private int size;
+
+        void add(long price, int priceScale, long volume, int volumeScale) {
+            if (size == prices.length) {
+                int capacity = size * 2;
+                prices = Arrays.copyOf(prices, capacity);
+                priceScales = Arrays.copyOf(priceScales, capacity);
+                volumes = Arrays.copyOf(volumes, capacity);
+                volumeScales = Arrays.copyOf(volumeScales, capacity);
+            }
+            prices[size] = price;
+            priceScales[size] = priceScale;
+            volumes[size] = volume;
+            volumeScales[size] = volumeScale;
+            size++;
+        }
+
+        /**
+         * Number of digits after the decimal point of a decimal string
+         */
+        static int decimals(char[] chars, int offset, int length) {
+            for (int i = 0; i < length; i++) {
+                if (chars[offset + i] == '.') {
+                    return Math.min(length - i - 1, FixedPoint.MAX_SCALE);
+                }
+            }
+            return 0;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long price(int index) {
+            return prices[index];
+        }
+
+        public int priceScale(int index) {
+            return priceScales[index];
+        }
+
+        public long volume(int index) {
+            return volumes[index];
+        }
+
+        public int volumeScale(int index) {
+            return volumeScales[index];
+        }
+    }
+
+    /**
+     * Character buffer for a decimal value copied straight out of the parser's text buffer
+     */
+    static final class DecimalField {
+        private char[] chars = new char[32];
+        private int length = -1;
+        private boolean rejected;
+
+        void set(char[] source, int offset, int len) {
+            if (len > chars.length) {
+                chars = new char[len];
+            }
+            System.arraycopy(source, offset, chars, 0, len);
+            length = len;
+        }
+
+        void clear() {
+            length = -1;
+            rejected = false;
+        }
+
+        boolean isPresent() {
+            return length > 0;
+        }
+
+        BigDecimal toBigDecimal() {
+            return isPresent() ? new BigDecimal(chars, 0, length) : null;
+        }
+
+        long toUnits(int scale) {
+            if (!isPresent()) {
+                return FixedPoint.NONE;
+            }
+            try {
+                return FixedPoint.parse(chars, 0, length, scale);
+            } catch (ArithmeticException | NumberFormatException e) {
+                rejected = true;
+                return FixedPoint.NONE;
+            }
+        }
+
+        int integerDigits() {
+            int start = length > 0 && (chars[0] == '-' || chars[0] == '+') ? 1 : 0;
+            // Leading zeros do not count, "0.5" has no integer digits
+            while (start < length && chars[start] == '0') {
+                start++;
+            }
+            int digits = 0;
+            while (start + digits < length && chars[start + digits] != '.') {
+                digits++;
+            }
+            return digits;
+        }
+    }
+}
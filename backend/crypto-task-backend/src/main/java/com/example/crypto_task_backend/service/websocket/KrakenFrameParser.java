@@ -0,0 +1,276 @@
+package com.example.crypto_task_backend.service.websocket;
+
+import com.example.crypto_task_backend.util.FixedPoint;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Single-pass streaming parser for Kraken WebSocket frames.
+ * Recognises heartbeat, systemStatus, subscriptionStatus, ticker and book array frames
+ * with Jackson's {@link JsonParser} instead of building a JsonNode tree.
+ * The parser itself is stateless; callers supply a per-thread {@link KrakenFrame}.
+ */
+public class KrakenFrameParser {
+
+    private static final String TICKER_CHANNEL = "ticker";
+    private static final String BOOK_CHANNEL_PREFIX = "book";
+
+    private final JsonFactory jsonFactory;
+
+    public KrakenFrameParser(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * Parse a raw frame into the supplied holder
+     * @param message The raw WebSocket frame
+     * @param frame The holder to decode into, reset before parsing
+     * @return The recognised frame type
+     * @throws IOException If the frame is not valid JSON
+     */
+    public KrakenFrame.Type parse(String message, KrakenFrame frame) throws IOException {
+        frame.reset();
+        try (JsonParser parser = jsonFactory.createParser(message)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                parseEvent(parser, frame);
+            } else if (token == JsonToken.START_ARRAY) {
+                parseChannelMessage(parser, frame);
+            }
+        }
+        return frame.type;
+    }
+
+    /**
+     * Event frames are flat objects, e.g. {"event":"systemStatus","status":"online",...}
+     */
+    private void parseEvent(JsonParser parser, KrakenFrame frame) throws IOException {
+        String event = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value.isStructStart()) {
+                parser.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "event" -> event = parser.getText();
+                case "status" -> frame.status = parser.getText();
+                case "connectionID" -> frame.connectionId = parser.getText();
+                case "channelName" -> frame.channelName = parser.getText();
+                case "pair" -> frame.pair = parser.getText();
+                case "errorMessage" -> frame.errorMessage = parser.getText();
+                default -> { }
+            }
+        }
+
+        if ("heartbeat".equals(event)) {
+            frame.type = KrakenFrame.Type.HEARTBEAT;
+        } else if ("systemStatus".equals(event)) {
+            frame.type = KrakenFrame.Type.SYSTEM_STATUS;
+        } else if ("subscriptionStatus".equals(event)) {
+            frame.type = KrakenFrame.Type.SUBSCRIPTION_STATUS;
+        }
+    }
+
+    /**
+     * Channel frames are arrays: [channelID, data, channelName, pair]. Book updates may
+     * carry two data objects, one for asks and one for bids: [channelID, {a}, {b}, channelName, pair]
+     */
+    private void parseChannelMessage(JsonParser parser, KrakenFrame frame) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+            if (token == JsonToken.START_OBJECT) {
+                parseData(parser, frame);
+            } else if (token == JsonToken.VALUE_STRING) {
+                if (textEquals(parser, TICKER_CHANNEL)) {
+                    frame.channelName = TICKER_CHANNEL;
+                } else if (textContains(parser, '/')) {
+                    frame.pair = parser.getText();
+                } else {
+                    frame.channelName = parser.getText();
+                }
+            } else if (token == JsonToken.START_ARRAY) {
+                parser.skipChildren();
+            }
+        }
+
+        if (frame.pair == null || frame.channelName == null) {
+            return;
+        }
+        if (frame.tickerData && TICKER_CHANNEL.equals(frame.channelName)) {
+            frame.type = KrakenFrame.Type.TICKER;
+        } else if (frame.channelName.startsWith(BOOK_CHANNEL_PREFIX)) {
+            frame.type = frame.bookSnapshot ? KrakenFrame.Type.BOOK_SNAPSHOT : KrakenFrame.Type.BOOK_UPDATE;
+        }
+    }
+
+    /**
+     * Ticker and book data share the keys "a", "b" and "c": in a ticker they hold flat
+     * arrays and "c" is the last trade, in a book "a" and "b" hold level arrays and "c"
+     * is the checksum string
+     */
+    private void parseData(JsonParser parser, KrakenFrame frame) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "c" -> {
+                    if (value == JsonToken.VALUE_STRING) {
+                        frame.checksum = parseUnsigned(parser);
+                    } else {
+                        frame.tickerData = true;
+                        readElement(parser, value, 0, frame.last);
+                    }
+                }
+                case "a" -> readElementOrLevels(parser, value, frame.ask, frame.bookAsks);
+                case "b" -> readElementOrLevels(parser, value, frame.bid, frame.bookBids);
+                case "as" -> {
+                    frame.bookSnapshot = true;
+                    readLevels(parser, value, frame.bookAsks);
+                }
+                case "bs" -> {
+                    frame.bookSnapshot = true;
+                    readLevels(parser, value, frame.bookBids);
+                }
+                case "v" -> readElement(parser, value, 1, frame.volume24h);
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private void readElementOrLevels(JsonParser parser, JsonToken value, KrakenFrame.DecimalField target,
+                                     KrakenFrame.BookLevels levels) throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        JsonToken first = parser.nextToken();
+        if (first == JsonToken.START_ARRAY) {
+            readLevelsFrom(parser, first, levels);
+        } else {
+            readElements(parser, first, 0, target);
+        }
+    }
+
+    private void readLevels(JsonParser parser, JsonToken value, KrakenFrame.BookLevels levels) throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        readLevelsFrom(parser, parser.nextToken(), levels);
+    }
+
+    /**
+     * Read level arrays ["price", "volume", "timestamp"(, "r")] until the end of the
+     * enclosing array
+     * @param first The first token inside the enclosing array
+     */
+    private void readLevelsFrom(JsonParser parser, JsonToken first, KrakenFrame.BookLevels levels) throws IOException {
+        for (JsonToken token = first; token != null && token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            if (token != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            long price = FixedPoint.NONE;
+            int priceScale = 0;
+            long volume = FixedPoint.NONE;
+            int volumeScale = 0;
+            int index = 0;
+            JsonToken element;
+            while ((element = parser.nextToken()) != null && element != JsonToken.END_ARRAY) {
+                if (element.isStructStart()) {
+                    parser.skipChildren();
+                } else if (index == 0 || index == 1) {
+                    char[] chars = parser.getTextCharacters();
+                    int offset = parser.getTextOffset();
+                    int length = parser.getTextLength();
+                    int scale = KrakenFrame.BookLevels.decimals(chars, offset, length);
+                    long units = FixedPoint.parse(chars, offset, length, scale);
+                    if (index == 0) {
+                        price = units;
+                        priceScale = scale;
+                    } else {
+                        volume = units;
+                        volumeScale = scale;
+                    }
+                }
+                index++;
+            }
+            if (price != FixedPoint.NONE && volume != FixedPoint.NONE) {
+                levels.add(price, priceScale, volume, volumeScale);
+            }
+        }
+    }
+
+    private static long parseUnsigned(JsonParser parser) throws IOException {
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int end = offset + parser.getTextLength();
+        long value = 0;
+        for (int i = offset; i < end; i++) {
+            char c = chars[i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Copy the element at the given index of the current array into the target field
+     * and skip the rest of the array
+     */
+    private void readElement(JsonParser parser, JsonToken value, int wanted,
+                             KrakenFrame.DecimalField target) throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        readElements(parser, parser.nextToken(), wanted, target);
+    }
+
+    private void readElements(JsonParser parser, JsonToken first, int wanted,
+                              KrakenFrame.DecimalField target) throws IOException {
+        int index = 0;
+        for (JsonToken token = first; token != null && token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            if (token.isStructStart()) {
+                parser.skipChildren();
+            } else if (index == wanted) {
+                target.set(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+            }
+            index++;
+        }
+    }
+
+    private static boolean textEquals(JsonParser parser, String expected) throws IOException {
+        int length = parser.getTextLength();
+        if (length != expected.length()) {
+            return false;
+        }
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        for (int i = 0; i < length; i++) {
+            if (chars[offset + i] != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean textContains(JsonParser parser, char expected) throws IOException {
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int end = offset + parser.getTextLength();
+        for (int i = offset; i < end; i++) {
+            if (chars[i] == expected) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
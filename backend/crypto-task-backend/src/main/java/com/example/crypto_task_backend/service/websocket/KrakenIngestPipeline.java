@@ -0,0 +1,161 @@
+package com.example.crypto_task_backend.service.websocket;
+
+import com.example.crypto_task_backend.config.KrakenWebSocketConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decouples the Kraken socket read threads from parsing, cache updates and broadcast.
+ * The socket threads only publish raw frames; each consumer thread drains its own
+ * {@link FrameRingBuffer} and runs the frame handler. A channel frame goes to the ring
+ * chosen by a hash of its pair, so every frame of a pair is handled by one consumer in
+ * arrival order however many consumers run, and an overflow of one ring only drops
+ * frames of the pairs that hash to it. Event frames carry no pair and go to the first ring.
+ */
+@Component
+public class KrakenIngestPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(KrakenIngestPipeline.class);
+
+    private static final int SPIN_TRIES = 100;
+    private static final long IDLE_PARK_NANOS = 100_000L;
+
+    private final FrameRingBuffer[] rings;
+    private final List<Thread> consumers = new ArrayList<>();
+    private volatile boolean running;
+
+    @Autowired
+    public KrakenIngestPipeline(KrakenWebSocketConfig config) {
+        int consumerCount = Math.max(1, config.getIngestConsumers());
+        this.rings = new FrameRingBuffer[consumerCount];
+        for (int i = 0; i < consumerCount; i++) {
+            rings[i] = new FrameRingBuffer(config.getIngestRingSize(), config.getIngestOverflowPolicy());
+        }
+    }
+
+    /**
+     * Start the consumer stage. Subsequent calls are ignored.
+     * @param handler Invoked on a consumer thread for every frame taken off its ring
+     */
+    public synchronized void start(FrameRingBuffer.FrameConsumer handler) {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < rings.length; i++) {
+            FrameRingBuffer ring = rings[i];
+            Thread consumer = new Thread(() -> consume(ring, handler), "kraken-ingest-" + i);
+            consumer.setDaemon(true);
+            consumer.start();
+            consumers.add(consumer);
+        }
+        logger.info("Started Kraken ingest pipeline: ring capacity={}, consumers={}, overflow={}",
+                rings[0].capacity(), rings.length, rings[0].getOverflowPolicy());
+    }
+
+    /**
+     * Hand a raw frame over from a socket thread
+     * @param frame The raw frame
+     */
+    public void publish(String frame) {
+        long receivedNanos = System.nanoTime();
+        rings[rings.length == 1 ? 0 : ringFor(frame)].publish(frame, receivedNanos);
+    }
+
+    /**
+     * Ring of the pair a channel frame ends with, e.g. [42,{...},"ticker","XBT/USD"];
+     * the pair is hashed in place, without parsing the frame or allocating
+     */
+    int ringFor(String frame) {
+        int end = frame.length() - 1;
+        while (end >= 0 && Character.isWhitespace(frame.charAt(end))) {
+            end--;
+        }
+        if (end < 1 || frame.charAt(end) != ']' || frame.charAt(end - 1) != '"') {
+            return 0;
+        }
+        int hash = 0;
+        for (int i = end - 2; i >= 0 && frame.charAt(i) != '"'; i--) {
+            hash = 31 * hash + frame.charAt(i);
+        }
+        // Murmur3 finalizer, so pairs differing in one character land on different rings
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return (hash & Integer.MAX_VALUE) % rings.length;
+    }
+
+    private void consume(FrameRingBuffer ring, FrameRingBuffer.FrameConsumer handler) {
+        int idle = 0;
+        while (running) {
+            try {
+                if (ring.poll(handler)) {
+                    idle = 0;
+                } else if (++idle < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            } catch (Exception e) {
+                logger.error("Error in ingest consumer: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Ring occupancy and throughput counters, summed over the consumers' rings
+     */
+    public Map<String, Object> getStats() {
+        long occupancy = 0;
+        long highWaterMark = 0;
+        long published = 0;
+        long consumed = 0;
+        long dropped = 0;
+        long blocked = 0;
+        List<Long> ringOccupancy = new ArrayList<>(rings.length);
+        for (FrameRingBuffer ring : rings) {
+            long size = ring.size();
+            ringOccupancy.add(size);
+            occupancy += size;
+            highWaterMark = Math.max(highWaterMark, ring.getHighWaterMark());
+            published += ring.getPublished();
+            consumed += ring.getConsumed();
+            dropped += ring.getDropped();
+            blocked += ring.getBlocked();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("capacity", rings[0].capacity());
+        stats.put("occupancy", occupancy);
+        stats.put("ringOccupancy", ringOccupancy);
+        stats.put("highWaterMark", highWaterMark);
+        stats.put("published", published);
+        stats.put("consumed", consumed);
+        stats.put("dropped", dropped);
+        stats.put("blocked", blocked);
+        stats.put("overflowPolicy", rings[0].getOverflowPolicy().name());
+        stats.put("consumers", rings.length);
+        return stats;
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        for (FrameRingBuffer ring : rings) {
+            ring.close();
+        }
+        for (Thread consumer : consumers) {
+            LockSupport.unpark(consumer);
+        }
+        consumers.clear();
+    }
+}
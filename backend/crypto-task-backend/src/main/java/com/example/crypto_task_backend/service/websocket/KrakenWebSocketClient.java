@@ -3,11 +3,13 @@ package com.example.crypto_task_backend.service.websocket;
 import com.example.crypto_task_backend.config.KrakenWebSocketConfig;
 import com.example.crypto_task_backend.service.CryptoPairService;
 import com.example.crypto_task_backend.service.CryptoPriceService;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.example.crypto_task_backend.service.PriceScaleRegistry;
+import com.example.crypto_task_backend.service.latency.TickLatencyRecorder;
+import com.example.crypto_task_backend.service.orderbook.OrderBookService;
+import com.example.crypto_task_backend.util.EpochNanos;
+import com.example.crypto_task_backend.util.FixedPoint;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.java_websocket.client.WebSocketClient;
-import org.java_websocket.handshake.ServerHandshake;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +22,9 @@ import java.math.RoundingMode;
 import java.net.URI;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 @Service
 public class KrakenWebSocketClient implements CryptoWebSocketClient {
@@ -28,92 +33,73 @@ public class KrakenWebSocketClient implements CryptoWebSocketClient {
     private final KrakenWebSocketConfig config;
     private final CryptoPriceService cryptoPriceService;
     private final CryptoPairService cryptoPairService;
-    private WebSocketClient client;
-    private final Set<String> subscribedPairs = new HashSet<>();
+    private final KrakenIngestPipeline ingestPipeline;
+    private final PriceScaleRegistry priceScaleRegistry;
+    private final FrameRecorder frameRecorder;
+    private final TickLatencyRecorder latencyRecorder;
+    private final OrderBookService orderBookService;
+    private final List<KrakenConnection> connections;
+    private final ConsistentHashRing shardRing;
+    private final Map<String, KrakenConnection> pairOwners = new ConcurrentHashMap<>();
+    private final KrakenFrameParser frameParser;
+    private final ThreadLocal<KrakenFrame> frameHolder = ThreadLocal.withInitial(KrakenFrame::new);
+    private final Set<String> rejectingPairs = ConcurrentHashMap.newKeySet();
 
     @Autowired
     public KrakenWebSocketClient(ObjectMapper objectMapper, 
                                 KrakenWebSocketConfig config,
                                 CryptoPriceService cryptoPriceService,
-                                CryptoPairService cryptoPairService) {
+                                CryptoPairService cryptoPairService,
+                                KrakenIngestPipeline ingestPipeline,
+                                PriceScaleRegistry priceScaleRegistry,
+                                FrameRecorder frameRecorder,
+                                TickLatencyRecorder latencyRecorder,
+                                OrderBookService orderBookService) {
         this.objectMapper = objectMapper;
         this.config = config;
         this.cryptoPriceService = cryptoPriceService;
         this.cryptoPairService = cryptoPairService;
+        this.ingestPipeline = ingestPipeline;
+        this.priceScaleRegistry = priceScaleRegistry;
+        this.frameRecorder = frameRecorder;
+        this.latencyRecorder = latencyRecorder;
+        this.orderBookService = orderBookService;
+        this.frameParser = new KrakenFrameParser(objectMapper.getFactory());
+
+        // Pairs are spread over the shards by consistent hashing; reconnects and watchdogs
+        // of all shards run on one small scheduler instead of ad-hoc threads
+        int shards = config.getWebSocketConnections();
+        this.shardRing = new ConsistentHashRing(shards);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "kraken-connections");
+            thread.setDaemon(true);
+            return thread;
+        });
+        URI uri = URI.create(config.getKrakenWebSocketUrl());
+        List<KrakenConnection> shardConnections = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            shardConnections.add(new KrakenConnection(shard, uri, objectMapper, ingestPipeline, scheduler, config));
+        }
+        this.connections = List.copyOf(shardConnections);
     }
 
     @PostConstruct
     public void connect() {
+        ingestPipeline.start(this::handleFrame);
         try {
-            logger.info("Connecting to Kraken WebSocket API at {}", config.getKrakenWebSocketUrl());
-            client = new WebSocketClient(URI.create(config.getKrakenWebSocketUrl())) {
-                @Override
-                public void onOpen(ServerHandshake handshakedata) {
-                    logger.info("Connected to Kraken WebSocket API with status: {}", handshakedata.getHttpStatus());
-                    
-                    // Add a delay before subscribing to give the connection time to stabilize
-                    new Thread(() -> {
-                        try {
-                            // Wait for 2 seconds to ensure connection is fully established
-                            Thread.sleep(2000);
-                            // Subscribe to all top pairs
-                            List<String> topPairs = cryptoPairService.getTopCryptoPairs();
-                            if (!topPairs.isEmpty()) {
-                                String[] pairsArray = topPairs.toArray(new String[0]);
-                                subscribeToPairs(pairsArray);
-                            } else {
-                                logger.warn("No top pairs available for subscription");
-                                createDummyPriceData();
-                            }
-                        } catch (Exception e) {
-                            logger.error("Error in delayed subscription: {}", e.getMessage(), e);
-                        }
-                    }).start();
-                }
-                
-                @Override
-                public void onMessage(String message) {
-                    try {
-                        // Log the raw message for debugging
-                        if (message.length() < 1000) {
-                            logger.debug("Received WebSocket message: {}", message);
-                        } else {
-                            logger.debug("Received WebSocket message (truncated): {}", message.substring(0, 500));
-                        }
-                        processMessage(message);
-                    } catch (Exception e) {
-                        logger.error("Error processing WebSocket message: {}", e.getMessage(), e);
-                    }
-                }
-                
-                @Override
-                public void onClose(int code, String reason, boolean remote) {
-                    logger.info("Disconnected from Kraken WebSocket API: code={}, reason={}, remote={}", 
-                               code, reason, remote);
-                    
-                    // Attempt to reconnect after a delay
-                    if (remote) {
-                        new Thread(() -> {
-                            try {
-                                logger.info("Attempting to reconnect in 5 seconds...");
-                                Thread.sleep(5000);
-                                connect();
-                            } catch (Exception e) {
-                                logger.error("Error during reconnection attempt: {}", e.getMessage(), e);
-                            }
-                        }).start();
-                    }
-                }
-                
-                @Override
-                public void onError(Exception ex) {
-                    logger.error("WebSocket error: {}", ex.getMessage(), ex);
-                }
-            };
-            
-            // Connect with a timeout
-            client.setConnectionLostTimeout(30);
-            client.connect();
+            List<String> topPairs = cryptoPairService.getTopCryptoPairs();
+            if (topPairs.isEmpty()) {
+                logger.warn("No top pairs available for subscription");
+                createDummyPriceData();
+            } else {
+                assignPairs(topPairs);
+            }
+            logger.info("Connecting {} shard(s) to Kraken WebSocket API at {}",
+                    connections.size(), config.getKrakenWebSocketUrl());
+            // Each shard subscribes its own pairs once its socket is open
+            for (KrakenConnection connection : connections) {
+                connection.connect();
+            }
         } catch (Exception e) {
             logger.error("Error connecting to Kraken WebSocket API: {}", e.getMessage(), e);
         }
@@ -121,56 +107,40 @@ public class KrakenWebSocketClient implements CryptoWebSocketClient {
 
     @Override
     public void disconnect() {
-        if (client != null && client.isOpen()) {
-            client.close();
-            logger.info("Disconnected from Kraken WebSocket API");
+        for (KrakenConnection connection : connections) {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Group pairs by the shard that owns them on the hash ring
+     */
+    private Map<Integer, List<String>> byShard(Collection<String> pairs) {
+        Map<Integer, List<String>> grouped = new HashMap<>();
+        for (String pair : pairs) {
+            String trimmed = pair.trim();
+            grouped.computeIfAbsent(shardRing.shardFor(trimmed), s -> new ArrayList<>()).add(trimmed);
         }
+        return grouped;
+    }
+
+    private void assignPairs(Collection<String> pairs) {
+        byShard(pairs).forEach((shard, shardPairs) -> {
+            KrakenConnection connection = connections.get(shard);
+            for (String pair : shardPairs) {
+                pairOwners.put(pair, connection);
+            }
+            connection.addPairs(shardPairs);
+        });
     }
 
     @Override
     public void subscribeToPairs(String[] pairs) {
-        if (client == null || !client.isOpen()) {
+        if (!isConnected()) {
             logger.warn("Cannot subscribe, WebSocket is not connected");
             return;
         }
-        
-        try {
-            // Format subscription message according to Kraken's official documentation
-            // See: https://docs.kraken.com/websockets/#message-subscribe
-            Map<String, Object> subscriptionMessage = new HashMap<>();
-            subscriptionMessage.put("event", "subscribe");
-            
-            // Create subscription object
-            Map<String, Object> subscription = new HashMap<>();
-            subscription.put("name", "ticker");
-            subscriptionMessage.put("subscription", subscription);
-            
-            // Add pairs to subscribe to
-            List<String> pairsList = new ArrayList<>();
-            for (String pair : pairs) {
-                if (!subscribedPairs.contains(pair)) {
-                    pairsList.add(pair);
-                    subscribedPairs.add(pair);
-                }
-            }
-            
-            if (pairsList.isEmpty()) {
-                logger.info("No new pairs to subscribe to");
-                return;
-            }
-            
-            // Set pairs list in message
-            subscriptionMessage.put("pair", pairsList);
-            
-            // Convert to JSON and send
-            String message = objectMapper.writeValueAsString(subscriptionMessage);
-            logger.info("Sending subscription message: {}", message);
-            client.send(message);
-            
-            logger.info("Subscribed to {} pairs: {}", pairsList.size(), pairsList);
-        } catch (Exception e) {
-            logger.error("Error creating subscription message: {}", e.getMessage(), e);
-        }
+        assignPairs(Arrays.asList(pairs));
     }
     
     /**
@@ -178,31 +148,15 @@ public class KrakenWebSocketClient implements CryptoWebSocketClient {
      * @param pairs The pairs to unsubscribe from
      */
     public void unsubscribeFromPairs(String[] pairs) {
-        if (client == null || !client.isOpen()) {
+        if (!isConnected()) {
             logger.warn("Cannot unsubscribe, WebSocket is not connected");
             return;
         }
-        
-        try {
-            for (String pair : pairs) {
-                if (subscribedPairs.contains(pair)) {
-                    Map<String, Object> unsubscriptionMessage = new HashMap<>();
-                    Map<String, Object> subscription = new HashMap<>();
-                    subscription.put("name", "ticker");
-                    
-                    unsubscriptionMessage.put("event", "unsubscribe");
-                    unsubscriptionMessage.put("subscription", subscription);
-                    unsubscriptionMessage.put("pair", Arrays.asList(pair.trim()));
-                    
-                    String message = objectMapper.writeValueAsString(unsubscriptionMessage);
-                    client.send(message);
-                    subscribedPairs.remove(pair);
-                    logger.info("Unsubscribed from ticker for pair: {}", pair);
-                }
-            }
-        } catch (JsonProcessingException e) {
-            logger.error("Error creating unsubscription message: {}", e.getMessage(), e);
-        }
+        byShard(Arrays.asList(pairs)).forEach((shard, shardPairs) -> {
+            pairOwners.keySet().removeAll(shardPairs);
+            connections.get(shard).removePairs(shardPairs);
+            shardPairs.forEach(latencyRecorder::removeSymbol);
+        });
     }
 
     /**
@@ -227,19 +181,16 @@ public class KrakenWebSocketClient implements CryptoWebSocketClient {
                 return;
             }
             
-            // Convert to array
-            String[] pairsArray = topPairs.toArray(new String[0]);
-            
-            // Subscribe to new pairs
-            subscribeToPairs(pairsArray);
+            // Subscribe to new pairs on the shards that own them
+            assignPairs(topPairs);
             
             // If we don't have any subscriptions yet, create some dummy data for testing
-            if (subscribedPairs.isEmpty()) {
+            int subscribed = getSubscribedCount();
+            if (subscribed == 0) {
                 logger.warn("No active subscriptions, creating dummy data for testing");
                 createDummyPriceData();
             } else {
-                // Log current subscriptions
-                logger.info("Currently subscribed to {} pairs: {}", subscribedPairs.size(), subscribedPairs);
+                logger.info("Currently subscribed to {} pairs across {} shard(s)", subscribed, connections.size());
             }
         } catch (Exception e) {
             logger.error("Error updating subscriptions: {}", e.getMessage(), e);
@@ -252,6 +203,11 @@ public class KrakenWebSocketClient implements CryptoWebSocketClient {
      * Create dummy price data for testing when no real data is available
      */
     private void createDummyPriceData() {
+        // Prices restored from the tick journal or received earlier are better than random ones
+        if (cryptoPriceService.getPriceTable().size() > 0) {
+            logger.info("Keeping {} existing prices instead of creating dummy data", cryptoPriceService.getPriceTable().size());
+            return;
+        }
         // Create dummy data for the top 20 cryptocurrencies
         String[] symbols = {
             "XBT/USD", "ETH/USD", "XRP/USD", "LTC/USD", "BCH/USD", 
@@ -286,10 +242,163 @@ public class KrakenWebSocketClient implements CryptoWebSocketClient {
 
     @Override
     public boolean isConnected() {
-        return client != null && client.isOpen();
+        for (KrakenConnection connection : connections) {
+            if (connection.isOpen()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int getSubscribedCount() {
+        int subscribed = 0;
+        for (KrakenConnection connection : connections) {
+            subscribed += connection.getSubscribedCount();
+        }
+        return subscribed;
+    }
+
+    /**
+     * Connection state, assigned pairs and frame counts of every shard
+     */
+    public List<Map<String, Object>> getShardStats() {
+        List<Map<String, Object>> stats = new ArrayList<>(connections.size());
+        for (KrakenConnection connection : connections) {
+            stats.add(connection.getStats());
+        }
+        return stats;
+    }
+    
+    /**
+     * Feed the owning shard's staleness watchdog
+     */
+    private void tickReceived(String pair, long receivedNanos) {
+        KrakenConnection owner = pairOwners.get(pair);
+        if (owner != null) {
+            owner.tickReceived(pair, receivedNanos);
+        }
+    }
+    
+    /**
+     * Consumer-side entry point for frames taken off the ingest ring
+     * @param message The raw frame
+     * @param receivedNanos System.nanoTime() at which the socket thread received the frame
+     */
+    void handleFrame(String message, long receivedNanos) {
+        long dequeuedNanos = System.nanoTime();
+        try {
+            // Log the raw message for debugging
+            if (logger.isDebugEnabled()) {
+                if (message.length() < 1000) {
+                    logger.debug("Received WebSocket message: {}", message);
+                } else {
+                    logger.debug("Received WebSocket message (truncated): {}", message.substring(0, 500));
+                }
+            }
+            frameRecorder.record(message, receivedNanos);
+            processMessage(message, receivedNanos, dequeuedNanos);
+        } catch (Exception e) {
+            logger.error("Error processing WebSocket message: {}", e.getMessage(), e);
+        }
+    }
+    
+    void processMessage(String message) {
+        long now = System.nanoTime();
+        processMessage(message, now, now);
+    }
+    
+    /**
+     * @param receivedNanos System.nanoTime() at which the socket thread received the frame
+     * @param dequeuedNanos System.nanoTime() at which a consumer took the frame off the ring
+     */
+    void processMessage(String message, long receivedNanos, long dequeuedNanos) {
+        if (config.isStreamingParser()) {
+            processMessageStreaming(message, receivedNanos, dequeuedNanos);
+        } else {
+            processMessageTree(message);
+        }
     }
     
-    private void processMessage(String message) {
+    /**
+     * Single-pass parse of the frame into a reusable per-thread holder
+     */
+    private void processMessageStreaming(String message, long receivedNanos, long dequeuedNanos) {
+        KrakenFrame frame = frameHolder.get();
+        try {
+            switch (frameParser.parse(message, frame)) {
+                case HEARTBEAT -> logger.debug("Received heartbeat from Kraken");
+                case SYSTEM_STATUS -> logger.info("Kraken system status: {}, connectionID: {}",
+                        frame.getStatus(), frame.getConnectionId() != null ? frame.getConnectionId() : "unknown");
+                case SUBSCRIPTION_STATUS -> logger.info("Subscription status: {}, channel: {}, pair: {}",
+                        frame.getStatus(),
+                        frame.getChannelName() != null ? frame.getChannelName() : "unknown",
+                        frame.getPair() != null ? frame.getPair() : "unknown");
+                case TICKER -> {
+                    // Decode straight to scaled longs; no BigDecimal is created on this path
+                    String pair = frame.getPair();
+                    int scale = priceScaleRegistry.priceScale(pair);
+                    long price = frame.getPriceUnits(scale);
+                    if (price == FixedPoint.NONE && frame.getRejectedFields() > 0) {
+                        fieldsRejected(pair, frame, message);
+                    }
+                    if (price != FixedPoint.NONE) {
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("Updating price for {}: {}", pair, FixedPoint.toBigDecimal(price, scale));
+                        }
+                        // The tick is timestamped with its socket receive time, which also identifies it for latency tracking
+                        long epochNanos = EpochNanos.fromNanoTime(receivedNanos);
+                        long askUnits = frame.getAskUnits(scale);
+                        long bidUnits = frame.getBidUnits(scale);
+                        int volumeScale = priceScaleRegistry.volumeScale(pair);
+                        if (volumeScale < 0) {
+                            volumeScale = priceScaleRegistry.fitVolumeScale(pair, frame.getVolumeIntegerDigits());
+                        }
+                        long volumeUnits = frame.getVolumeUnits(volumeScale);
+                        if (frame.getRejectedFields() > 0) {
+                            // Out-of-range fields read as absent, the rest of the tick still applies
+                            fieldsRejected(pair, frame, message);
+                        }
+                        long parsedNanos = System.nanoTime();
+                        cryptoPriceService.updatePrice(pair, scale, price, askUnits, bidUnits, volumeScale,
+                                volumeUnits, epochNanos);
+                        latencyRecorder.recordIngest(pair, epochNanos, receivedNanos, dequeuedNanos,
+                                parsedNanos, System.nanoTime());
+                        tickReceived(pair, receivedNanos);
+                    }
+                }
+                case BOOK_SNAPSHOT, BOOK_UPDATE -> {
+                    if (orderBookService.apply(frame)) {
+                        KrakenConnection owner = pairOwners.get(frame.getPair());
+                        if (owner != null) {
+                            owner.resyncBook(frame.getPair());
+                        }
+                    }
+                }
+                default -> { }
+            }
+        } catch (Exception e) {
+            logger.error("Error parsing WebSocket message: {}", e.getMessage(), e);
+            logger.debug("Problematic message: {}", message);
+        }
+    }
+    
+    /**
+     * Warn once per pair about ticker fields that do not fit their scale, which a scale
+     * registered for the pair fixes; later occurrences are logged at debug level
+     */
+    private void fieldsRejected(String pair, KrakenFrame frame, String message) {
+        if (rejectingPairs.add(pair)) {
+            logger.warn("Dropped {} ticker field(s) of {} that are malformed or out of range at price scale {}"
+                    + " and volume scale {}", frame.getRejectedFields(), pair, priceScaleRegistry.priceScale(pair),
+                    priceScaleRegistry.volumeScale(pair));
+        }
+        logger.debug("Rejected ticker fields in message: {}", message);
+    }
+
+    /**
+     * Original JsonNode tree-based parse, kept behind kraken.websocket.parser=tree for comparison
+     */
+    private void processMessageTree(String message) {
         try {
             JsonNode root = objectMapper.readTree(message);
             
@@ -373,6 +482,7 @@ public class KrakenWebSocketClient implements CryptoWebSocketClient {
                                 pair, price, askPrice, bidPrice, volume24h);
                             
                             cryptoPriceService.updatePrice(pair, price, askPrice, bidPrice, volume24h, LocalDateTime.now());
+                            tickReceived(pair, System.nanoTime());
                         }
                     } catch (Exception e) {
                         logger.error("Error processing ticker data for {}: {}", pair, e.getMessage());
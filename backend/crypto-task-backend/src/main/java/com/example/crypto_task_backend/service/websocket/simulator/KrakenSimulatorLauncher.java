@@ -0,0 +1,47 @@
+package com.example.crypto_task_backend.service.websocket.simulator;
+
+import com.example.crypto_task_backend.config.KrakenWebSocketConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs a {@link KrakenSimulatorServer} inside the application when
+ * kraken.simulator.enabled is set, for load tests without network access.
+ * The client should then use kraken.websocket.url=ws://localhost:{kraken.simulator.port}.
+ */
+@Component
+public class KrakenSimulatorLauncher {
+    private static final Logger logger = LoggerFactory.getLogger(KrakenSimulatorLauncher.class);
+
+    private final KrakenSimulatorServer server;
+
+    @Autowired
+    public KrakenSimulatorLauncher(KrakenWebSocketConfig config) {
+        if (!config.isSimulatorEnabled()) {
+            this.server = null;
+            return;
+        }
+        this.server = new KrakenSimulatorServer(config.getSimulatorPort(),
+                KrakenSimulatorServer.feedFor(config.getSimulatorSource(), config.getSimulatorRate(), config.isSimulatorLoop()),
+                KrakenSimulatorServer.parseSpeed(config.getSimulatorSpeed()));
+        server.start();
+        logger.info("Started Kraken simulator from source {} on port {}", config.getSimulatorSource(), config.getSimulatorPort());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server == null) {
+            return;
+        }
+        try {
+            server.shutdown();
+            logger.info("Stopped Kraken simulator after {} frames", server.getFramesSent());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.crypto_task_backend.service.websocket.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Local stand-in for wss://ws.kraken.com speaking the public v1 protocol: a systemStatus
+ * event on connect, subscriptionStatus acks for ticker subscribe/unsubscribe, ping/pong,
+ * heartbeats when idle and ticker channel arrays from a {@link SimulatedFeed}.
+ * Frames are paced by their feed timestamps divided by the speed factor; a speed of 0
+ * sends as fast as the clients accept them. Point kraken.websocket.url at
+ * ws://localhost:{port} to use it.
+ */
+public class KrakenSimulatorServer extends WebSocketServer {
+    private static final Logger logger = LoggerFactory.getLogger(KrakenSimulatorServer.class);
+
+    private static final long HEARTBEAT_NANOS = 1_000_000_000L;
+    private static final long IDLE_PARK_NANOS = 50_000_000L;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Function<List<String>, SimulatedFeed> feedFactory;
+    private final double speed;
+    private final List<String> subscribedPairs = new CopyOnWriteArrayList<>();
+    private final Map<String, Integer> channelIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextChannelId = new AtomicInteger(1);
+    private final AtomicInteger nextConnectionId = new AtomicInteger(1);
+    private volatile boolean running;
+    private volatile long framesSent;
+    private Thread playback;
+
+    /**
+     * @param port Port to listen on
+     * @param feedFactory Creates the feed, given the live list of pairs clients have subscribed to
+     * @param speed Playback speed factor; 1 is real time, 0 is unpaced
+     */
+    public KrakenSimulatorServer(int port, Function<List<String>, SimulatedFeed> feedFactory, double speed) {
+        super(new InetSocketAddress(port));
+        this.feedFactory = feedFactory;
+        this.speed = speed;
+        setReuseAddr(true);
+    }
+
+    /**
+     * Parse a speed such as "1x", "25x" or "max"
+     * @return The speed factor, 0 for max
+     */
+    public static double parseSpeed(String speed) {
+        String value = speed.trim().toLowerCase();
+        if (value.equals("max")) {
+            return 0;
+        }
+        if (value.endsWith("x")) {
+            value = value.substring(0, value.length() - 1);
+        }
+        double factor = Double.parseDouble(value);
+        if (factor <= 0) {
+            throw new IllegalArgumentException("Speed must be positive or \"max\": " + speed);
+        }
+        return factor;
+    }
+
+    /**
+     * Feed factory for a source: "random" for a random walk, otherwise a recording file
+     */
+    public static Function<List<String>, SimulatedFeed> feedFor(String source, double ticksPerSecond, boolean loop) {
+        if ("random".equalsIgnoreCase(source)) {
+            return pairs -> new RandomWalkFeed(pairs, ticksPerSecond, 42L);
+        }
+        return pairs -> {
+            try {
+                return new RecordedFeed(Paths.get(source), loop);
+            } catch (IOException e) {
+                throw new RuntimeException("Cannot open recording " + source + ": " + e.getMessage(), e);
+            }
+        };
+    }
+
+    @Override
+    public void onStart() {
+        running = true;
+        playback = new Thread(this::play, "kraken-simulator");
+        playback.setDaemon(true);
+        playback.start();
+        logger.info("Kraken simulator listening on port {} at speed {}", getPort(), speed == 0 ? "max" : speed + "x");
+    }
+
+    @Override
+    public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        conn.setAttachment(ConcurrentHashMap.newKeySet());
+        ObjectNode status = objectMapper.createObjectNode();
+        status.put("connectionID", nextConnectionId.getAndIncrement());
+        status.put("event", "systemStatus");
+        status.put("status", "online");
+        status.put("version", "1.9.0");
+        conn.send(status.toString());
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, String message) {
+        try {
+            JsonNode request = objectMapper.readTree(message);
+            String event = request.path("event").asText();
+            switch (event) {
+                case "ping" -> {
+                    ObjectNode pong = objectMapper.createObjectNode();
+                    pong.put("event", "pong");
+                    if (request.has("reqid")) {
+                        pong.set("reqid", request.get("reqid"));
+                    }
+                    conn.send(pong.toString());
+                }
+                case "subscribe", "unsubscribe" -> handleSubscription(conn, request, event.equals("subscribe"));
+                default -> logger.debug("Ignoring simulator request: {}", message);
+            }
+        } catch (IOException e) {
+            logger.warn("Malformed simulator request: {}", message);
+        }
+    }
+
+    private void handleSubscription(WebSocket conn, JsonNode request, boolean subscribe) {
+        Set<String> pairs = conn.getAttachment();
+        String name = request.path("subscription").path("name").asText();
+        for (JsonNode pairNode : request.path("pair")) {
+            String pair = pairNode.asText();
+            ObjectNode ack = objectMapper.createObjectNode();
+            ack.put("channelName", name);
+            ack.put("event", "subscriptionStatus");
+            ack.put("pair", pair);
+            ack.set("subscription", request.path("subscription"));
+            if (!"ticker".equals(name)) {
+                ack.put("status", "error");
+                ack.put("errorMessage", "Subscription name invalid");
+            } else if (subscribe) {
+                pairs.add(pair);
+                ack.put("channelID", channelId(pair));
+                ack.put("status", "subscribed");
+                if (!subscribedPairs.contains(pair)) {
+                    subscribedPairs.add(pair);
+                }
+            } else {
+                pairs.remove(pair);
+                ack.put("channelID", channelId(pair));
+                ack.put("status", "unsubscribed");
+            }
+            conn.send(ack.toString());
+        }
+    }
+
+    private int channelId(String pair) {
+        return channelIds.computeIfAbsent(pair, p -> nextChannelId.getAndIncrement());
+    }
+
+    /**
+     * Playback loop: waits for a subscriber, then sends each feed frame at its due time
+     */
+    private void play() {
+        SimulatedFeed feed = null;
+        long lastSent = System.nanoTime();
+        long feedStart = 0;
+        long wallStart = 0;
+        try {
+            while (running) {
+                if (subscribedPairs.isEmpty()) {
+                    lastSent = heartbeatIfIdle(lastSent);
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                if (feed == null) {
+                    feed = feedFactory.apply(subscribedPairs);
+                }
+                if (!feed.next()) {
+                    logger.info("Simulated feed finished after {} frames", framesSent);
+                    break;
+                }
+                if (framesSent == 0) {
+                    feedStart = feed.timeNanos();
+                    wallStart = System.nanoTime();
+                }
+                if (speed > 0) {
+                    long due = wallStart + (long) ((feed.timeNanos() - feedStart) / speed);
+                    for (long wait = due - System.nanoTime(); wait > 0 && running; wait = due - System.nanoTime()) {
+                        lastSent = heartbeatIfIdle(lastSent);
+                        LockSupport.parkNanos(Math.min(wait, IDLE_PARK_NANOS));
+                    }
+                }
+                String pair = feed.pair();
+                String frame = feed.frame(channelId(pair));
+                for (WebSocket conn : getConnections()) {
+                    Set<String> pairs = conn.getAttachment();
+                    if (conn.isOpen() && pairs != null && pairs.contains(pair)) {
+                        // Unpaced playback waits for the socket to drain instead of queueing without bound
+                        while (speed == 0 && conn.hasBufferedData() && conn.isOpen() && running) {
+                            Thread.onSpinWait();
+                        }
+                        conn.send(frame);
+                    }
+                }
+                framesSent++;
+                lastSent = System.nanoTime();
+            }
+        } catch (IOException e) {
+            logger.error("Error reading simulated feed: {}", e.getMessage(), e);
+        } catch (RuntimeException e) {
+            logger.error("Simulator playback stopped: {}", e.getMessage(), e);
+        } finally {
+            if (feed != null) {
+                try {
+                    feed.close();
+                } catch (IOException e) {
+                    logger.warn("Error closing simulated feed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private long heartbeatIfIdle(long lastSent) {
+        long now = System.nanoTime();
+        if (now - lastSent < HEARTBEAT_NANOS) {
+            return lastSent;
+        }
+        for (WebSocket conn : getConnections()) {
+            if (conn.isOpen()) {
+                conn.send("{\"event\":\"heartbeat\"}");
+            }
+        }
+        return now;
+    }
+
+    @Override
+    public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        logger.debug("Simulator client disconnected: code={}, reason={}", code, reason);
+    }
+
+    @Override
+    public void onError(WebSocket conn, Exception ex) {
+        logger.error("Simulator error: {}", ex.getMessage(), ex);
+    }
+
+    public void shutdown() throws InterruptedException {
+        running = false;
+        stop(1000);
+    }
+
+    public long getFramesSent() {
+        return framesSent;
+    }
+
+    /**
+     * Run the simulator standalone, e.g. for throughput tests in CI:
+     * KrakenSimulatorServer [port] [random|recording-file] [speed] [ticks-per-second-per-pair]
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8765;
+        String source = args.length > 1 ? args[1] : "random";
+        double speed = parseSpeed(args.length > 2 ? args[2] : "1x");
+        double rate = args.length > 3 ? Double.parseDouble(args[3]) : 10;
+        KrakenSimulatorServer server = new KrakenSimulatorServer(port, feedFor(source, rate, true), speed);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.shutdown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.crypto_task_backend.service.websocket.simulator;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Endless synthetic ticker feed: every pair in a live list takes a Gaussian random-walk
+ * step in turn, at a fixed rate per pair. Frames use the Kraken ticker layout.
+ */
+public class RandomWalkFeed implements SimulatedFeed {
+
+    private static final int PRICE_SCALE = 5;
+    private static final int VOLUME_SCALE = 8;
+    private static final double STEP_SIGMA = 0.0005;
+
+    private static final class Walk {
+        long price;
+        long open;
+        long low;
+        long high;
+        long volumeToday;
+        long volume24h;
+        int trades;
+    }
+
+    private final List<String> pairs;
+    private final double ticksPerSecondPerPair;
+    private final Random random;
+    private final Map<String, Walk> walks = new HashMap<>();
+    private final StringBuilder frame = new StringBuilder(512);
+    private long timeNanos;
+    private int cursor;
+    private String pair;
+
+    /**
+     * @param pairs Pairs to generate; may change while the feed runs but must not be empty when next() is called
+     * @param ticksPerSecondPerPair Feed-time tick rate of each pair
+     * @param seed Random seed, so runs are reproducible
+     */
+    public RandomWalkFeed(List<String> pairs, double ticksPerSecondPerPair, long seed) {
+        this.pairs = pairs;
+        this.ticksPerSecondPerPair = ticksPerSecondPerPair;
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public boolean next() {
+        int count = pairs.size();
+        if (count == 0) {
+            return false;
+        }
+        if (cursor >= count) {
+            cursor = 0;
+        }
+        pair = pairs.get(cursor++);
+        timeNanos += (long) (1_000_000_000L / (ticksPerSecondPerPair * count));
+
+        Walk walk = walks.computeIfAbsent(pair, p -> startWalk());
+        long step = Math.round(walk.price * STEP_SIGMA * random.nextGaussian());
+        walk.price = Math.max(1, walk.price + step);
+        walk.low = Math.min(walk.low, walk.price);
+        walk.high = Math.max(walk.high, walk.price);
+        long lot = 1 + (long) (random.nextDouble() * 100_000_000L);
+        walk.volumeToday += lot;
+        walk.volume24h += lot;
+        walk.trades++;
+        return true;
+    }
+
+    private Walk startWalk() {
+        Walk walk = new Walk();
+        // Same range as the service's dummy prices: 100 to 50000
+        walk.price = (long) ((100 + random.nextDouble() * 49_900) * 100_000);
+        walk.open = walk.price;
+        walk.low = walk.price;
+        walk.high = walk.price;
+        walk.volume24h = (long) ((1000 + random.nextDouble() * 9000) * 100_000_000L);
+        return walk;
+    }
+
+    @Override
+    public long timeNanos() {
+        return timeNanos;
+    }
+
+    @Override
+    public String pair() {
+        return pair;
+    }
+
+    @Override
+    public String frame(int channelId) {
+        Walk walk = walks.get(pair);
+        long spread = Math.max(1, walk.price / 10_000);
+        frame.setLength(0);
+        frame.append('[').append(channelId).append(",{\"a\":[");
+        quoted(walk.price + spread, PRICE_SCALE).append(",1,\"1.000\"],\"b\":[");
+        quoted(walk.price - spread, PRICE_SCALE).append(",1,\"1.000\"],\"c\":[");
+        quoted(walk.price, PRICE_SCALE).append(",\"0.01000000\"],\"v\":[");
+        quoted(walk.volumeToday, VOLUME_SCALE).append(',');
+        quoted(walk.volume24h, VOLUME_SCALE).append("],\"p\":[");
+        quoted(walk.price, PRICE_SCALE).append(',');
+        quoted(walk.price, PRICE_SCALE).append("],\"t\":[").append(walk.trades).append(',').append(walk.trades)
+                .append("],\"l\":[");
+        quoted(walk.low, PRICE_SCALE).append(',');
+        quoted(walk.low, PRICE_SCALE).append("],\"h\":[");
+        quoted(walk.high, PRICE_SCALE).append(',');
+        quoted(walk.high, PRICE_SCALE).append("],\"o\":[");
+        quoted(walk.open, PRICE_SCALE).append(',');
+        quoted(walk.open, PRICE_SCALE).append("]},\"ticker\",\"").append(pair).append("\"]");
+        return frame.toString();
+    }
+
+    /**
+     * Append a positive scaled long as a quoted decimal string
+     */
+    private StringBuilder quoted(long units, int scale) {
+        String digits = Long.toString(units);
+        frame.append('"');
+        if (digits.length() <= scale) {
+            frame.append("0.");
+            for (int i = digits.length(); i < scale; i++) {
+                frame.append('0');
+            }
+            frame.append(digits);
+        } else {
+            int point = digits.length() - scale;
+            frame.append(digits, 0, point).append('.').append(digits, point, digits.length());
+        }
+        return frame.append('"');
+    }
+}
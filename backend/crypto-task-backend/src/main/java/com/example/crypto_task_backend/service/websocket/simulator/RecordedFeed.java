@@ -0,0 +1,94 @@
+package com.example.crypto_task_backend.service.websocket.simulator;
+
+import com.example.crypto_task_backend.service.websocket.FrameRecording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Replays channel frames from a {@link FrameRecording} with their recorded timing.
+ * Event frames (systemStatus, subscription acks, heartbeats) are skipped because the
+ * simulator generates its own. With loop enabled the recording restarts at the end,
+ * with times shifted so they keep increasing.
+ */
+public class RecordedFeed implements SimulatedFeed {
+
+    private static final long LOOP_GAP_NANOS = 1_000_000L;
+
+    private final Path file;
+    private final boolean loop;
+    private FrameRecording.Reader reader;
+    private long firstTime = Long.MIN_VALUE;
+    private long lastTime;
+    private long timeOffset;
+    private boolean sawFrame;
+    private boolean firstPass = true;
+    private String pair;
+
+    public RecordedFeed(Path file, boolean loop) throws IOException {
+        this.file = file;
+        this.loop = loop;
+        this.reader = new FrameRecording.Reader(file);
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        while (true) {
+            if (!reader.next()) {
+                if (!loop || !sawFrame) {
+                    return false;
+                }
+                reader.close();
+                reader = new FrameRecording.Reader(file);
+                timeOffset += lastTime - firstTime + LOOP_GAP_NANOS;
+                firstPass = false;
+                sawFrame = false;
+                continue;
+            }
+            String frame = reader.getFrame();
+            String framePair = frame.startsWith("[") ? trailingPair(frame) : null;
+            if (framePair == null) {
+                continue;
+            }
+            if (firstTime == Long.MIN_VALUE) {
+                firstTime = reader.getEpochNanos();
+            }
+            if (firstPass) {
+                // Only the first pass defines the loop length
+                lastTime = reader.getEpochNanos();
+            }
+            sawFrame = true;
+            pair = framePair;
+            return true;
+        }
+    }
+
+    /**
+     * Pair name of a channel frame: the last string element of the array
+     */
+    private static String trailingPair(String frame) {
+        int end = frame.lastIndexOf('"');
+        int start = end > 0 ? frame.lastIndexOf('"', end - 1) : -1;
+        return start >= 0 ? frame.substring(start + 1, end) : null;
+    }
+
+    @Override
+    public long timeNanos() {
+        return reader.getEpochNanos() + timeOffset;
+    }
+
+    @Override
+    public String pair() {
+        return pair;
+    }
+
+    @Override
+    public String frame(int channelId) {
+        return reader.getFrame();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.crypto_task_backend.service.websocket.simulator;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Source of ticker frames played back by the {@link KrakenSimulatorServer}
+ */
+public interface SimulatedFeed extends Closeable {
+
+    /**
+     * Advance to the next frame
+     * @return false when the feed is exhausted
+     */
+    boolean next() throws IOException;
+
+    /**
+     * Feed time of the current frame in nanoseconds; only differences are used, for pacing
+     */
+    long timeNanos();
+
+    /**
+     * Pair the current frame belongs to
+     */
+    String pair();
+
+    /**
+     * The current frame as sent on the wire
+     * @param channelId Channel id the simulator assigned to the pair
+     */
+    String frame(int channelId);
+
+    @Override
+    default void close() throws IOException {
+    }
+}
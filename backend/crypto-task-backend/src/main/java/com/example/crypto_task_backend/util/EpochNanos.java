@@ -0,0 +1,52 @@
+package com.example.crypto_task_backend.util;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Allocation-free wall-clock timestamps in nanoseconds since the epoch.
+ * The epoch offset is captured once and advanced with System.nanoTime().
+ */
+public final class EpochNanos {
+
+    private static final long OFFSET;
+
+    static {
+        Instant now = Instant.now();
+        OFFSET = now.getEpochSecond() * 1_000_000_000L + now.getNano() - System.nanoTime();
+    }
+
+    private EpochNanos() {
+    }
+
+    public static long now() {
+        return OFFSET + System.nanoTime();
+    }
+
+    /**
+     * Epoch nanos for a System.nanoTime() reading taken earlier in this JVM
+     */
+    public static long fromNanoTime(long nanoTime) {
+        return OFFSET + nanoTime;
+    }
+
+    public static long toEpochMillis(long epochNanos) {
+        return Math.floorDiv(epochNanos, 1_000_000L);
+    }
+
+    public static long fromEpochMillis(long epochMillis) {
+        return epochMillis * 1_000_000L;
+    }
+
+    public static long fromLocalDateTime(LocalDateTime time) {
+        Instant instant = time.atZone(ZoneId.systemDefault()).toInstant();
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochNanos) {
+        Instant instant = Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+                Math.floorMod(epochNanos, 1_000_000_000L));
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+}
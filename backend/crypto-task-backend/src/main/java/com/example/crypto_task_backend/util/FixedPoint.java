@@ -0,0 +1,153 @@
+package com.example.crypto_task_backend.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Scaled-long decimal helpers for the tick hot path.
+ * A value v at scale s is stored as the long v * 10^s; conversion to BigDecimal
+ * happens only at the REST/JPA boundary.
+ */
+public final class FixedPoint {
+
+    /** Marker for an absent value */
+    public static final long NONE = Long.MIN_VALUE;
+
+    /** Default scale of volumes and quantities (Kraken lot decimals) */
+    public static final int VOLUME_SCALE = 8;
+
+    /** Decimal digits that always fit in a long */
+    public static final int MAX_DIGITS = 18;
+
+    /** Largest supported scale */
+    public static final int MAX_SCALE = 18;
+
+    private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_SCALE; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private FixedPoint() {
+    }
+
+    public static long pow10(int scale) {
+        return POWERS_OF_TEN[scale];
+    }
+
+    /**
+     * Parse a plain decimal such as "5525.40000" straight from a character buffer,
+     * rounding half-up if it has more fractional digits than the scale
+     * @throws NumberFormatException If the text is not a plain decimal or overflows
+     */
+    public static long parse(char[] chars, int offset, int length, int scale) {
+        int end = offset + length;
+        int i = offset;
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+        if (i >= end) {
+            throw new NumberFormatException("Empty decimal");
+        }
+
+        long units = 0;
+        int fractionDigits = -1;
+        boolean roundUp = false;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Invalid character '" + c + "' in decimal");
+            }
+            if (fractionDigits >= 0) {
+                if (fractionDigits == scale) {
+                    // First dropped digit decides rounding, the rest are ignored
+                    roundUp = c >= '5';
+                    break;
+                }
+                fractionDigits++;
+            }
+            units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+        }
+
+        int missing = scale - Math.max(fractionDigits, 0);
+        if (missing > 0) {
+            units = Math.multiplyExact(units, POWERS_OF_TEN[missing]);
+        }
+        if (roundUp) {
+            units = Math.addExact(units, 1);
+        }
+        return negative ? -units : units;
+    }
+
+    /**
+     * Convert a BigDecimal to units at the given scale, rounding half-up
+     * @return The scaled value, or NONE for null
+     */
+    public static long fromBigDecimal(BigDecimal value, int scale) {
+        if (value == null) {
+            return NONE;
+        }
+        return value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Like {@link #fromBigDecimal}, but a value that does not fit a long at the scale becomes NONE
+     */
+    public static long tryFromBigDecimal(BigDecimal value, int scale) {
+        try {
+            return fromBigDecimal(value, scale);
+        } catch (ArithmeticException e) {
+            return NONE;
+        }
+    }
+
+    /**
+     * @return The BigDecimal value, or null for NONE
+     */
+    public static BigDecimal toBigDecimal(long units, int scale) {
+        return units == NONE ? null : BigDecimal.valueOf(units, scale);
+    }
+
+    public static double toDouble(long units, int scale) {
+        return units == NONE ? Double.NaN : (double) units / POWERS_OF_TEN[scale];
+    }
+
+    /**
+     * Like {@link #rescale}, but a value that does not fit at the new scale becomes NONE
+     */
+    public static long tryRescale(long units, int fromScale, int toScale) {
+        try {
+            return rescale(units, fromScale, toScale);
+        } catch (ArithmeticException e) {
+            return NONE;
+        }
+    }
+
+    /**
+     * Re-express a value at a different scale, rounding half-up when reducing the scale
+     */
+    public static long rescale(long units, int fromScale, int toScale) {
+        if (units == NONE || fromScale == toScale) {
+            return units;
+        }
+        if (toScale > fromScale) {
+            return Math.multiplyExact(units, POWERS_OF_TEN[toScale - fromScale]);
+        }
+        long divisor = POWERS_OF_TEN[fromScale - toScale];
+        long quotient = units / divisor;
+        long remainder = Math.abs(units % divisor);
+        if (remainder * 2 >= divisor) {
+            quotient += units < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+}
@@ -7,7 +7,8 @@ DROP TABLE IF EXISTS users;
 CREATE TABLE IF NOT EXISTS users (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     username VARCHAR(50) NOT NULL UNIQUE,
-    balance DECIMAL(10,2) NOT NULL DEFAULT 10000
+    balance DECIMAL(10,2) NOT NULL DEFAULT 10000,
+    version BIGINT NOT NULL DEFAULT 0
 );
 
 -- Create user_balances table to track user cryptocurrency balances
@@ -17,6 +18,7 @@ CREATE TABLE IF NOT EXISTS user_balances (
     crypto_symbol VARCHAR(10) NOT NULL,
     balance DECIMAL(20, 8) NOT NULL DEFAULT 0,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0,
     FOREIGN KEY (user_id) REFERENCES users(id),
     UNIQUE KEY unique_user_crypto (user_id, crypto_symbol)
 );
@@ -31,5 +33,7 @@ CREATE TABLE IF NOT EXISTS transactions (
     price DECIMAL(20, 8) NOT NULL,
     total_value DECIMAL(20, 8) NOT NULL,
     transaction_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    FOREIGN KEY (user_id) REFERENCES users(id)
+    FOREIGN KEY (user_id) REFERENCES users(id),
+    -- Keyset pagination and export: newest first per user, (transaction_date, id) as the cursor
+    INDEX idx_transactions_user_date (user_id, transaction_date, id)
 );
@@ -0,0 +1,268 @@
+package com.example.crypto_task_backend.service.impl;
+
+import com.example.crypto_task_backend.dto.TransactionRequest;
+import com.example.crypto_task_backend.model.CryptoPrice;
+import com.example.crypto_task_backend.model.Transaction;
+import com.example.crypto_task_backend.model.User;
+import com.example.crypto_task_backend.model.UserBalance;
+import com.example.crypto_task_backend.repository.TransactionRepository;
+import com.example.crypto_task_backend.repository.UserBalanceRepository;
+import com.example.crypto_task_backend.repository.UserRepository;
+import com.example.crypto_task_backend.service.CryptoPriceService;
+import com.example.crypto_task_backend.service.UserService;
+import com.example.crypto_task_backend.service.concurrency.UserLocks;
+import com.example.crypto_task_backend.service.lots.LotSummary;
+import com.example.crypto_task_backend.service.lots.LotTracker;
+import com.example.crypto_task_backend.service.portfolio.PortfolioValuationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Hammers the JPA trade path from many threads against an in-memory store that behaves
+ * like Hibernate with {@code @Version}: reads return copies and a save based on a stale
+ * version fails. Without per-user locking, concurrent trades of one user would lose
+ * updates or fail their version checks; with it, every trade must land.
+ */
+class TradeConcurrencyStressTest {
+
+    private static final String SYMBOL = "BTC/USD";
+    private static final BigDecimal PRICE = new BigDecimal("100");
+    private static final BigDecimal BUY_QUANTITY = new BigDecimal("0.02");
+    private static final BigDecimal SELL_QUANTITY = new BigDecimal("0.01");
+    private static final int USERS = 4;
+    private static final int THREADS_PER_USER = 8;
+    private static final int ROUNDS = 200;
+
+    private final InMemoryAccounts store = new InMemoryAccounts();
+    private final ThreadLocal<Long> currentUser = new ThreadLocal<>();
+    private UserLocks userLocks;
+    private LotTracker lotTracker;
+    private TransactionServiceImpl transactionService;
+
+    @BeforeEach
+    void setUp() {
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findById(anyLong())).thenAnswer(call -> store.findUser(call.getArgument(0)));
+        when(userRepository.save(any(User.class))).thenAnswer(call -> store.saveUser(call.getArgument(0)));
+
+        UserBalanceRepository balanceRepository = mock(UserBalanceRepository.class);
+        when(balanceRepository.findByUserAndCryptoSymbol(any(User.class), anyString()))
+                .thenAnswer(call -> store.findBalance(call.<User>getArgument(0).getId(), call.getArgument(1)));
+        when(balanceRepository.save(any(UserBalance.class)))
+                .thenAnswer(call -> store.saveBalance(call.getArgument(0)));
+
+        TransactionRepository transactionRepository = mock(TransactionRepository.class);
+        when(transactionRepository.save(any(Transaction.class)))
+                .thenAnswer(call -> store.saveTransaction(call.getArgument(0)));
+        when(transactionRepository.findResponsesByUserId(anyLong())).thenReturn(List.of());
+
+        UserService userService = mock(UserService.class);
+        when(userService.getCurrentUser()).thenAnswer(call -> store.findUser(currentUser.get()).orElseThrow());
+
+        CryptoPriceService cryptoPriceService = mock(CryptoPriceService.class);
+        when(cryptoPriceService.getPriceBySymbol(SYMBOL))
+                .thenReturn(new CryptoPrice(SYMBOL, "Bitcoin", 0, 100, 100, 100, 0, 0, 0));
+
+        for (long id = 1; id <= USERS; id++) {
+            store.createUser(id);
+        }
+        userLocks = new UserLocks(64);
+        JpaTradeSettlement settlement = new JpaTradeSettlement(userRepository,
+                new UserBalanceServiceImpl(balanceRepository), balanceRepository, transactionRepository);
+        lotTracker = new LotTracker(transactionRepository, userRepository, userLocks, "fifo", 1, false);
+        // Tracks no portfolio, so trades only pass through it
+        PortfolioValuationService portfolioValuation = new PortfolioValuationService(null, cryptoPriceService,
+                settlement, lotTracker, userService, userLocks);
+        transactionService = new TransactionServiceImpl(transactionRepository, userService, cryptoPriceService,
+                settlement, null, userLocks, lotTracker, portfolioValuation, "last");
+    }
+
+    @Test
+    void concurrentTradesOfOneUserLoseNoUpdates() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(USERS * THREADS_PER_USER);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (long user = 1; user <= USERS; user++) {
+            long userId = user;
+            for (int thread = 0; thread < THREADS_PER_USER; thread++) {
+                workers.add(executor.submit(() -> {
+                    currentUser.set(userId);
+                    start.await();
+                    for (int round = 0; round < ROUNDS; round++) {
+                        transactionService.buyCrypto(new TransactionRequest(SYMBOL, BUY_QUANTITY));
+                        transactionService.sellCrypto(new TransactionRequest(SYMBOL, SELL_QUANTITY));
+                    }
+                    return null;
+                }));
+            }
+        }
+        start.countDown();
+        try {
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Each round costs 2.00 and returns 1.00, and nets 0.01 BTC
+        int trades = THREADS_PER_USER * ROUNDS;
+        BigDecimal expectedCash = new BigDecimal("10000.00").subtract(BigDecimal.valueOf(trades));
+        BigDecimal expectedCrypto = SELL_QUANTITY.multiply(BigDecimal.valueOf(trades));
+        for (long userId = 1; userId <= USERS; userId++) {
+            User user = store.findUser(userId).orElseThrow();
+            UserBalance balance = store.findBalance(userId, SYMBOL).orElseThrow();
+            assertEquals(0, expectedCash.compareTo(user.getBalance()),
+                    "cash of user " + userId + " is " + user.getBalance());
+            assertEquals(0, expectedCrypto.compareTo(balance.getBalance()),
+                    "crypto of user " + userId + " is " + balance.getBalance());
+            // The lots saw every trade in settlement order; all trades are at one price
+            LotSummary lots = lotTracker.getSummary(userId, SYMBOL);
+            assertEquals(0, expectedCrypto.compareTo(lots.getQuantity()),
+                    "lots of user " + userId + " hold " + lots.getQuantity());
+            assertEquals(0, expectedCrypto.multiply(PRICE).compareTo(lots.getCostBasis()));
+            assertEquals(0, lots.getRealisedPnl().signum());
+        }
+        assertEquals(2L * USERS * trades, store.transactionCount());
+        // The locks serialize each user, so the version check never had to reject a write
+        assertEquals(0, store.versionConflicts());
+    }
+
+    @Test
+    void tradesOfDifferentUsersDoNotWaitForEachOther() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> userLocks.withLock(1L, () -> {
+            locked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        holder.start();
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+        try {
+            Future<?> otherUser = executor.submit(() -> {
+                currentUser.set(2L);
+                return transactionService.buyCrypto(new TransactionRequest(SYMBOL, BUY_QUANTITY));
+            });
+            otherUser.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            holder.join();
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Rows keyed like the MySQL tables, with Hibernate's optimistic version semantics
+     */
+    private static final class InMemoryAccounts {
+        private final Map<Long, User> users = new HashMap<>();
+        private final Map<String, UserBalance> balances = new HashMap<>();
+        private final AtomicLong ids = new AtomicLong();
+        private final AtomicLong transactions = new AtomicLong();
+        private final AtomicLong conflicts = new AtomicLong();
+
+        synchronized void createUser(long id) {
+            User user = new User("user" + id);
+            user.setId(id);
+            user.setBalance(new BigDecimal("10000.00"));
+            user.setVersion(0L);
+            users.put(id, user);
+        }
+
+        synchronized Optional<User> findUser(Long id) {
+            return Optional.ofNullable(users.get(id)).map(InMemoryAccounts::copy);
+        }
+
+        synchronized User saveUser(User user) {
+            User stored = users.get(user.getId());
+            if (!stored.getVersion().equals(user.getVersion())) {
+                conflicts.incrementAndGet();
+                throw new ObjectOptimisticLockingFailureException(User.class, user.getId());
+            }
+            user.setVersion(user.getVersion() + 1);
+            users.put(user.getId(), copy(user));
+            return user;
+        }
+
+        synchronized Optional<UserBalance> findBalance(Long userId, String symbol) {
+            return Optional.ofNullable(balances.get(userId + "/" + symbol)).map(InMemoryAccounts::copy);
+        }
+
+        synchronized UserBalance saveBalance(UserBalance balance) {
+            String key = balance.getUser().getId() + "/" + balance.getCryptoSymbol();
+            UserBalance stored = balances.get(key);
+            if (balance.getId() == null) {
+                if (stored != null) {
+                    // The unique_user_crypto key rejects a second insert
+                    conflicts.incrementAndGet();
+                    throw new IllegalStateException("Duplicate entry for " + key);
+                }
+                balance.setId(ids.incrementAndGet());
+                balance.setVersion(0L);
+            } else if (!stored.getVersion().equals(balance.getVersion())) {
+                conflicts.incrementAndGet();
+                throw new ObjectOptimisticLockingFailureException(UserBalance.class, balance.getId());
+            } else {
+                balance.setVersion(balance.getVersion() + 1);
+            }
+            balances.put(key, copy(balance));
+            return balance;
+        }
+
+        Transaction saveTransaction(Transaction transaction) {
+            transaction.setId(transactions.incrementAndGet());
+            return transaction;
+        }
+
+        long transactionCount() {
+            return transactions.get();
+        }
+
+        long versionConflicts() {
+            return conflicts.get();
+        }
+
+        private static User copy(User user) {
+            User copy = new User(user.getUsername());
+            copy.setId(user.getId());
+            copy.setBalance(user.getBalance());
+            copy.setVersion(user.getVersion());
+            return copy;
+        }
+
+        private static UserBalance copy(UserBalance balance) {
+            UserBalance copy = new UserBalance(balance.getUser(), balance.getCryptoSymbol(), balance.getBalance());
+            copy.setId(balance.getId());
+            copy.setVersion(balance.getVersion());
+            copy.setUpdatedAt(balance.getUpdatedAt());
+            return copy;
+        }
+    }
+}
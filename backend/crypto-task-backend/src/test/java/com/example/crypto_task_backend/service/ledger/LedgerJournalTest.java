@@ -0,0 +1,186 @@
+package com.example.crypto_task_backend.service.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Crash recovery of the segmented ledger journal: a record cut short at the tail is
+ * truncated on reopen, only entries after the checkpoint are replayed, checkpointed
+ * segments are deleted and a journal written before segmentation is still read.
+ */
+class LedgerJournalTest {
+
+    private static final long LARGE_SEGMENT = 1L << 30;
+    private static final long SMALL_SEGMENT = 256;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordCutShortIsTruncatedOnReopen() throws IOException {
+        Path file = directory.resolve("ledger.journal");
+        LedgerJournal journal = new LedgerJournal(file, false, LARGE_SEGMENT);
+        assertTrue(journal.open().isEmpty());
+        for (long sequence = 1; sequence <= 5; sequence++) {
+            journal.append(entry(sequence));
+        }
+        journal.close();
+
+        // Simulate a crash halfway through writing the last record
+        List<Path> segments = segmentFiles();
+        assertEquals(1, segments.size());
+        Path segment = segments.get(0);
+        long fullSize = Files.size(segment);
+        long recordSize = fullSize / 5;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(fullSize - recordSize / 2);
+        }
+
+        journal = new LedgerJournal(file, false, LARGE_SEGMENT);
+        List<LedgerEntry> pending = journal.open();
+        assertEquals(List.of(1L, 2L, 3L, 4L), sequences(pending));
+        assertEquals(4, journal.getLastSequence());
+        assertEquals(1, journal.getSegmentCount());
+        assertEquals(fullSize - recordSize, Files.size(segment));
+        LedgerEntry replayed = pending.get(3);
+        assertEquals(104, replayed.getTransactionId());
+        assertEquals(0, new BigDecimal("5000.05").compareTo(replayed.getTotalValue()));
+
+        // Appending after the truncation continues the segment with whole records
+        journal.append(entry(5));
+        journal.close();
+        journal = new LedgerJournal(file, false, LARGE_SEGMENT);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), sequences(journal.open()));
+        assertEquals(fullSize, Files.size(segment));
+        journal.close();
+    }
+
+    @Test
+    void checkpointDeletesSegmentsAndReplayStartsAfterIt() throws IOException {
+        Path file = directory.resolve("ledger.journal");
+        LedgerJournal journal = new LedgerJournal(file, false, SMALL_SEGMENT);
+        journal.open();
+        for (long sequence = 1; sequence <= 20; sequence++) {
+            journal.append(entry(sequence));
+        }
+        int rolled = journal.getSegmentCount();
+        assertTrue(rolled > 2, "expected several segments, got " + rolled);
+
+        journal.checkpoint(12);
+        assertEquals(12, journal.getCheckpoint());
+        List<Long> firstSequences = segmentFiles().stream().map(LedgerJournalTest::firstSequence).toList();
+        assertEquals(journal.getSegmentCount(), firstSequences.size());
+        assertTrue(journal.getSegmentCount() < rolled);
+        // The oldest segment left holds the first entry MySQL has not seen
+        assertTrue(firstSequences.get(0) <= 13);
+        assertTrue(firstSequences.size() == 1 || firstSequences.get(1) > 13);
+        journal.close();
+
+        journal = new LedgerJournal(file, false, SMALL_SEGMENT);
+        List<LedgerEntry> pending = journal.open();
+        assertEquals(LongStream.rangeClosed(13, 20).boxed().toList(), sequences(pending));
+        assertEquals(12, journal.getCheckpoint());
+        assertEquals(20, journal.getLastSequence());
+
+        // Once everything is checkpointed only the segment being appended to remains
+        journal.append(entry(21));
+        journal.checkpoint(21);
+        assertEquals(1, journal.getSegmentCount());
+        assertEquals(1, segmentFiles().size());
+        journal.close();
+
+        journal = new LedgerJournal(file, false, SMALL_SEGMENT);
+        assertTrue(journal.open().isEmpty());
+        assertEquals(21, journal.getLastSequence());
+        journal.close();
+    }
+
+    @Test
+    void legacyJournalIsReplayedAndDeletedOnceCheckpointed() throws IOException {
+        Path file = directory.resolve("ledger.journal");
+        LedgerJournal writer = new LedgerJournal(file, false, LARGE_SEGMENT);
+        writer.open();
+        for (long sequence = 1; sequence <= 3; sequence++) {
+            writer.append(entry(sequence));
+        }
+        writer.close();
+        // A journal from before segmentation is a single file under the base name
+        Files.move(segmentFiles().get(0), file);
+        Files.writeString(directory.resolve("ledger.journal.checkpoint"), "1");
+
+        LedgerJournal journal = new LedgerJournal(file, false, LARGE_SEGMENT);
+        assertEquals(List.of(2L, 3L), sequences(journal.open()));
+        assertEquals(3, journal.getLastSequence());
+        assertEquals(1, journal.getSegmentCount());
+
+        // New entries go to a segment of their own, never to the legacy file
+        journal.append(entry(4));
+        assertEquals(2, journal.getSegmentCount());
+        journal.checkpoint(3);
+        assertFalse(Files.exists(file));
+        assertEquals(1, journal.getSegmentCount());
+        assertEquals(List.of(4L), segmentFiles().stream().map(LedgerJournalTest::firstSequence).toList());
+        journal.close();
+
+        journal = new LedgerJournal(file, false, LARGE_SEGMENT);
+        assertEquals(List.of(4L), sequences(journal.open()));
+        journal.close();
+    }
+
+    @Test
+    void fullyCheckpointedLegacyJournalIsDeletedOnFirstCheckpoint() throws IOException {
+        Path file = directory.resolve("ledger.journal");
+        LedgerJournal writer = new LedgerJournal(file, false, LARGE_SEGMENT);
+        writer.open();
+        writer.append(entry(1));
+        writer.append(entry(2));
+        writer.close();
+        Files.move(segmentFiles().get(0), file);
+        Files.writeString(directory.resolve("ledger.journal.checkpoint"), "2");
+
+        LedgerJournal journal = new LedgerJournal(file, false, LARGE_SEGMENT);
+        assertTrue(journal.open().isEmpty());
+        assertEquals(2, journal.getLastSequence());
+        journal.checkpoint(2);
+        assertFalse(Files.exists(file));
+        assertEquals(0, journal.getSegmentCount());
+        journal.close();
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().matches("ledger\\.journal\\.\\d+"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(name.lastIndexOf('.') + 1));
+    }
+
+    private static List<Long> sequences(List<LedgerEntry> entries) {
+        return entries.stream().map(LedgerEntry::getSequence).toList();
+    }
+
+    private static LedgerEntry entry(long sequence) {
+        return new LedgerEntry(sequence, LedgerEntry.Type.BUY, 100 + sequence, 1, "BTC/USD",
+                new BigDecimal("0.1"), new BigDecimal("50000.5"), new BigDecimal("5000.05"),
+                new BigDecimal("123.45"), new BigDecimal("0.30000000"), 1_700_000_000_000L + sequence);
+    }
+}
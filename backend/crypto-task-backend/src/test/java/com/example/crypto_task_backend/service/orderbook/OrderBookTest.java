@@ -0,0 +1,193 @@
+package com.example.crypto_task_backend.service.orderbook;
+
+import com.example.crypto_task_backend.dto.OrderBookLevel;
+import com.example.crypto_task_backend.dto.OrderBookResponse;
+import com.example.crypto_task_backend.service.websocket.KrakenFrame;
+import com.example.crypto_task_backend.service.websocket.KrakenFrameParser;
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Feeds the book the frames of Kraken's published book checksum example and checks the
+ * checksum against the documented value, then applies updates whose checksums are worked
+ * out independently from the decimal strings, as Kraken describes the algorithm.
+ */
+class OrderBookTest {
+
+    // Snapshot from Kraken's "Book Checksum" guide, documented checksum 974947235
+    private static final String SNAPSHOT = "[0,{\"as\":["
+            + "[\"0.05005\",\"0.00000500\",\"1582905487.684110\"],"
+            + "[\"0.05010\",\"0.00000500\",\"1582905486.187983\"],"
+            + "[\"0.05015\",\"0.00000500\",\"1582905484.480241\"],"
+            + "[\"0.05020\",\"0.00000500\",\"1582905486.645658\"],"
+            + "[\"0.05025\",\"0.00000500\",\"1582905486.859009\"],"
+            + "[\"0.05030\",\"0.00000500\",\"1582905488.601486\"],"
+            + "[\"0.05035\",\"0.00000500\",\"1582905488.357312\"],"
+            + "[\"0.05040\",\"0.00000500\",\"1582905488.785484\"],"
+            + "[\"0.05045\",\"0.00000500\",\"1582905485.302661\"],"
+            + "[\"0.05050\",\"0.00000500\",\"1582905486.157467\"]],"
+            + "\"bs\":["
+            + "[\"0.05000\",\"0.00000500\",\"1582905487.439814\"],"
+            + "[\"0.04995\",\"0.00000500\",\"1582905485.119396\"],"
+            + "[\"0.04990\",\"0.00000500\",\"1582905486.432052\"],"
+            + "[\"0.04980\",\"0.00000500\",\"1582905480.609351\"],"
+            + "[\"0.04975\",\"0.00000500\",\"1582905476.793880\"],"
+            + "[\"0.04970\",\"0.00000500\",\"1582905486.767461\"],"
+            + "[\"0.04965\",\"0.00000500\",\"1582905481.767528\"],"
+            + "[\"0.04960\",\"0.00000500\",\"1582905487.378907\"],"
+            + "[\"0.04955\",\"0.00000500\",\"1582905483.626664\"],"
+            + "[\"0.04950\",\"0.00000500\",\"1582905488.509872\"]]},"
+            + "\"book-10\",\"XBT/USD\"]";
+    private static final long SNAPSHOT_CHECKSUM = 974947235L;
+    private static final int DEPTH = 10;
+
+    private final KrakenFrameParser parser = new KrakenFrameParser(new JsonFactory());
+    private final KrakenFrame frame = new KrakenFrame();
+    private OrderBook book;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        book = new OrderBook("XBT/USD", DEPTH);
+        assertEquals(KrakenFrame.Type.BOOK_SNAPSHOT, parser.parse(SNAPSHOT, frame));
+        book.applySnapshot(frame.getBookAsks(), frame.getBookBids());
+    }
+
+    @Test
+    void snapshotMatchesPublishedChecksum() {
+        assertTrue(book.isSynced());
+        assertEquals(5, book.getPriceScale());
+        assertEquals(8, book.getVolumeScale());
+        assertEquals(SNAPSHOT_CHECKSUM, book.checksum());
+        assertEquals(SNAPSHOT_CHECKSUM, checksum(snapshotAsks(), snapshotBids()));
+    }
+
+    @Test
+    void updateChangesInsertsAndDeletesLevels() throws IOException {
+        // Delete the best ask, add an ask inside the top ten, change the best bid's volume
+        // and add a better bid, which pushes the worst bid past the depth
+        List<String[]> asks = snapshotAsks();
+        asks.remove(0);
+        asks.add(1, new String[] {"0.05012", "0.00001000"});
+        List<String[]> bids = snapshotBids();
+        bids.set(0, new String[] {"0.05000", "0.00000700"});
+        bids.add(0, new String[] {"0.05001", "0.00000500"});
+        bids.remove(bids.size() - 1);
+        long expected = checksum(asks, bids);
+
+        String update = "[0,"
+                + "{\"a\":[[\"0.05005\",\"0.00000000\",\"1582905489.000001\"],"
+                + "[\"0.05012\",\"0.00001000\",\"1582905489.000002\"]]},"
+                + "{\"b\":[[\"0.05000\",\"0.00000700\",\"1582905489.000003\"],"
+                + "[\"0.05001\",\"0.00000500\",\"1582905489.000004\"]],"
+                + "\"c\":\"" + expected + "\"},"
+                + "\"book-10\",\"XBT/USD\"]";
+        assertEquals(KrakenFrame.Type.BOOK_UPDATE, parser.parse(update, frame));
+        assertEquals(expected, frame.getChecksum());
+
+        assertTrue(book.applyUpdate(frame.getBookAsks(), frame.getBookBids(), frame.getChecksum()));
+        assertTrue(book.isSynced());
+        assertLevels(asks, book.toResponse(DEPTH).getAsks());
+        assertLevels(bids, book.toResponse(DEPTH).getBids());
+    }
+
+    @Test
+    void republishedLevelsAndTrailingZerosKeepChecksum() throws IOException {
+        // A republish carries a fourth "r" element; fewer decimals must rescale to the book's
+        List<String[]> asks = snapshotAsks();
+        asks.set(9, new String[] {"0.05050", "0.00000900"});
+        long expected = checksum(asks, snapshotBids());
+
+        String update = "[0,{\"a\":[[\"0.0505\",\"0.000009\",\"1582905489.000001\",\"r\"]],"
+                + "\"c\":\"" + expected + "\"},\"book-10\",\"XBT/USD\"]";
+        assertEquals(KrakenFrame.Type.BOOK_UPDATE, parser.parse(update, frame));
+
+        assertTrue(book.applyUpdate(frame.getBookAsks(), frame.getBookBids(), frame.getChecksum()));
+        assertLevels(asks, book.toResponse(DEPTH).getAsks());
+    }
+
+    @Test
+    void checksumMismatchUnsyncsBookUntilSnapshot() throws IOException {
+        String update = "[0,{\"b\":[[\"0.04950\",\"0.00000000\",\"1582905489.000001\"]],"
+                + "\"c\":\"" + SNAPSHOT_CHECKSUM + "\"},\"book-10\",\"XBT/USD\"]";
+        assertEquals(KrakenFrame.Type.BOOK_UPDATE, parser.parse(update, frame));
+
+        assertFalse(book.applyUpdate(frame.getBookAsks(), frame.getBookBids(), frame.getChecksum()));
+        assertFalse(book.isSynced());
+
+        assertEquals(KrakenFrame.Type.BOOK_SNAPSHOT, parser.parse(SNAPSHOT, frame));
+        book.applySnapshot(frame.getBookAsks(), frame.getBookBids());
+        assertTrue(book.isSynced());
+        assertEquals(SNAPSHOT_CHECKSUM, book.checksum());
+    }
+
+    @Test
+    void updateBeforeSnapshotIsRejected() throws IOException {
+        OrderBook empty = new OrderBook("XBT/USD", DEPTH);
+        String update = "[0,{\"a\":[[\"0.05005\",\"0.00000500\",\"1582905489.000001\"]],"
+                + "\"c\":\"0\"},\"book-10\",\"XBT/USD\"]";
+        parser.parse(update, frame);
+
+        assertFalse(empty.applyUpdate(frame.getBookAsks(), frame.getBookBids(), frame.getChecksum()));
+        assertFalse(empty.isSynced());
+    }
+
+    private static List<String[]> snapshotAsks() {
+        List<String[]> levels = new ArrayList<>();
+        for (int price = 5005; price <= 5050; price += 5) {
+            levels.add(new String[] {String.format("0.%05d", price), "0.00000500"});
+        }
+        return levels;
+    }
+
+    private static List<String[]> snapshotBids() {
+        List<String[]> levels = new ArrayList<>();
+        for (int price = 5000; price >= 4950; price -= 5) {
+            if (price != 4985) {
+                levels.add(new String[] {String.format("0.%05d", price), "0.00000500"});
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * Kraken's checksum worked from decimal strings: for the top ten asks, then the top
+     * ten bids, drop the decimal point and leading zeros of price and volume, concatenate
+     * and run the result through CRC32
+     */
+    private static long checksum(List<String[]> asks, List<String[]> bids) {
+        StringBuilder digits = new StringBuilder();
+        for (List<String[]> side : List.of(asks, bids)) {
+            for (String[] level : side.subList(0, Math.min(10, side.size()))) {
+                digits.append(stripped(level[0])).append(stripped(level[1]));
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(digits.toString().getBytes(StandardCharsets.US_ASCII));
+        return crc.getValue();
+    }
+
+    private static String stripped(String decimal) {
+        String digits = decimal.replace(".", "").replaceFirst("^0+", "");
+        return digits.isEmpty() ? "0" : digits;
+    }
+
+    private static void assertLevels(List<String[]> expected, List<OrderBookLevel> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(0, new BigDecimal(expected.get(i)[0]).compareTo(actual.get(i).getPrice()), "price " + i);
+            assertEquals(0, new BigDecimal(expected.get(i)[1]).compareTo(actual.get(i).getVolume()), "volume " + i);
+        }
+    }
+}